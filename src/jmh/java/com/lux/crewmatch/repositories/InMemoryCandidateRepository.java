@@ -0,0 +1,157 @@
+package com.lux.crewmatch.repositories;
+
+import com.lux.crewmatch.entities.Candidate;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An in-memory CandidateRepository for benchmarks. The fetch queries return the same entities as the plain finders,
+ * since stored candidates always have their collections loaded.
+ */
+public class InMemoryCandidateRepository extends InMemoryRepository<Candidate> implements CandidateRepository {
+
+    public InMemoryCandidateRepository() {
+        super(Candidate::getId, Candidate::setId);
+    }
+
+    @Override
+    public List<Candidate> findByAssignedFalse() {
+        return filter(c -> !c.getAssigned());
+    }
+
+    @Override
+    public List<Candidate> findByAssignedTrue() {
+        return filter(Candidate::getAssigned);
+    }
+
+    @Override
+    public List<Candidate> findByActingInterestTrue() {
+        return filter(Candidate::getActingInterest);
+    }
+
+    @Override
+    public List<Candidate> findByAssignedFalseAndActingInterestFalse() {
+        return filter(c -> !c.getAssigned() && !c.getActingInterest());
+    }
+
+    @Override
+    public List<Candidate> findByAssignedTrueAndActingInterestFalse() {
+        return filter(c -> c.getAssigned() && !c.getActingInterest());
+    }
+
+    @Override
+    public List<Candidate> findByAssignedFalseAndActingInterestTrue() {
+        return filter(c -> !c.getAssigned() && c.getActingInterest());
+    }
+
+    @Override
+    public List<Candidate> findByAssignedTrueAndActingInterestTrue() {
+        return filter(c -> c.getAssigned() && c.getActingInterest());
+    }
+
+    @Override
+    public List<Candidate> findByAssignedFalseAndProductionsContaining(String production) {
+        return filter(c -> !c.getAssigned() && c.getProductions().contains(production));
+    }
+
+    @Override
+    public List<Candidate> findByAssignedFalseAndActingInterestTrueAndProductionsLike(String production) {
+        return filter(c -> !c.getAssigned() && c.getActingInterest() && c.getProductions().contains(production));
+    }
+
+    @Override
+    public List<Candidate> findByAssignedFalseAndActingInterestFalseAndProductionsContaining(String production) {
+        return filter(c -> !c.getAssigned() && !c.getActingInterest() && c.getProductions().contains(production));
+    }
+
+    @Override
+    public List<Candidate> findByAssignedFalseAndActingInterestFalseAndLastModifiedAfter(Instant time) {
+        return filter(c -> !c.getAssigned() && !c.getActingInterest()
+                && c.getLastModified() != null && c.getLastModified().isAfter(time));
+    }
+
+    @Override
+    public Candidate findByName(String name) {
+        return first(c -> c.getName().equals(name));
+    }
+
+    @Override
+    public List<Candidate> findBySeniorityRankIsNullAndIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable) {
+        return filter(c -> c.getSeniorityRank() == null && c.getId() > id).stream()
+                .sorted(Comparator.comparing(Candidate::getId))
+                .limit(pageable.getPageSize())
+                .toList();
+    }
+
+    @Override
+    public long countByAssignedFalseAndActingInterestFalse() {
+        return findByAssignedFalseAndActingInterestFalse().size();
+    }
+
+    // Entities are never saved through JPA here, so the rank is computed on the fly
+    @Override
+    public Stream<Integer> streamUnassignedIdsBySeniority() {
+        return findByAssignedFalseAndActingInterestFalse().stream()
+                .filter(c -> c.getQuartersInLux() != null && c.getYearsInUW() != null)
+                .sorted(Comparator.comparingLong((Candidate c) -> Candidate.seniorityRank(
+                        c.getQuartersInLux(), c.getYearsInUW(), c.getTimestampMillis())).thenComparing(Candidate::getName, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(Candidate::getId);
+    }
+
+    @Override
+    public List<Candidate> findByIdInFetchProductions(Collection<Integer> ids) {
+        return filter(c -> ids.contains(c.getId()));
+    }
+
+    @Override
+    public List<Candidate> findByIdInFetchRoles(Collection<Integer> ids) {
+        return findByIdInFetchProductions(ids);
+    }
+
+    @Override
+    public List<Candidate> findByIdInFetchAssignments(Collection<Integer> ids) {
+        return findByIdInFetchProductions(ids);
+    }
+
+    @Override
+    public List<Candidate> findUnassignedFetchProductions() {
+        return findByAssignedFalseAndActingInterestFalse();
+    }
+
+    @Override
+    public List<Candidate> findUnassignedFetchRoles() {
+        return findByAssignedFalseAndActingInterestFalse();
+    }
+
+    @Override
+    public List<Candidate> findUnassignedFetchAssignments() {
+        return findByAssignedFalseAndActingInterestFalse();
+    }
+
+    @Override
+    public List<Candidate> findAssignedFetchProductions() {
+        return findByAssignedTrueAndActingInterestFalse();
+    }
+
+    @Override
+    public List<Candidate> findAssignedFetchRoles() {
+        return findByAssignedTrueAndActingInterestFalse();
+    }
+
+    @Override
+    public List<Candidate> findAssignedFetchAssignments() {
+        return findByAssignedTrueAndActingInterestFalse();
+    }
+
+    @Override
+    public int unassignAll(Instant now) {
+        List<Candidate> assigned = findByAssignedTrue();
+        assigned.forEach(c -> c.setAssigned(false));
+        return assigned.size();
+    }
+}
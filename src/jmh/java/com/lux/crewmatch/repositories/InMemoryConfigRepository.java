@@ -0,0 +1,19 @@
+package com.lux.crewmatch.repositories;
+
+import com.lux.crewmatch.entities.Configs;
+
+/**
+ * An in-memory ConfigRepository for benchmarks. It starts empty, so the services use their default policies unless a
+ * benchmark saves config variables.
+ */
+public class InMemoryConfigRepository extends InMemoryRepository<Configs> implements ConfigRepository {
+
+    public InMemoryConfigRepository() {
+        super(Configs::getId, Configs::setId);
+    }
+
+    @Override
+    public Configs findByName(String name) {
+        return first(c -> name.equals(c.getName()));
+    }
+}
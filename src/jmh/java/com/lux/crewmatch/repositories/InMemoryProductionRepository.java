@@ -0,0 +1,76 @@
+package com.lux.crewmatch.repositories;
+
+import com.lux.crewmatch.entities.Production;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An in-memory ProductionRepository for benchmarks. The fetch queries return the same entities as the plain finders,
+ * since stored productions always have their collections loaded.
+ */
+public class InMemoryProductionRepository extends InMemoryRepository<Production> implements ProductionRepository {
+
+    public InMemoryProductionRepository() {
+        super(Production::getId, Production::setId);
+    }
+
+    @Override
+    public Production findByName(String name) {
+        return first(p -> p.getName().equals(name));
+    }
+
+    @Override
+    public List<Production> findByProdLeadIsNullAndArchivedFalse() {
+        return filter(p -> p.getProdLead() == null && !p.getArchived());
+    }
+
+    @Override
+    public List<Production> findByProdLeadIsNotNull() {
+        return filter(p -> p.getProdLead() != null);
+    }
+
+    @Override
+    public List<Production> findByArchived(Boolean archived) {
+        return filter(p -> p.getArchived().equals(archived));
+    }
+
+    @Override
+    public List<ProductionVersion> findActiveVersions() {
+        List<ProductionVersion> versions = new ArrayList<>();
+        for (Production production : findByArchived(false)) {
+            versions.add(new ProductionVersion() {
+                @Override
+                public Integer getId() {
+                    return production.getId();
+                }
+
+                @Override
+                public String getName() {
+                    return production.getName();
+                }
+
+                @Override
+                public Integer getVersion() {
+                    return production.getVersion();
+                }
+
+                @Override
+                public Long getSlotVersions() {
+                    return production.slotVersions();
+                }
+            });
+        }
+        return versions;
+    }
+
+    @Override
+    public List<Production> findActiveFetchSlots() {
+        return findByArchived(false);
+    }
+
+    @Override
+    public List<Production> findActiveFetchRankings() {
+        return findByArchived(false);
+    }
+}
@@ -0,0 +1,135 @@
+package com.lux.crewmatch.repositories;
+
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A CrudRepository backed by a map, for running the services without a database. Entities are stored as they are,
+ * so changes made to a loaded entity are visible to every later query, as they would be within one persistence
+ * context.
+ */
+abstract class InMemoryRepository<T> implements CrudRepository<T, Integer> {
+
+    // Fields
+    private final Map<Integer, T> entities = new LinkedHashMap<>();
+    private final Function<T, Integer> getId;
+    private final BiConsumer<T, Integer> setId;
+    private int nextId = 1;
+
+    InMemoryRepository(Function<T, Integer> getId, BiConsumer<T, Integer> setId) {
+        this.getId = getId;
+        this.setId = setId;
+    }
+
+    // Returns every stored entity that satisfies the filter, in insertion order
+    List<T> filter(Predicate<T> filter) {
+        List<T> result = new ArrayList<>();
+        for (T entity : this.entities.values()) {
+            if (filter.test(entity)) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    // Returns the first stored entity that satisfies the filter, or null if there is none
+    T first(Predicate<T> filter) {
+        for (T entity : this.entities.values()) {
+            if (filter.test(entity)) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        Integer id = this.getId.apply(entity);
+        if (id == null) {
+            id = this.nextId++;
+            this.setId.accept(entity, id);
+        } else {
+            this.nextId = Math.max(this.nextId, id + 1);
+        }
+        this.entities.put(id, entity);
+        return entity;
+    }
+
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        for (S entity : entities) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<T> findById(Integer id) {
+        return Optional.ofNullable(this.entities.get(id));
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return this.entities.containsKey(id);
+    }
+
+    @Override
+    public Iterable<T> findAll() {
+        return new ArrayList<>(this.entities.values());
+    }
+
+    @Override
+    public Iterable<T> findAllById(Iterable<Integer> ids) {
+        List<T> result = new ArrayList<>();
+        for (Integer id : ids) {
+            T entity = this.entities.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long count() {
+        return this.entities.size();
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        this.entities.remove(id);
+    }
+
+    @Override
+    public void delete(T entity) {
+        this.entities.remove(this.getId.apply(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Integer> ids) {
+        for (Integer id : ids) {
+            this.entities.remove(id);
+        }
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        for (T entity : entities) {
+            delete(entity);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        this.entities.clear();
+    }
+}
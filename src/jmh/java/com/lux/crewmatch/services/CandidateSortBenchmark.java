@@ -0,0 +1,61 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sorting candidates by seniority, with the CandidateComparator and with the packed keys of SeniorityOrder.
+ * Every invocation sorts a copy of the same shuffled pool.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CandidateSortBenchmark {
+
+    @Param({"1000", "20000"})
+    int candidateCount;
+
+    private List<Candidate> pool;
+
+    @Setup(Level.Trial)
+    public void createCandidates() {
+        this.pool = new WorkloadGenerator().candidates(this.candidateCount).actingRatio(0.0).generateCandidates();
+        Collections.shuffle(this.pool, new Random(42));
+    }
+
+    // Copying the pool is linear, so it adds little to the sort it is measured with
+    @Benchmark
+    public List<Candidate> sortWithComparator() {
+        List<Candidate> candidates = new ArrayList<>(this.pool);
+        candidates.sort(new CandidateComparator());
+        return candidates;
+    }
+
+    @Benchmark
+    public List<Candidate> sortWithSeniorityOrder() {
+        List<Candidate> candidates = new ArrayList<>(this.pool);
+        SeniorityOrder.sort(candidates);
+        return candidates;
+    }
+}
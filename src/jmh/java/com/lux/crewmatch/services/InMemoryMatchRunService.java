@@ -0,0 +1,24 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.InMemoryConfigRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+
+/**
+ * A MatchRunService over in-memory repositories. Loading is inherited, and flushing saves the changed entities
+ * without a persistence context. No config variables are stored, so runs use the default ranking policy.
+ */
+public class InMemoryMatchRunService extends MatchRunService {
+
+    public InMemoryMatchRunService(CandidateRepository candidateRepository, ProductionRepository productionRepository) {
+        this.candidateRepository = candidateRepository;
+        this.productionRepository = productionRepository;
+        this.configRepository = new InMemoryConfigRepository();
+    }
+
+    @Override
+    public void flush(MatchRun run) {
+        this.productionRepository.saveAll(run.getChangedProductions());
+        this.candidateRepository.saveAll(run.getChangedCandidates());
+    }
+}
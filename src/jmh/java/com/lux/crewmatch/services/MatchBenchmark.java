@@ -0,0 +1,104 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.repositories.InMemoryCandidateRepository;
+import com.lux.crewmatch.repositories.InMemoryProductionRepository;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the matchers end to end, from loading the run out of the repositories to saving the placements, against
+ * in-memory repositories. The candidates are generated once per trial, and every invocation starts by unassigning
+ * them and generating the productions again, which costs little next to the match itself.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchBenchmark {
+
+    @Param({"1000", "5000"})
+    int candidateCount;
+
+    @Param({"50"})
+    int productionCount;
+
+    @Param({"20"})
+    int rolesPerProduction;
+
+    // How strongly preferences concentrate on the most popular productions, where 0 spreads them evenly
+    @Param({"0.0", "1.0"})
+    double preferenceSkew;
+
+    private WorkloadGenerator generator;
+    private InMemoryCandidateRepository candidateRepository;
+
+    private final MatchService matchService = new MatchService();
+    private final WeightedMatchService weightedMatchService = new WeightedMatchService();
+
+    @Setup(Level.Trial)
+    public void createWorkload() {
+        this.generator = new WorkloadGenerator()
+                .candidates(this.candidateCount)
+                .productions(this.productionCount)
+                .slotsPerProduction(this.rolesPerProduction)
+                .preferenceSkew(this.preferenceSkew)
+                .actingRatio(0.0);
+        this.candidateRepository = new InMemoryCandidateRepository();
+        this.candidateRepository.saveAll(this.generator.generateCandidates());
+    }
+
+    // Helper method that restores the workload before a match. The candidates generated for the trial are unassigned
+    // in place, and only the productions, which are few, are generated again.
+    private void reset() {
+        for (Candidate candidate : this.candidateRepository.findAll()) {
+            candidate.setAssigned(false);
+            candidate.getAssignments().clear();
+        }
+        InMemoryProductionRepository productionRepository = new InMemoryProductionRepository();
+        productionRepository.saveAll(this.generator.generateProductions());
+        MatchRunService matchRunService = new InMemoryMatchRunService(this.candidateRepository, productionRepository);
+
+        this.matchService.candidateRepository = this.candidateRepository;
+        this.matchService.productionRepository = productionRepository;
+        this.matchService.matchRunService = matchRunService;
+
+        this.weightedMatchService.candidateRepository = this.candidateRepository;
+        this.weightedMatchService.productionRepository = productionRepository;
+        this.weightedMatchService.matchRunService = matchRunService;
+    }
+
+    @Benchmark
+    public ResponseEntity<String> match() {
+        reset();
+        return this.matchService.match();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> matchWithoutPreference() {
+        reset();
+        return this.matchService.matchWithoutPreference();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> weightedMatch() {
+        reset();
+        return this.weightedMatchService.weightedMatch();
+    }
+}
@@ -1,6 +1,7 @@
 package com.lux.crewmatch.controllers;
 
 import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.CrewAssignment;
 import com.lux.crewmatch.entities.Production;
 import com.lux.crewmatch.repositories.ProductionRepository;
 import com.lux.crewmatch.services.CSVHelper;
@@ -179,6 +180,8 @@ public class CandidateController {
      */
     @PostMapping("/add")
     public Candidate createNewCandidate(@RequestBody Candidate candidate) {
+        checkTimestamp(candidate);
+
         // First see if candidate exists already
         Optional<Candidate> candidateOptional = Optional.ofNullable(this.candidateRepository.findByName(candidate.getName()));
 
@@ -232,6 +235,8 @@ public class CandidateController {
      */
     @PutMapping("/update/{id}")
     public Candidate updateCandidateById(@PathVariable("id") Integer id, @RequestBody Candidate c) {
+        checkTimestamp(c);
+
         // Get the candidate from the repository.
         Optional<Candidate> candidateToUpdateOptional = this.candidateRepository.findById(id);
 
@@ -307,49 +312,35 @@ public class CandidateController {
      * @param candidateToDelete - The candidate whose assignments are to be updated.
      */
     private void deleteCandidateFromProduction(Candidate candidateToDelete) {
-        List<String> candidateProductions = candidateToDelete.getAssignedProduction();
-
-        // Lists to keep track of which productions need to be removed
-        List<Production> productionsList = new LinkedList<>();
-        List<String> rolesList = new LinkedList<>();
-
-        for (int i = 0; i < candidateProductions.size(); i++) {
-            Optional<Production> productionToRemoveOptional = Optional.ofNullable(this.productionRepository.findByName(candidateProductions.get(i)));
-
-            if (productionToRemoveOptional.isEmpty()) {
-                continue;
-            }
-
-            Production productionToRemove = productionToRemoveOptional.get();
-            productionsList.add(productionToRemove);
-
-            String roleToRemove = candidateToDelete.getAssignedRole().get(i);
-            rolesList.add(roleToRemove);
+        // Copy the assignments, as unassigning removes them from the candidate
+        for (CrewAssignment assignment : new ArrayList<>(candidateToDelete.getAssignments())) {
+            Production productionToRemove = assignment.getProduction();
+            String roleToRemove = assignment.getRole();
 
             // Update productions crew list
             List<String> prodMembers = new ArrayList<>(productionToRemove.getMembers());
             List<String> prodRoles = productionToRemove.getRoles();
-            List<Double> prodWeights = new ArrayList<>(productionToRemove.getRoleWeights());
 
-            for (int j = 0; j < productionToRemove.getMembers().size(); j++) {
+            for (int j = 0; j < prodMembers.size(); j++) {
                 if (prodMembers.get(j).equals(candidateToDelete.getName()) && prodRoles.get(j).equals(roleToRemove)) {
                     prodMembers.set(j, "");
-                    prodWeights.set(j, 1.0);
                 }
             }
             productionToRemove.setMembers(prodMembers);
-            productionToRemove.setRoleWeights(prodWeights);
-            productionToRemove.normalize();
             this.productionRepository.save(productionToRemove);
 
+            candidateToDelete.unassign(productionToRemove, roleToRemove);
         }
+    }
 
-        // Unassign all productions found
-        for (int i = 0; i < productionsList.size(); i++) {
-            try {
-                candidateToDelete.unassign(productionsList.get(i), rolesList.get(i));
-            } catch (Exception e) {
-            }
+    /**
+     * A helper method to reject candidates whose timestamp cannot be used to order them during a match.
+     * @param candidate - The candidate body provided in the request.
+     */
+    private void checkTimestamp(Candidate candidate) {
+        if (candidate.getTimestamp() != null && candidate.getTimestampMillis() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "The timestamp could not be read. Timestamps must be in the format " + Candidate.TIMESTAMP_FORMAT + ".");
         }
     }
 
@@ -2,6 +2,8 @@ package com.lux.crewmatch.controllers;
 
 import com.lux.crewmatch.entities.Configs;
 import com.lux.crewmatch.repositories.ConfigRepository;
+import com.lux.crewmatch.services.MatchConstraints;
+import com.lux.crewmatch.services.RankingPolicy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,10 +25,10 @@ public class ConfigController {
     @GetMapping("/getByName")
     public ResponseEntity<Configs> getConfigByName(@RequestParam(name = "name") String name) {
         Optional<Configs> configOptional = Optional.ofNullable(this.configRepository.findByName(name));
-        if (configOptional.isEmpty() && name.equals("maxCrewSize")) {
+        if (configOptional.isEmpty() && name.equals(MatchConstraints.MAX_CREW_SIZE)) {
             Configs config = new Configs();
             config.setName(name);
-            config.setValue(24);
+            config.setValue(MatchConstraints.DEFAULT_MAX_CREW_SIZE);
             return ResponseEntity.status(HttpStatus.OK).body(config);
         }
         if (configOptional.isEmpty() && name.equals("isRegistrationOpen")) {
@@ -45,6 +47,14 @@ public class ConfigController {
 
     @PostMapping("/update")
     public ResponseEntity<Configs> updateConfig(@RequestBody Configs config) {
+        // Ranking variables are checked here, as a match run cannot report them
+        if (config.getName() != null && config.getName().startsWith(RankingPolicy.RANK_PREFIX)) {
+            String error = RankingPolicy.validate(config.getName(), config.getValue());
+            if (error != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, error);
+            }
+        }
+
         // Update config variable if it already exists
         Optional<Configs> configOptional = Optional.ofNullable(this.configRepository.findByName(config.getName()));
         if (configOptional.isEmpty()) {
@@ -1,13 +1,27 @@
 package com.lux.crewmatch.controllers;
 
 import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.CrewAssignment;
 import com.lux.crewmatch.entities.SwapRequest;
 import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.CrewAssignmentRepository;
 import com.lux.crewmatch.repositories.ProductionRepository;
 import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.RoleSlotRepository;
 import com.lux.crewmatch.repositories.SwapRequestRepository;
 import com.lux.crewmatch.services.CSVService;
+import com.lux.crewmatch.services.ConstraintMatchService;
+import com.lux.crewmatch.services.IncrementalMatchService;
+import com.lux.crewmatch.services.MatchJob;
+import com.lux.crewmatch.services.MatchJobService;
+import com.lux.crewmatch.services.MatchPreview;
+import com.lux.crewmatch.services.MatchPreviewService;
 import com.lux.crewmatch.services.MatchService;
+import com.lux.crewmatch.services.MonteCarloMatchService;
+import com.lux.crewmatch.services.StableMatchService;
+import com.lux.crewmatch.services.SwapImprovementService;
+import com.lux.crewmatch.services.SwapImprover;
+import com.lux.crewmatch.services.WeightSweep;
 import com.lux.crewmatch.services.WeightedMatchService;
 import org.apache.coyote.Response;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +34,7 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.core.io.InputStreamResource;
 import com.lux.crewmatch.services.CSVHelper;
 
+import java.time.Instant;
 import java.util.*;
 
 @CrossOrigin
@@ -30,12 +45,39 @@ public class ProductionController {
     private final ProductionRepository productionRepository;
     private final CandidateRepository candidateRepository;
 
+    @Autowired
+    RoleSlotRepository roleSlotRepository;
+
+    @Autowired
+    CrewAssignmentRepository crewAssignmentRepository;
+
     @Autowired
     MatchService matchService;
 
     @Autowired
     WeightedMatchService weightedMatchService;
 
+    @Autowired
+    StableMatchService stableMatchService;
+
+    @Autowired
+    MonteCarloMatchService monteCarloMatchService;
+
+    @Autowired
+    SwapImprovementService swapImprovementService;
+
+    @Autowired
+    ConstraintMatchService constraintMatchService;
+
+    @Autowired
+    IncrementalMatchService incrementalMatchService;
+
+    @Autowired
+    MatchPreviewService matchPreviewService;
+
+    @Autowired
+    MatchJobService matchJobService;
+
     @Autowired
     CSVService fileService;
 
@@ -136,6 +178,17 @@ public class ProductionController {
         return roles.stream().toList();
     }
 
+    /**
+     * Gets the number of vacant slots of every role on every active production, counted in the database without
+     * loading any production.
+     * Accepts HTTP GET requests at the "./get/vacancies" API endpoint.
+     * @return - Returns a list of the vacancies of each role on each production, ordered by production and role.
+     */
+    @GetMapping("/get/vacancies")
+    public List<RoleSlotRepository.Vacancy> getVacancies() {
+        return this.roleSlotRepository.findActiveVacancies();
+    }
+
     /**
      * Exports the data of all production assignments to CSV format.
      * Accepts HTTP GET requests at the "./getCSV" API endpoint.
@@ -179,18 +232,20 @@ public class ProductionController {
 
     /**
      * Matches the candidates in the candidate repository to productions using MatchService.match().
+     * Throws a conflict exception if another match is still running.
      * Accepts HTTP GET requests at the "./match" API endpoint.
      * @return - Returns a ResponseEntity with a message of the format "X candidates have been matched to X productions."
      * if the request was successful, or an error if there are no candidates or no productions.
      */
     @GetMapping("/match")
     public ResponseEntity<String> matchCandidatesToProductions() {
-        return matchService.match();
+        return matchJobService.runExclusively("match", matchService::match);
     }
 
     /**
      * Matches candidates to productions using the MatchService.matchWithoutPreference() method. Does not strictly take
      * into account candidate preferences.
+     * Throws a conflict exception if another match is still running.
      * Accepts HTTP GET requests at "./matchNoPreference" API endpoint.
      * Primarily used for matching candidates whose preferences do not align with available spaces.
      * @return - Returns a ResponseEntity with a message of the format "X candidates have been matched to X productions."
@@ -198,18 +253,229 @@ public class ProductionController {
      */
     @GetMapping("/matchNoPreference")
     public ResponseEntity<String> matchCandidatesToProductionsNoPreferences() {
-        return matchService.matchWithoutPreference();
+        return matchJobService.runExclusively("matchNoPreference", matchService::matchWithoutPreference);
     }
 
     /**
      * Matches candidates to productions taking the role weightings into consideration.
+     * Throws a conflict exception if another match is still running.
      * Accepts HTTP GET requests at the "./weightedMatch" API endpoint.
      * @return - Returns a ResponseEntity with a message containing how many candidates were matched and how many
      * remain to be matched. Returns an error message if there are no candidates or no productions to match.
      */
     @GetMapping("/weightedMatch")
     public ResponseEntity<String> weightedMatchCandidatesToProductions() {
-        return weightedMatchService.weightedMatch();
+        return matchJobService.runExclusively("weightedMatch", weightedMatchService::weightedMatch);
+    }
+
+    /**
+     * Matches candidates to productions so that the total weight of all placements is maximized, rather than placing
+     * candidates one at a time in seniority order.
+     * Throws a conflict exception if another match is still running.
+     * Accepts HTTP GET requests at the "./optimalWeightedMatch" API endpoint.
+     * @return - Returns a ResponseEntity with a message containing how many candidates were matched and how many
+     * remain to be matched. Returns an error message if there are no candidates or no productions to match.
+     */
+    @GetMapping("/optimalWeightedMatch")
+    public ResponseEntity<String> optimalWeightedMatchCandidatesToProductions() {
+        return matchJobService.runExclusively("optimalWeightedMatch", weightedMatchService::optimalWeightedMatch);
+    }
+
+    /**
+     * Matches candidates to productions with a stable matching that respects both the candidates' preferences and the
+     * rankings of candidates set by each production lead.
+     * Throws a conflict exception if another match is still running.
+     * Accepts HTTP GET requests at the "./stableMatch" API endpoint.
+     * @return - Returns a ResponseEntity with a message containing how many candidates were matched and how many
+     * remain to be matched. Returns an error message if there are no candidates or no productions to match.
+     */
+    @GetMapping("/stableMatch")
+    public ResponseEntity<String> stableMatchCandidatesToProductions() {
+        return matchJobService.runExclusively("stableMatch", stableMatchService::stableMatch);
+    }
+
+    /**
+     * Matches candidates to productions by running the match many times with different orders among equally senior
+     * candidates, and saving the run that places the most candidates with the best preference satisfaction.
+     * Throws a conflict exception if another match is still running.
+     * Accepts HTTP GET requests at the "./monteCarloMatch" API endpoint.
+     * @param runs - The number of orders to try, at most 1024. Defaults to 32.
+     * @param seed - The seed the orders are generated from. The same seed and runs always give the same result.
+     * @return - Returns a ResponseEntity with a message containing how many candidates were matched, how many remain
+     * to be matched and which run was chosen. Returns an error message if there are no candidates or no productions
+     * to match.
+     */
+    @GetMapping("/monteCarloMatch")
+    public ResponseEntity<String> monteCarloMatchCandidatesToProductions(
+            @RequestParam(name = "runs", defaultValue = "" + MonteCarloMatchService.DEFAULT_RUNS) int runs,
+            @RequestParam(name = "seed", defaultValue = "" + MonteCarloMatchService.DEFAULT_SEED) long seed) {
+        return matchJobService.runExclusively("monteCarloMatch", () -> monteCarloMatchService.monteCarloMatch(runs, seed));
+    }
+
+    /**
+     * Runs the weighted match with every combination of the given candidate weight vectors and production weight
+     * scalings on in-memory copies of the roster, and compares the outcomes. Nothing is saved unless a combination is
+     * chosen, in which case its placements are saved. Throws a bad request exception if the grid is invalid.
+     * Throws a conflict exception if another match is still running.
+     * Accepts HTTP POST requests at the "./weightSweep" API endpoint.
+     * @param request - The candidate weight vectors, the production scalings by production name and optionally the
+     *                index of the combination to save, provided in the request body. Missing lists default to the
+     *                current weights of 4, 2 and 1 and no scaling.
+     * @return - Returns the placed count, first-choice rate and empty slots per production of each combination.
+     */
+    @PostMapping("/weightSweep")
+    public WeightSweep sweepMatchWeights(@RequestBody WeightSweep.Request request) {
+        return matchJobService.runExclusively("weightSweep", () -> weightedMatchService.weightSweep(request));
+    }
+
+    /**
+     * Matches candidates to productions under the staffing rules set in the config variables: the maximum crew size,
+     * the maximum number of productions per candidate, and the minimum and maximum headcount of each role. A greedy
+     * match is improved by a search that runs until the budget is used up, and the best result found is saved.
+     * Throws a conflict exception if another match is still running.
+     * Accepts HTTP GET requests at the "./constraintMatch" API endpoint.
+     * @param budgetMillis - How long the search may run in milliseconds. Defaults to 1000.
+     * @param seed - The seed of the search's random choices. Defaults to 0.
+     * @return - Returns a ResponseEntity with a message containing how many candidates were matched, how many remain
+     * to be matched and whether every minimum headcount was met. Returns an error message if there are no candidates
+     * or no productions to match.
+     */
+    @GetMapping("/constraintMatch")
+    public ResponseEntity<String> constraintMatchCandidatesToProductions(
+            @RequestParam(name = "budgetMillis", defaultValue = "" + ConstraintMatchService.DEFAULT_BUDGET_MILLIS) long budgetMillis,
+            @RequestParam(name = "seed", defaultValue = "" + ConstraintMatchService.DEFAULT_SEED) long seed) {
+        return matchJobService.runExclusively("constraintMatch", () -> constraintMatchService.constraintMatch(budgetMillis, seed));
+    }
+
+    /**
+     * Looks for exchanges between placed candidates that improve how well their slots fit their preferences, and
+     * either makes them or suggests them as swap requests. Throws a bad request exception if the mode or objective is
+     * not recognized.
+     * Throws a conflict exception if another match is still running.
+     * Accepts HTTP GET requests at the "./improve" API endpoint.
+     * @param mode - "suggest" to save the exchanges as pending swap requests, or "apply" to make them. Defaults to
+     *             "suggest".
+     * @param objective - "pareto" to only make exchanges that leave nobody worse off, or "total" to make any exchange
+     *                  that raises the total preference score. Defaults to "pareto".
+     * @param threeWay - Whether to also look for rotations between three candidates. Defaults to false.
+     * @return - Returns a ResponseEntity with a message containing how many swaps were made or suggested. Returns an
+     * error message if no candidates have been placed.
+     */
+    @GetMapping("/improve")
+    public ResponseEntity<String> improvePlacements(@RequestParam(name = "mode", defaultValue = "suggest") String mode,
+                                                    @RequestParam(name = "objective", defaultValue = "pareto") String objective,
+                                                    @RequestParam(name = "threeWay", defaultValue = "false") boolean threeWay) {
+        boolean apply = SwapImprovementService.applies(mode);
+        SwapImprover.Objective swapObjective = SwapImprovementService.objective(objective);
+        return matchJobService.runExclusively("improve",
+                () -> swapImprovementService.improve(apply, swapObjective, threeWay));
+    }
+
+    /**
+     * Places only the candidates that were created or changed since the previous incremental match, keeping the open
+     * slots of each production between runs. Intended to be called repeatedly while registration is open.
+     * Throws a conflict exception if another match is still running.
+     * Accepts HTTP GET requests at the "./incrementalMatch" API endpoint.
+     * @return - Returns a ResponseEntity with a message containing how many new candidates were matched and how many
+     * remain to be matched. Returns an error message if there are no productions to match.
+     */
+    @GetMapping("/incrementalMatch")
+    public ResponseEntity<String> incrementalMatchCandidatesToProductions() {
+        return matchJobService.runExclusively("incrementalMatch", incrementalMatchService::incrementalMatch);
+    }
+
+    /**
+     * Runs a match without saving anything and returns the slots each production would fill, along with a token that
+     * can be used to commit or discard the result.
+     * Throws a conflict exception if another match is still running.
+     * Accepts HTTP GET requests at the "./preview" API endpoint.
+     * @param strategy - The match endpoint to preview: "match", "matchNoPreference", "weightedMatch",
+     *                 "optimalWeightedMatch", "stableMatch", "monteCarloMatch" or "constraintMatch". Defaults to
+     *                 "match".
+     * @return - Returns the preview with its token, the message of the match and the changes per production.
+     */
+    @GetMapping("/preview")
+    public MatchPreview previewMatch(@RequestParam(name = "strategy", defaultValue = "match") String strategy) {
+        return matchJobService.runExclusively("preview", () -> matchPreviewService.preview(strategy));
+    }
+
+    /**
+     * Saves the changes of a match preview. Throws a conflict exception if any production or candidate in the preview
+     * has changed since it was created.
+     * Throws a conflict exception if another match is still running.
+     * Accepts HTTP PUT requests at the "./preview/{token}" API endpoint.
+     * @param token - The token of the preview provided as a path variable.
+     * @return - Returns a ResponseEntity with the message of the previewed match if the commit was successful.
+     */
+    @PutMapping("/preview/{token}")
+    public ResponseEntity<String> commitMatchPreview(@PathVariable("token") String token) {
+        return matchJobService.runExclusively("preview", () -> matchPreviewService.commit(token));
+    }
+
+    /**
+     * Discards a match preview. Throws a bad request exception if there is no preview with that token.
+     * Accepts HTTP DELETE requests at the "./preview/{token}" API endpoint.
+     * @param token - The token of the preview provided as a path variable.
+     * Returns a response code of OK if the preview was discarded.
+     */
+    @DeleteMapping("/preview/{token}")
+    @ResponseStatus(code = HttpStatus.OK, reason = "The match preview has been discarded.")
+    public void discardMatchPreview(@PathVariable("token") String token) {
+        if (!matchPreviewService.discard(token)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "There is no match preview with that token.");
+        }
+    }
+
+    /**
+     * Starts a match in the background. Throws a bad request exception if the strategy or one of its parameters is not
+     * recognized, and a conflict exception if another match is still running.
+     * Accepts HTTP POST requests at the "./jobs" API endpoint.
+     * @param strategy - The match endpoint to run: "match", "matchNoPreference", "weightedMatch",
+     *                 "optimalWeightedMatch", "stableMatch", "monteCarloMatch", "constraintMatch", "improve" or
+     *                 "weightSweep". Defaults to "match".
+     * @param budgetMillis - An optional time limit in milliseconds. Placements made before the limit are saved.
+     * @param parameters - The parameters of the endpoint by name, provided in the optional request body, e.g.
+     *                   {"runs": 64, "seed": 7} for "monteCarloMatch", {"mode": "apply"} for "improve" or the grid of
+     *                   "weightSweep". Parameters left out take the endpoint's defaults.
+     * @return - Returns the job that was started, with a response code of ACCEPTED.
+     */
+    @PostMapping("/jobs")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public MatchJob startMatchJob(@RequestParam(name = "strategy", defaultValue = "match") String strategy,
+                                  @RequestParam(name = "budgetMillis", required = false) Long budgetMillis,
+                                  @RequestBody(required = false) Map<String, Object> parameters) {
+        return matchJobService.start(strategy, budgetMillis, parameters != null ? parameters : Map.of());
+    }
+
+    /**
+     * Gets the progress of a match job. Throws a bad request exception if there is no job with that id.
+     * Accepts HTTP GET requests at the "./jobs/{id}" API endpoint.
+     * @param id - The id of the job provided as a path variable.
+     * @return - Returns the job with its state and the candidates processed and placed so far.
+     */
+    @GetMapping("/jobs/{id}")
+    public MatchJob getMatchJob(@PathVariable("id") String id) {
+        MatchJob job = matchJobService.get(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "There is no match job with that id.");
+        }
+        return job;
+    }
+
+    /**
+     * Cancels a match job. Nothing computed by a cancelled job is saved. Throws a bad request exception if there is
+     * no job with that id.
+     * Accepts HTTP DELETE requests at the "./jobs/{id}" API endpoint.
+     * @param id - The id of the job provided as a path variable.
+     * @return - Returns the job, which reports a state of CANCELLED once it has stopped.
+     */
+    @DeleteMapping("/jobs/{id}")
+    public MatchJob cancelMatchJob(@PathVariable("id") String id) {
+        MatchJob job = matchJobService.cancel(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "There is no match job with that id.");
+        }
+        return job;
     }
 
     /**
@@ -239,17 +505,16 @@ public class ProductionController {
      */
     @PostMapping("/create")
     public ResponseEntity<Production> createNewProduction(@RequestBody Production production) {
-        // See if provided lists are the same length
-        if (production.getMembers().size() != production.getRoles().size()) {
+        // See if provided lists are the same length. Both are views of the same slots, so the lengths the request gave
+        // are compared rather than the lists themselves.
+        if (!production.rolesMatchMembers() || production.getRoles().contains(null)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Roles and Members lists must be the same length.");
         }
         // Ensure that the weights list is provided
-        if (production.getRoleWeights() == null) {
+        if (production.getRoleWeights() == null || production.getRoleWeights().contains(null)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No weights have been provided for the roles list.");
         }
-        // Prior to saving, check if members in the production are not created candidates yet
         List<String> crew = production.getMembers();
-        validateCandidateSet(crew, production);
 
         // Capitalize all crew member names
         List<String> crewFormatted = new ArrayList<>(crew);
@@ -263,8 +528,13 @@ public class ProductionController {
 
         // Set archived field to false
         production.setArchived(false);
+        Production savedProduction = this.productionRepository.save(production);
+
+        // Check if members in the production are not created candidates yet. The production is saved first, as
+        // their assignments refer to it.
+        validateCandidateSet(crew, savedProduction);
 
-        return ResponseEntity.status(HttpStatus.OK).body(this.productionRepository.save(production));
+        return ResponseEntity.status(HttpStatus.OK).body(savedProduction);
     }
 
     /**
@@ -327,16 +597,10 @@ public class ProductionController {
 
             // Set all members who are currently assigned to unassigned
             // Purpose is to revalidate with the second iteration
-            for (int i = 0; i < productionToUpdate.getMembers().size(); i++) {
-                String member = productionToUpdate.getMembers().get(i);
-                // Pull candidate from repository
-                Optional<Candidate> candidateOptional = Optional.ofNullable(this.candidateRepository.findByName(member));
-                // Set assigned to false if candidate is present
-                if (candidateOptional.isPresent()) {
-                    Candidate candidate = candidateOptional.get();
-                    candidate.unassign(productionToUpdate, productionToUpdate.getRoles().get(i));
-                    this.candidateRepository.save(candidate);
-                }
+            for (CrewAssignment assignment : this.crewAssignmentRepository.findByProductionFetchCandidate(productionToUpdate)) {
+                Candidate candidate = assignment.getCandidate();
+                candidate.unassign(productionToUpdate, assignment.getRole());
+                this.candidateRepository.save(candidate);
             }
 
             List<String> members = new ArrayList<>(p.getMembers());
@@ -376,6 +640,9 @@ public class ProductionController {
         if (p.getRoleWeights() != null) {
             productionToUpdate.setRoleWeights(p.getRoleWeights());
         }
+        if (p.getRankings() != null) {
+            productionToUpdate.setRankings(p.getRankings());
+        }
 
         return this.productionRepository.save(productionToUpdate);
     }
@@ -413,15 +680,16 @@ public class ProductionController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The candidate is already assigned.");
         }
 
-        // Assign the candidate to the requested role if it is empty
-        List<String> productionMembers = new ArrayList<>(productionToUpdate.getMembers());
-        if (!productionMembers.get(roleIndex).equals("")) {
+        // Assign the candidate to the requested role if it is empty. The slot records the candidate's id, so
+        // candidates sharing a name are told apart.
+        if (roleIndex < 0 || roleIndex >= productionToUpdate.getRoles().size()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("There is no role at that index.");
+        }
+        if (!productionToUpdate.placeAt(candidateToAssign, roleIndex)) {
             return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("The desired role is already filled");
         }
-        productionMembers.set(roleIndex, candidateToAssign.getName());
 
         // Update production
-        productionToUpdate.setMembers(productionMembers);
         this.productionRepository.save(productionToUpdate);
 
         // Change candidate status to assigned
@@ -461,7 +729,7 @@ public class ProductionController {
         List<String> crewMembers = new ArrayList<>(production.getMembers());
 
         for (int i = 0; i < production.getMembers().size(); i++) {
-            if (production.getMembers().get(i).startsWith(candidate.getName()) && i == roleIndex) {
+            if (i == roleIndex && production.isMemberAt(i, candidate)) {
                 candidate.unassign(production, production.getRoles().get(i));
                 crewMembers.set(i, "");
             }
@@ -566,6 +834,7 @@ public class ProductionController {
         }
         Production productionToDelete = productionToDeleteOptional.get();
         deleteCandidatesFromProduction(productionToDelete);
+        this.crewAssignmentRepository.deleteByProduction(productionToDelete);
 
         this.productionRepository.delete(productionToDelete);
     }
@@ -575,21 +844,12 @@ public class ProductionController {
      * @param production - The production from which candidates are to be removed.
      */
     private void deleteCandidatesFromProduction(Production production) {
-        // Obtain candidates list to be updated
-        List<String> crewMembers = production.getMembers();
-
-        for (int i = 0; i < crewMembers.size(); i++) {
-            String member = crewMembers.get(i);
-
-            // Get the candidate from the repository
-            Optional<Candidate> candidateOptional = Optional.ofNullable(this.candidateRepository.findByName(member));
-            if (candidateOptional.isEmpty()) {
-                continue;
-            }
-            Candidate candidate = candidateOptional.get();
+        // Obtain the assignments to the production, with their candidates, in one query
+        for (CrewAssignment assignment : this.crewAssignmentRepository.findByProductionFetchCandidate(production)) {
+            Candidate candidate = assignment.getCandidate();
 
             // Unassign the candidate from their role on the production, so they are available for future matches
-            candidate.unassign(production, production.getRoles().get(i));
+            candidate.unassign(production, assignment.getRole());
             this.candidateRepository.save(candidate);
         }
     }
@@ -602,6 +862,9 @@ public class ProductionController {
     @DeleteMapping("/deleteAll")
     @ResponseStatus(code = HttpStatus.OK, reason = "All productions have been deleted.")
     public void deleteAllProductions() {
+        // Remove every assignment and unassign their candidates in two statements before the productions go
+        this.crewAssignmentRepository.deleteAllAssignments();
+        this.candidateRepository.unassignAll(Instant.now());
         this.productionRepository.deleteAll();
     }
 
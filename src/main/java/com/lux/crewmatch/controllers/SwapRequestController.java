@@ -1,9 +1,11 @@
 package com.lux.crewmatch.controllers;
 
 import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.CrewAssignment;
 import com.lux.crewmatch.entities.Production;
 import com.lux.crewmatch.entities.SwapRequest;
 import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.CrewAssignmentRepository;
 import com.lux.crewmatch.repositories.ProductionRepository;
 import com.lux.crewmatch.repositories.SwapRequestRepository;
 import org.springframework.http.HttpStatus;
@@ -23,6 +25,7 @@ public class SwapRequestController {
     private final SwapRequestRepository swapRequestRepository;
     private final ProductionRepository productionRepository;
     private final CandidateRepository candidateRepository;
+    private final CrewAssignmentRepository crewAssignmentRepository;
 
     /**
      * Creates an instance of the SwapRequestController for handling swap requests. Configures dependency injection so
@@ -30,11 +33,14 @@ public class SwapRequestController {
      * @param swapRequestRepository - An instance of the repository where swap requests are stored.
      * @param productionRepository - An instance of the repository where productions are stored.
      * @param candidateRepository - An instance of the repository where candidates are stored.
+     * @param crewAssignmentRepository - An instance of the repository where candidates' assignments are stored.
      */
-    public SwapRequestController(SwapRequestRepository swapRequestRepository, ProductionRepository productionRepository, CandidateRepository candidateRepository) {
+    public SwapRequestController(SwapRequestRepository swapRequestRepository, ProductionRepository productionRepository,
+                                 CandidateRepository candidateRepository, CrewAssignmentRepository crewAssignmentRepository) {
         this.swapRequestRepository = swapRequestRepository;
         this.productionRepository = productionRepository;
         this.candidateRepository = candidateRepository;
+        this.crewAssignmentRepository = crewAssignmentRepository;
     }
 
     /**
@@ -153,22 +159,26 @@ public class SwapRequestController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("One of the members is missing from its production.");
         }
 
+        // Find the candidates through their assignments before the members are swapped
+        Optional<CrewAssignment> assignment1Optional = this.crewAssignmentRepository
+                .findByProductionAndRoleAndCandidateName(productionOne, swapRequest.getRole1(), member1).stream().findFirst();
+        Optional<CrewAssignment> assignment2Optional = this.crewAssignmentRepository
+                .findByProductionAndRoleAndCandidateName(productionTwo, swapRequest.getRole2(), member2).stream().findFirst();
+
         // Swap members
         swapMembers(productionOne, member1, swapRequest.getRole1(), member2);
         swapMembers(productionTwo, member2, swapRequest.getRole2(), member1);
 
         // Update the roles that the candidates are assigned to
-        Optional<Candidate> candidate1Optional = Optional.ofNullable(this.candidateRepository.findByName(member1));
-        if (candidate1Optional.isPresent()) {
-            Candidate candidate1 = candidate1Optional.get();
+        if (assignment1Optional.isPresent()) {
+            Candidate candidate1 = assignment1Optional.get().getCandidate();
             candidate1.unassign(productionOne, swapRequest.getRole1());
             candidate1.assign(productionTwo, swapRequest.getRole2());
             this.candidateRepository.save(candidate1);
         }
 
-        Optional<Candidate> candidate2Optional = Optional.ofNullable(this.candidateRepository.findByName(member2));
-        if (candidate2Optional.isPresent()) {
-            Candidate candidate2 = candidate2Optional.get();
+        if (assignment2Optional.isPresent()) {
+            Candidate candidate2 = assignment2Optional.get().getCandidate();
             candidate2.unassign(productionTwo, swapRequest.getRole2());
             candidate2.assign(productionOne, swapRequest.getRole1());
             this.candidateRepository.save(candidate2);
@@ -1,14 +1,41 @@
 package com.lux.crewmatch.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.TimeZone;
 
 @Entity
-@Table(name = "CANDIDATES")
+@Table(name = "CANDIDATES", indexes = {
+        @Index(name = "IDX_CANDIDATES_POOL_RANK", columnList = "ASSIGNED, ACTING_INTEREST, SENIORITY_RANK, NAME"),
+        @Index(name = "IDX_CANDIDATES_NAME", columnList = "NAME")})
 public class Candidate {
 
+    // Format of the timestamps recorded by the interest form
+    public static final String TIMESTAMP_FORMAT = "M/d/yyyy H:mm:ss";
+
+    // Lenient, as the comparator used to parse them, so e.g. "2/30/2023" rolls over to March 2. Read in UTC so the
+    // stored ranks do not depend on the server's zone. SimpleDateFormat is not thread safe, so each thread has its own.
+    private static final ThreadLocal<SimpleDateFormat> TIMESTAMP_PARSER = ThreadLocal.withInitial(() -> {
+        SimpleDateFormat format = new SimpleDateFormat(TIMESTAMP_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    });
+
+    // Bits of the seniority rank, from the most significant: quarters in LUX, years at UW and timestamp seconds
+    private static final int RANK_QUARTER_BITS = 6;
+    private static final int RANK_YEAR_BITS = 5;
+    private static final int RANK_TIME_BITS = 32;
+
     // Fields
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,6 +53,10 @@ public class Candidate {
     @Column(name = "TIME")
     private String timestamp;
 
+    // The timestamp in epoch milliseconds, parsed once when the timestamp is set
+    @Column(name = "TIME_MILLIS")
+    private Long timestampMillis;
+
     @Column(name = "YEARS_IN_UW")
     private Integer yearsInUW;
 
@@ -35,7 +66,15 @@ public class Candidate {
     @Column(name = "ACTING_INTEREST")
     private Boolean actingInterest;
 
+    // Lower ranks are more senior. Kept up to date whenever the candidate is saved, so the pool can be read in
+    // seniority order straight from the index.
+    @Column(name = "SENIORITY_RANK")
+    private Long seniorityRank;
+
+    // The collections are loaded for every candidate a query returned at once, the first time one of them is read,
+    // so listing candidates costs one query per collection rather than one per candidate
     @ElementCollection
+    @Fetch(FetchMode.SUBSELECT)
     @CollectionTable(
             name = "CANDIDATE_PRODUCTIONS",
             joinColumns = @JoinColumn(name = "id", referencedColumnName = "id")
@@ -44,6 +83,7 @@ public class Candidate {
     private List<String> productions;
 
     @ElementCollection
+    @Fetch(FetchMode.SUBSELECT)
     @CollectionTable(
             name = "CANDIDATE_ROLES",
             joinColumns = @JoinColumn(name = "id", referencedColumnName = "id")
@@ -57,18 +97,58 @@ public class Candidate {
     @Column(name = "ASSIGNED")
     private Boolean assigned;
 
-    @ElementCollection
-    @Column(name = "ASSIGNED_PRODUCTION")
-    private List<String> assignedProduction;
+    // The productions and roles the candidate is assigned to
+    @OneToMany(mappedBy = "candidate", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Fetch(FetchMode.SUBSELECT)
+    private List<CrewAssignment> assignments = new ArrayList<>();
 
-    @ElementCollection
-    @Column(name = "ASSIGNED_ROLE")
-    private List<String> assignedRole;
+    @Column(name = "LAST_MODIFIED")
+    private Instant lastModified;
+
+    // Incremented on every change to the candidate
+    @Version
+    @Column(name = "VERSION", columnDefinition = "integer default 0")
+    private Integer version;
 
     public Candidate() {
 
     }
 
+    // Record when the candidate was created or last changed, so incremental matches can find new arrivals, and
+    // keep the seniority rank in line with the fields it is computed from
+    @PrePersist
+    @PreUpdate
+    private void updateLastModified() {
+        this.lastModified = Instant.now();
+        updateSeniorityRank();
+    }
+
+    // Recomputes the seniority rank, e.g. for candidates saved before the rank was stored
+    public void updateSeniorityRank() {
+        this.seniorityRank = this.quartersInLux == null || this.yearsInUW == null ? null
+                : seniorityRank(this.quartersInLux, this.yearsInUW, getTimestampMillis());
+    }
+
+    /**
+     * Computes the seniority rank of a candidate: quarters in LUX (descending), then years at UW (descending), then
+     * the timestamp to the second (ascending), as compared by the CandidateComparator. Values beyond the range of the
+     * rank are clamped to it.
+     * @param quartersInLux - The candidate's quarters in LUX.
+     * @param yearsInUW - The candidate's years at UW.
+     * @param timestampMillis - The candidate's timestamp in epoch milliseconds, or null to rank them last among equals.
+     * @return - Returns the rank, where lower ranks are more senior.
+     */
+    public static long seniorityRank(int quartersInLux, int yearsInUW, Long timestampMillis) {
+        long maxQuarters = (1L << RANK_QUARTER_BITS) - 1;
+        long maxYears = (1L << RANK_YEAR_BITS) - 1;
+        long maxTime = (1L << RANK_TIME_BITS) - 1;
+        long quarters = maxQuarters - Math.max(0, Math.min(maxQuarters, quartersInLux));
+        long years = maxYears - Math.max(0, Math.min(maxYears, yearsInUW));
+        long time = timestampMillis == null ? maxTime
+                : Math.max(0, Math.min(maxTime, Math.floorDiv(timestampMillis, 1000L)));
+        return quarters << (RANK_YEAR_BITS + RANK_TIME_BITS) | years << RANK_TIME_BITS | time;
+    }
+
     // Getters and setters
     public Integer getId() {
         return this.id;
@@ -108,6 +188,31 @@ public class Candidate {
 
     public void setTimestamp(String timestamp) {
         this.timestamp = timestamp;
+        this.timestampMillis = parseTimestamp(timestamp);
+    }
+
+    // Returns the timestamp in epoch milliseconds, or null if it is missing or cannot be read
+    public Long getTimestampMillis() {
+        if (this.timestampMillis == null && this.timestamp != null) {
+            // Candidates saved before the parsed timestamp was stored
+            return parseTimestamp(this.timestamp);
+        }
+        return this.timestampMillis;
+    }
+
+    /**
+     * Parses a timestamp in the format of the interest form, accepting everything SimpleDateFormat accepts leniently:
+     * out of range fields roll over into the next unit and any text after the seconds is ignored.
+     * @param timestamp - The timestamp to parse, e.g. "1/31/2023 14:05:09".
+     * @return - Returns the timestamp in epoch milliseconds, or null if it is missing or not in the expected format.
+     */
+    public static Long parseTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        ParsePosition position = new ParsePosition(0);
+        Date date = TIMESTAMP_PARSER.get().parse(timestamp.trim(), position);
+        return date != null ? date.getTime() : null;
     }
 
     public Integer getYearsInUW() {
@@ -166,55 +271,57 @@ public class Candidate {
         this.assigned = assigned;
     }
 
-    public List<String> getAssignedProduction() {
-        return assignedProduction;
+    @JsonIgnore
+    public List<CrewAssignment> getAssignments() {
+        return assignments;
     }
 
-    public void setAssignedProduction(List<String> assignedProduction) {
-        this.assignedProduction = assignedProduction;
+    // The names of the productions the candidate is assigned to, in the order of getAssignedRole().
+    // Assignments are made through the productions, so the list is not read from requests.
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public List<String> getAssignedProduction() {
+        List<String> names = new ArrayList<>();
+        for (CrewAssignment assignment : this.assignments) {
+            names.add(assignment.getProduction().getName());
+        }
+        return names;
     }
 
+    // The roles the candidate is assigned to, in the order of getAssignedProduction()
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     public List<String> getAssignedRole() {
-        return assignedRole;
+        List<String> roles = new ArrayList<>();
+        for (CrewAssignment assignment : this.assignments) {
+            roles.add(assignment.getRole());
+        }
+        return roles;
     }
 
-    public void setAssignedRole(List<String> assignedRole) {
-        this.assignedRole = assignedRole;
+    public Long getSeniorityRank() {
+        return seniorityRank;
     }
 
-    public void assign(Production production, String role) {
-        setAssigned(true);
-        if (getAssignedProduction() == null) {
-            setAssignedProduction(new ArrayList<>());
-        }
-        if (getAssignedRole() == null) {
-            setAssignedRole(new ArrayList<>());
-        }
-        getAssignedProduction().add(production.getName());
-        getAssignedRole().add(role);
+    public Instant getLastModified() {
+        return lastModified;
     }
 
-    public void unassign(Production production, String role) {
+    public Integer getVersion() {
+        return version;
+    }
 
-        List<String> newAssignedRoles = new ArrayList<>();
-        List<String> newAssignedProductions = new ArrayList<>();
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 
-        for (int i = 0; i < getAssignedRole().size(); i++) {
-            if (getAssignedRole().get(i).equals(role)
-                    && getAssignedProduction().get(i).equals(production.getName())) {
-                continue;
-            }
-            newAssignedRoles.add(getAssignedRole().get(i));
-            newAssignedProductions.add(getAssignedProduction().get(i));
-        }
+    public void assign(Production production, String role) {
+        setAssigned(true);
+        this.assignments.add(new CrewAssignment(this, production, role));
+    }
 
-        if (newAssignedRoles.size() == 0) {
-            setAssignedRole(null);
-            setAssignedProduction(null);
+    public void unassign(Production production, String role) {
+        this.assignments.removeIf(assignment -> assignment.isFor(production, role));
+        if (this.assignments.isEmpty()) {
             setAssigned(false);
-        } else {
-            setAssignedRole(newAssignedRoles);
-            setAssignedProduction(newAssignedProductions);
         }
     }
 
@@ -0,0 +1,65 @@
+package com.lux.crewmatch.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * The assignment of a candidate to a role on a production. Assignments refer to both by id, so they can be looked up
+ * with indexed joins and follow a production when it is renamed.
+ */
+@Entity
+@Table(name = "CREW_ASSIGNMENTS", indexes = {
+        @Index(name = "IDX_CREW_ASSIGNMENTS_CANDIDATE", columnList = "CANDIDATE_ID"),
+        @Index(name = "IDX_CREW_ASSIGNMENTS_PRODUCTION_ROLE", columnList = "PRODUCTION_ID, ROLE")
+})
+public class CrewAssignment {
+
+    // Fields
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "CANDIDATE_ID")
+    private Candidate candidate;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "PRODUCTION_ID")
+    private Production production;
+
+    @Column(name = "ROLE")
+    private String role;
+
+    public CrewAssignment() {
+
+    }
+
+    public CrewAssignment(Candidate candidate, Production production, String role) {
+        this.candidate = candidate;
+        this.production = production;
+        this.role = role;
+    }
+
+    // Returns true if this is an assignment to the role on the production
+    public boolean isFor(Production production, String role) {
+        boolean sameProduction = this.production == production
+                || (production.getId() != null && production.getId().equals(this.production.getId()));
+        return sameProduction && this.role.equals(role);
+    }
+
+    // Getters
+    public Integer getId() {
+        return id;
+    }
+
+    public Candidate getCandidate() {
+        return candidate;
+    }
+
+    public Production getProduction() {
+        return production;
+    }
+
+    public String getRole() {
+        return role;
+    }
+}
@@ -1,10 +1,18 @@
 package com.lux.crewmatch.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 @Entity
 @Table(name = "PRODUCTIONS")
@@ -18,29 +26,54 @@ public class Production {
     @Column(name = "NAME")
     private String name;
 
-    @ElementCollection
-    @CollectionTable(
-            name = "PRODUCTION_ROLES",
-            joinColumns = @JoinColumn(name = "id", referencedColumnName = "id")
-    )
-    @Column(name = "ROLES")
-    private List<String> roles;
+    // The crew slots in the order of the roles list. The roles, role weights and members lists are views of them.
+    // Like the rankings, they are loaded for every production a query returned at once.
+    @OneToMany(mappedBy = "production", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Fetch(FetchMode.SUBSELECT)
+    @OrderBy("position")
+    private List<RoleSlot> slots = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(
-            name = "PROD_ROLE_WEIGHTS",
-            joinColumns = @JoinColumn(name = "id", referencedColumnName = "id")
-    )
-    @Column(name = "ROLE_WEIGHTS")
-    private List<Double> roleWeights;
+    // The number of slots. Stored so that adding or removing slots changes the version of the production, which
+    // changes to the slots themselves do not.
+    @Column(name = "CREW_SIZE")
+    private Integer crewSize;
+
+    @Transient
+    private final List<String> roles = new SlotView<>(RoleSlot::getRole, RoleSlot::setRole);
+
+    @Transient
+    private final List<Double> roleWeights = new SlotView<>(RoleSlot::getWeight, RoleSlot::setWeight);
+
+    @Transient
+    private final List<String> members = new SlotView<>(RoleSlot::getMember, RoleSlot::setMember);
+
+    // Whether each list has been set or loaded, so a production read from a request tells the lists it was given
+    // from those left out
+    @Transient
+    private boolean hasRoles;
+
+    @Transient
+    private boolean hasRoleWeights;
+
+    @Transient
+    private boolean hasMembers;
+
+    // The lengths the roles and members lists were last set with. The slots keep one length for both, so these tell
+    // whether a request gave lists of different lengths.
+    @Transient
+    private int rolesLength;
+
+    @Transient
+    private int membersLength;
 
     @ElementCollection
+    @Fetch(FetchMode.SUBSELECT)
     @CollectionTable(
-            name = "PRODUCTION_MEMBERS",
+            name = "PRODUCTION_RANKINGS",
             joinColumns = @JoinColumn(name = "id", referencedColumnName = "id")
     )
-    @Column(name = "MEMBERS")
-    private List<String> members;
+    @Column(name = "RANKINGS")
+    private List<String> rankings;
 
     @Column(name = "PRODUCTION_LEAD")
     private String prodLead;
@@ -48,6 +81,22 @@ public class Production {
     @Column(name = "ARCHIVED")
     private Boolean archived;
 
+    // Incremented on every change to the production, including changes to its roster
+    @Version
+    @Column(name = "VERSION", columnDefinition = "integer default 0")
+    private Integer version;
+
+    // Slot indices of each role, and a queue of the vacant ones in ascending order. Built on first use and rebuilt
+    // whenever the roles or members lists are replaced.
+    @Transient
+    private Map<String, List<Integer>> roleSlots;
+
+    @Transient
+    private Map<String, ArrayDeque<Integer>> vacantSlots;
+
+    @Transient
+    private boolean indexed;
+
     public Production() {
 
     }
@@ -55,32 +104,158 @@ public class Production {
     // Place a candidate on the production
     // Returns true if the placement attempt was successful
     public boolean place(Candidate candidate, String intendedRole) {
-        // Attempt to place based on the roles
-        for (int i = 0; i < this.roles.size(); i++) {
-            if (intendedRole.equals(roles.get(i)) && members.get(i).equals("")) {
-                // String to store including pronouns
-                String name = candidate.getName();
-                // Temporarily disabling this feature until a fix is created.
-//                if (candidate.getPronouns() != null) {
-//                    name = name + " (" + candidate.getPronouns() + ")";
-//                }
-                // Add candidate
-                members.set(i, name);
+        // Attempt to place in the first vacant slot of the role
+        ArrayDeque<Integer> slots = vacantSlots(intendedRole);
+        if (slots == null || slots.isEmpty()) {
+            return false;
+        }
+        // Add candidate
+        this.slots.get(slots.pollFirst()).fill(candidate);
+        return true;
+    }
+
+    // Place a candidate in a particular slot of the production
+    // Returns true if the slot was vacant and the candidate was placed
+    public boolean placeAt(Candidate candidate, int index) {
+        if (index < 0 || index >= this.roles.size() || !members.get(index).equals("")) {
+            return false;
+        }
+        // The slot is dropped from its vacancy queue the next time the queue is read
+        this.slots.get(index).fill(candidate);
+        return true;
+    }
+
+    // Put a candidate in a particular slot of the production, replacing its member, e.g. to swap two members
+    public void replaceAt(int index, Candidate candidate) {
+        this.slots.get(index).fill(candidate);
+    }
+
+    // Remove a candidate from a role on the production
+    // Returns true if the candidate was found in that role and removed
+    public boolean vacate(Candidate candidate, String role) {
+        for (int i : slotsOf(role)) {
+            if (isMemberAt(i, candidate)) {
+                this.slots.get(i).fill(null);
+                // Rebuild the queues so the freed slot takes its place in index order
+                this.indexed = false;
                 return true;
             }
         }
         return false;
     }
 
-    // Normalize the weights of the role list
+    // Returns true if at least one slot of the role is vacant
+    public boolean hasVacancy(String role) {
+        ArrayDeque<Integer> slots = vacantSlots(role);
+        return slots != null && !slots.isEmpty();
+    }
+
+    // Returns the indices of every slot of the role in the roles list, in ascending order
+    public List<Integer> slotsOf(String role) {
+        index();
+        return this.roleSlots.getOrDefault(role, List.of());
+    }
+
+    // Returns the queue of vacant slots of the role, after dropping slots that have been filled since they were queued
+    private ArrayDeque<Integer> vacantSlots(String role) {
+        index();
+        ArrayDeque<Integer> slots = this.vacantSlots.get(role);
+        while (slots != null && !slots.isEmpty() && !members.get(slots.peekFirst()).equals("")) {
+            slots.pollFirst();
+        }
+        return slots;
+    }
+
+    // Builds the slot index if it is missing or was built from lists that have since been replaced
+    private void index() {
+        if (this.indexed) {
+            return;
+        }
+        Map<String, List<Integer>> slotsByRole = new HashMap<>();
+        Map<String, ArrayDeque<Integer>> vacantByRole = new HashMap<>();
+        for (int i = 0; i < this.roles.size(); i++) {
+            slotsByRole.computeIfAbsent(roles.get(i), role -> new ArrayList<>()).add(i);
+            if (members.get(i).equals("")) {
+                vacantByRole.computeIfAbsent(roles.get(i), role -> new ArrayDeque<>()).add(i);
+            }
+        }
+        this.roleSlots = slotsByRole;
+        this.vacantSlots = vacantByRole;
+        this.indexed = true;
+    }
+
+    // Normalize the weights of the role list, skipping slots without a weight
     public void normalize() {
         double total = 0;
         for (Double num : roleWeights) {
-            total += num;
+            total += num != null ? num : 0;
         }
         for (int i = 0; i < roleWeights.size(); i++) {
             // Set each position to the normed value
-            roleWeights.set(i, roleWeights.get(i) / total * 10);
+            if (roleWeights.get(i) != null) {
+                roleWeights.set(i, roleWeights.get(i) / total * 10);
+            }
+        }
+    }
+
+    // The total configured weight of the slots that are still vacant
+    public double vacantWeight() {
+        double total = 0;
+        for (RoleSlot slot : this.slots) {
+            if (slot.getMember().equals("") && slot.getWeight() != null) {
+                total += slot.getWeight();
+            }
+        }
+        return total;
+    }
+
+    // The weight of a vacant slot normalized against the other vacant slots, the way normalize() scales the weights
+    public static double effectiveWeight(double weight, double vacantWeight) {
+        return vacantWeight > 0 ? weight / vacantWeight * 10 : 0.0;
+    }
+
+    // Adds vacant slots until the production has at least the given number. Lists are copied by the setters before
+    // this is called, as they may be views of this production's own slots.
+    private void resize(int size) {
+        while (this.slots.size() < size) {
+            this.slots.add(new RoleSlot(this, this.slots.size()));
+        }
+        this.crewSize = this.slots.size();
+    }
+
+    @PostLoad
+    private void loaded() {
+        this.hasRoles = true;
+        this.hasRoleWeights = true;
+        this.hasMembers = true;
+    }
+
+    // A list view of one column of the slots. Setting an element updates that slot alone.
+    private class SlotView<T> extends AbstractList<T> implements RandomAccess {
+
+        private final Function<RoleSlot, T> getter;
+        private final BiConsumer<RoleSlot, T> setter;
+
+        SlotView(Function<RoleSlot, T> getter, BiConsumer<RoleSlot, T> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        public T get(int index) {
+            return this.getter.apply(slots.get(index));
+        }
+
+        @Override
+        public T set(int index, T element) {
+            T previous = get(index);
+            this.setter.accept(slots.get(index), element);
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return slots.size();
         }
     }
 
@@ -102,28 +277,88 @@ public class Production {
     }
 
     public List<String> getRoles() {
-        return roles;
+        return hasRoles ? roles : null;
     }
 
+    // Sets the role of every slot. The roles define the slots, so slots beyond the new list are removed.
     public void setRoles(List<String> roles) {
-        this.roles = roles;
+        List<String> values = new ArrayList<>(roles);
+        resize(values.size());
+        while (this.slots.size() > values.size()) {
+            this.slots.remove(this.slots.size() - 1);
+        }
+        for (int i = 0; i < values.size(); i++) {
+            this.slots.get(i).setRole(values.get(i));
+        }
+        this.crewSize = this.slots.size();
+        this.hasRoles = true;
+        this.rolesLength = values.size();
+        this.indexed = false;
     }
 
     public List<Double> getRoleWeights() {
-        return roleWeights;
+        return hasRoleWeights ? roleWeights : null;
     }
 
     public void setRoleWeights(List<Double> roleWeights) {
-        this.roleWeights = roleWeights;
+        List<Double> values = new ArrayList<>(roleWeights);
+        resize(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            this.slots.get(i).setWeight(values.get(i));
+        }
+        this.hasRoleWeights = true;
         this.normalize();
     }
 
     public List<String> getMembers() {
-        return members;
+        return hasMembers ? members : null;
     }
 
+    // Sets the member of every slot by name, keeping the member ids of slots whose member is unchanged
     public void setMembers(List<String> members) {
-        this.members = members;
+        List<String> values = new ArrayList<>(members);
+        resize(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            this.slots.get(i).setMember(values.get(i));
+        }
+        this.hasMembers = true;
+        this.membersLength = values.size();
+        this.indexed = false;
+    }
+
+    // Returns true if the roles and members lists have both been set or loaded, and were last set with the same
+    // number of elements
+    public boolean rolesMatchMembers() {
+        return this.hasRoles && this.hasMembers && this.rolesLength == this.membersLength;
+    }
+
+    // The id of the candidate holding a slot, or null if the slot is vacant or its member is only known by name
+    public Integer memberIdAt(int index) {
+        return this.slots.get(index).getMemberId();
+    }
+
+    // Returns true if the candidate holds a slot. Slots record the id of their member, so candidates sharing a name
+    // are told apart; only slots whose member is known by name alone are compared by name.
+    public boolean isMemberAt(int index, Candidate candidate) {
+        Integer memberId = memberIdAt(index);
+        return memberId != null ? memberId.equals(candidate.getId()) : members.get(index).equals(candidate.getName());
+    }
+
+    // The sum of the versions of every slot, which grows whenever a slot is filled, vacated or changed
+    public long slotVersions() {
+        long total = 0;
+        for (RoleSlot slot : this.slots) {
+            total += slot.getVersion() != null ? slot.getVersion() : 0;
+        }
+        return total;
+    }
+
+    public List<String> getRankings() {
+        return rankings;
+    }
+
+    public void setRankings(List<String> rankings) {
+        this.rankings = rankings;
     }
 
     public String getProdLead() {
@@ -141,4 +376,12 @@ public class Production {
     public void setArchived(Boolean archived) {
         this.archived = archived;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
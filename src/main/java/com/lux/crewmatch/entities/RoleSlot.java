@@ -0,0 +1,111 @@
+package com.lux.crewmatch.entities;
+
+import jakarta.persistence.*;
+
+import java.util.Objects;
+
+/**
+ * One slot of a production's crew: its role, the weight of that role and the candidate filling it. Each slot is its
+ * own row, so filling or vacating a slot updates that row alone instead of rewriting the production's crew lists.
+ */
+@Entity
+@Table(name = "ROLE_SLOTS", indexes = @Index(name = "IDX_ROLE_SLOTS_PRODUCTION_ROLE",
+        columnList = "PRODUCTION_ID, ROLE"))
+public class RoleSlot {
+
+    // Fields
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "PRODUCTION_ID")
+    private Production production;
+
+    // The index of the slot in the production's roles list
+    @Column(name = "POSITION")
+    private Integer position;
+
+    @Column(name = "ROLE")
+    private String role;
+
+    @Column(name = "ROLE_WEIGHT")
+    private Double weight;
+
+    // The name of the member, or an empty string if the slot is vacant
+    @Column(name = "MEMBER")
+    private String member = "";
+
+    // The id of the member, where the slot was filled with a known candidate
+    @Column(name = "MEMBER_ID")
+    private Integer memberId;
+
+    // Incremented whenever the slot changes, which the production's own version does not cover
+    @Version
+    @Column(name = "VERSION", columnDefinition = "integer default 0")
+    private Integer version;
+
+    public RoleSlot() {
+
+    }
+
+    public RoleSlot(Production production, int position) {
+        this.production = production;
+        this.position = position;
+    }
+
+    // Fill the slot with a candidate, or vacate it if the candidate is null
+    public void fill(Candidate candidate) {
+        this.member = candidate == null ? "" : candidate.getName();
+        this.memberId = candidate == null ? null : candidate.getId();
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public Production getProduction() {
+        return production;
+    }
+
+    public Integer getPosition() {
+        return position;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public Double getWeight() {
+        return weight;
+    }
+
+    public void setWeight(Double weight) {
+        this.weight = weight;
+    }
+
+    public String getMember() {
+        return member;
+    }
+
+    // Sets the member by name. The member id is kept only if the name is unchanged.
+    public void setMember(String member) {
+        if (!Objects.equals(this.member, member)) {
+            this.member = member;
+            this.memberId = null;
+        }
+    }
+
+    public Integer getMemberId() {
+        return memberId;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+}
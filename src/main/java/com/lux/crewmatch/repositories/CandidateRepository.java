@@ -1,9 +1,20 @@
 package com.lux.crewmatch.repositories;
 
 import com.lux.crewmatch.entities.Candidate;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Defines the CandidateRepository in which candidate entities are stored. Queries are structured according to JPA
@@ -20,5 +31,53 @@ public interface CandidateRepository extends CrudRepository<Candidate, Integer>
     List<Candidate> findByAssignedFalseAndProductionsContaining(String production);
     List<Candidate> findByAssignedFalseAndActingInterestTrueAndProductionsLike(String production);
     List<Candidate> findByAssignedFalseAndActingInterestFalseAndProductionsContaining(String production);
+    List<Candidate> findByAssignedFalseAndActingInterestFalseAndLastModifiedAfter(Instant time);
     Candidate findByName(String name);
+    List<Candidate> findBySeniorityRankIsNullAndIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+    long countByAssignedFalseAndActingInterestFalse();
+
+    // Streams the ids of the unassigned candidates interested in crew roles from most to least senior, reading the
+    // rank index a page of rows at a time. Ties on rank are broken by name, as in SeniorityOrder.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query("select c.id from Candidate c where c.assigned = false and c.actingInterest = false " +
+            "and c.seniorityRank is not null order by c.seniorityRank, c.name")
+    Stream<Integer> streamUnassignedIdsBySeniority();
+
+    // Loads a page of streamed candidates, one query per element collection used by the matchers
+    @Query("select c from Candidate c left join fetch c.productions where c.id in :ids")
+    List<Candidate> findByIdInFetchProductions(@Param("ids") Collection<Integer> ids);
+    @Query("select c from Candidate c left join fetch c.roles where c.id in :ids")
+    List<Candidate> findByIdInFetchRoles(@Param("ids") Collection<Integer> ids);
+    @Query("select distinct c from Candidate c left join fetch c.assignments where c.id in :ids")
+    List<Candidate> findByIdInFetchAssignments(@Param("ids") Collection<Integer> ids);
+
+    // Bulk loading queries for match runs. Each query initializes one element collection of every unassigned
+    // candidate, so a run needs one query per collection instead of one per candidate.
+    @Query("select c from Candidate c left join fetch c.productions " +
+            "where c.assigned = false and c.actingInterest = false")
+    List<Candidate> findUnassignedFetchProductions();
+    @Query("select c from Candidate c left join fetch c.roles " +
+            "where c.assigned = false and c.actingInterest = false")
+    List<Candidate> findUnassignedFetchRoles();
+    @Query("select distinct c from Candidate c left join fetch c.assignments " +
+            "where c.assigned = false and c.actingInterest = false")
+    List<Candidate> findUnassignedFetchAssignments();
+
+    // Bulk loading queries for the placed crew, used to improve the placements after a match.
+    @Query("select c from Candidate c left join fetch c.productions " +
+            "where c.assigned = true and c.actingInterest = false")
+    List<Candidate> findAssignedFetchProductions();
+    @Query("select c from Candidate c left join fetch c.roles " +
+            "where c.assigned = true and c.actingInterest = false")
+    List<Candidate> findAssignedFetchRoles();
+    @Query("select distinct c from Candidate c left join fetch c.assignments " +
+            "where c.assigned = true and c.actingInterest = false")
+    List<Candidate> findAssignedFetchAssignments();
+
+    // Marks every assigned candidate as unassigned in one statement, once all assignments have been removed
+    @Modifying
+    @Transactional
+    @Query("update Candidate c set c.assigned = false, c.version = c.version + 1, c.lastModified = :now " +
+            "where c.assigned = true")
+    int unassignAll(@Param("now") Instant now);
 }
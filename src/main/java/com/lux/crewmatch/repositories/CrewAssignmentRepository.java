@@ -0,0 +1,39 @@
+package com.lux.crewmatch.repositories;
+
+import com.lux.crewmatch.entities.CrewAssignment;
+import com.lux.crewmatch.entities.Production;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface CrewAssignmentRepository extends CrudRepository<CrewAssignment, Integer> {
+
+    // Every assignment to a production, with its candidate, in one query
+    @Query("select a from CrewAssignment a join fetch a.candidate where a.production = :production")
+    List<CrewAssignment> findByProductionFetchCandidate(@Param("production") Production production);
+
+    // The assignments of a member to a role on a production, found through the (production, role) index
+    @Query("select a from CrewAssignment a join fetch a.candidate c " +
+            "where a.production = :production and a.role = :role and c.name = :name")
+    List<CrewAssignment> findByProductionAndRoleAndCandidateName(@Param("production") Production production,
+                                                                 @Param("role") String role,
+                                                                 @Param("name") String name);
+
+    // Removes the assignments left on a production in one statement. Pending changes are flushed first, so
+    // candidates unassigned from the production are written before it is deleted.
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query("delete from CrewAssignment a where a.production = :production")
+    void deleteByProduction(@Param("production") Production production);
+
+    // Removes every assignment in one statement
+    @Modifying
+    @Transactional
+    @Query("delete from CrewAssignment a")
+    void deleteAllAssignments();
+
+}
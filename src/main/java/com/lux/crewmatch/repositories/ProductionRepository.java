@@ -1,14 +1,35 @@
 package com.lux.crewmatch.repositories;
 
 import com.lux.crewmatch.entities.Production;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import java.util.List;
 
 public interface ProductionRepository extends CrudRepository<Production, Integer> {
+
+    // Projection of the fields needed to detect changes to a production without loading it. Changes to the slots
+    // are covered by the sum of their versions.
+    interface ProductionVersion {
+        Integer getId();
+        String getName();
+        Integer getVersion();
+        Long getSlotVersions();
+    }
+
     Production findByName(String name);
     List<Production> findByProdLeadIsNullAndArchivedFalse();
     List<Production> findByProdLeadIsNotNull();
     List<Production> findByArchived(Boolean archived);
+    @Query("select p.id as id, p.name as name, p.version as version, coalesce(sum(s.version), 0) as slotVersions " +
+            "from Production p left join p.slots s where p.archived = false group by p.id, p.name, p.version")
+    List<ProductionVersion> findActiveVersions();
+
+    // Bulk loading queries for match runs. Each query initializes one collection of every active production, so a
+    // run needs one query per collection instead of one per production.
+    @Query("select distinct p from Production p left join fetch p.slots where p.archived = false")
+    List<Production> findActiveFetchSlots();
+    @Query("select p from Production p left join fetch p.rankings where p.archived = false")
+    List<Production> findActiveFetchRankings();
 
 }
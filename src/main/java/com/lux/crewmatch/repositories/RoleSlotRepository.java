@@ -0,0 +1,23 @@
+package com.lux.crewmatch.repositories;
+
+import com.lux.crewmatch.entities.RoleSlot;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface RoleSlotRepository extends CrudRepository<RoleSlot, Integer> {
+
+    // Projection of the number of vacant slots of one role on one production
+    interface Vacancy {
+        String getProduction();
+        String getRole();
+        Long getVacancies();
+    }
+
+    // Counts the vacant slots of every role on every active production, using the (production, role) index
+    @Query("select p.name as production, s.role as role, count(s) as vacancies from RoleSlot s join s.production p " +
+            "where p.archived = false and s.member = '' group by p.name, s.role order by p.name, s.role")
+    List<Vacancy> findActiveVacancies();
+
+}
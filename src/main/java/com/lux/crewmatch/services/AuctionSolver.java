@@ -0,0 +1,250 @@
+package com.lux.crewmatch.services;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Solves a sparse maximum weight bipartite matching between candidates and role slots with the auction algorithm.
+ *
+ * Candidates may stay unmatched, so the problem is made square before bidding: every candidate gets a private
+ * "opt-out" object worth nothing, and every slot gets a dummy bidder that can hold the slot itself or the opt-out of
+ * any candidate adjacent to it. A perfect assignment of the square problem is then exactly a matching of the
+ * original one with the same value.
+ *
+ * Scores of zero are kept, so a candidate whose only options add nothing is still placed rather than left out. To
+ * that end, every real edge is worth one more than its rounded score times a factor larger than the number of
+ * candidates, which makes the solver maximize the total score first and the number of placements second. Any remaining
+ * ties are broken by the fixed order of bidders and edges.
+ *
+ * Benefits are scaled to integers that are multiples of (n + 1), so the final epsilon of 1 makes the result optimal.
+ * Epsilon scaling keeps the number of bids low, and each round computes the bids of all unassigned bidders in
+ * parallel before resolving them in bidder order, so the result does not depend on the number of threads.
+ */
+public class AuctionSolver {
+
+    // Scores are rounded to this precision before solving
+    private static final double SCORE_SCALE = 1000.0;
+    // Rounds with fewer unassigned bidders than this compute their bids on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1024;
+    // Factor by which epsilon is reduced between scaling phases
+    private static final long EPSILON_FACTOR = 5;
+
+    // Square problem in CSR form
+    private final int numBidders;
+    private final int numObjects;
+    private final int[] edgeStart;
+    private final int[] edgeObject;
+    private final long[] edgeBenefit;
+
+    // Auction state
+    private final long[] prices;
+    private final int[] owner;
+    private final int[] assigned;
+    private final int[] bidObject;
+    private final long[] bidPrice;
+
+    // Original problem size
+    private final int numCandidates;
+    private final int numSlots;
+
+    /**
+     * Creates a solver for the given sparse candidate x slot score matrix.
+     * @param numCandidates - The number of candidates (rows).
+     * @param numSlots - The number of slots (columns).
+     * @param rowStart - The offsets of each candidate's edges in the edge arrays, of length numCandidates + 1.
+     * @param edgeSlot - The slot of every edge.
+     * @param edgeScore - The score of every edge. Edges with a negative score are ignored.
+     */
+    public AuctionSolver(int numCandidates, int numSlots, int[] rowStart, int[] edgeSlot, double[] edgeScore) {
+        this.numCandidates = numCandidates;
+        this.numSlots = numSlots;
+        this.numBidders = numCandidates + numSlots;
+        this.numObjects = numCandidates + numSlots;
+
+        long unit = this.numBidders + 1L;
+        long placementFactor = numCandidates + 1L;
+
+        // Count the edges of every slot to build the slot dummy adjacency
+        int[] slotDegree = new int[numSlots];
+        int realEdges = 0;
+        for (int e = 0; e < rowStart[numCandidates]; e++) {
+            if (edgeScore[e] >= 0) {
+                slotDegree[edgeSlot[e]]++;
+                realEdges++;
+            }
+        }
+
+        // Candidates: real edges plus their opt-out object. Slot dummies: the slot plus each adjacent opt-out.
+        this.edgeStart = new int[this.numBidders + 1];
+        this.edgeObject = new int[2 * realEdges + this.numBidders];
+        this.edgeBenefit = new long[this.edgeObject.length];
+
+        int pos = 0;
+        for (int c = 0; c < numCandidates; c++) {
+            this.edgeStart[c] = pos;
+            for (int e = rowStart[c]; e < rowStart[c + 1]; e++) {
+                if (edgeScore[e] >= 0) {
+                    this.edgeObject[pos] = edgeSlot[e];
+                    this.edgeBenefit[pos] = (Math.round(edgeScore[e] * SCORE_SCALE) * placementFactor + 1) * unit;
+                    pos++;
+                }
+            }
+            this.edgeObject[pos++] = numSlots + c;
+        }
+
+        int[] slotFill = new int[numSlots];
+        for (int s = 0; s < numSlots; s++) {
+            this.edgeStart[numCandidates + s] = pos;
+            this.edgeObject[pos] = s;
+            slotFill[s] = pos + 1;
+            pos += 1 + slotDegree[s];
+        }
+        this.edgeStart[this.numBidders] = pos;
+        for (int c = 0; c < numCandidates; c++) {
+            for (int e = rowStart[c]; e < rowStart[c + 1]; e++) {
+                if (edgeScore[e] >= 0) {
+                    this.edgeObject[slotFill[edgeSlot[e]]++] = numSlots + c;
+                }
+            }
+        }
+
+        this.prices = new long[this.numObjects];
+        this.owner = new int[this.numObjects];
+        this.assigned = new int[this.numBidders];
+        this.bidObject = new int[this.numBidders];
+        this.bidPrice = new long[this.numBidders];
+    }
+
+    /**
+     * Runs the auction to completion.
+     * @return - Returns the slot assigned to each candidate, or -1 for candidates left unmatched.
+     */
+    public int[] solve() {
+        int[] result = new int[this.numCandidates];
+        Arrays.fill(result, -1);
+        if (this.numCandidates == 0 || this.numSlots == 0) {
+            return result;
+        }
+
+        long maxBenefit = 0;
+        for (long benefit : this.edgeBenefit) {
+            maxBenefit = Math.max(maxBenefit, benefit);
+        }
+
+        long epsilon = Math.max(1, maxBenefit / EPSILON_FACTOR);
+        while (true) {
+            runPhase(epsilon);
+            if (epsilon == 1) {
+                break;
+            }
+            epsilon = Math.max(1, epsilon / EPSILON_FACTOR);
+        }
+
+        for (int c = 0; c < this.numCandidates; c++) {
+            if (this.assigned[c] < this.numSlots) {
+                result[c] = this.assigned[c];
+            }
+        }
+        return result;
+    }
+
+    // Runs one epsilon scaling phase: every bidder starts unassigned and prices carry over from the previous phase.
+    private void runPhase(long epsilon) {
+        Arrays.fill(this.owner, -1);
+        Arrays.fill(this.assigned, -1);
+
+        int[] unassigned = new int[this.numBidders];
+        for (int b = 0; b < this.numBidders; b++) {
+            unassigned[b] = b;
+        }
+        int numUnassigned = this.numBidders;
+
+        int[] winner = new int[this.numObjects];
+        long[] winningBid = new long[this.numObjects];
+        Arrays.fill(winner, -1);
+        int[] touched = new int[this.numObjects];
+        int[] next = new int[this.numBidders];
+        int[] nextUnassigned = new int[this.numBidders];
+
+        while (numUnassigned > 0) {
+            // Compute every bid against the prices at the start of the round
+            final int[] bidders = unassigned;
+            final int count = numUnassigned;
+            if (count >= PARALLEL_THRESHOLD) {
+                IntStream.range(0, count).parallel().forEach(k -> computeBid(bidders[k], epsilon));
+            } else {
+                for (int k = 0; k < count; k++) {
+                    computeBid(bidders[k], epsilon);
+                }
+            }
+
+            // Resolve bids in bidder order, keeping the highest bid for each object
+            int numTouched = 0;
+            for (int k = 0; k < count; k++) {
+                int bidder = bidders[k];
+                int object = this.bidObject[bidder];
+                if (winner[object] == -1) {
+                    touched[numTouched++] = object;
+                    winner[object] = bidder;
+                    winningBid[object] = this.bidPrice[bidder];
+                } else if (this.bidPrice[bidder] > winningBid[object]) {
+                    next[winner[object]] = 1;
+                    winner[object] = bidder;
+                    winningBid[object] = this.bidPrice[bidder];
+                } else {
+                    next[bidder] = 1;
+                }
+            }
+
+            // Award the objects and collect the bidders that are still unassigned
+            int numNext = 0;
+            for (int k = 0; k < count; k++) {
+                int bidder = bidders[k];
+                if (next[bidder] == 1) {
+                    next[bidder] = 0;
+                    nextUnassigned[numNext++] = bidder;
+                }
+            }
+            for (int t = 0; t < numTouched; t++) {
+                int object = touched[t];
+                int previousOwner = this.owner[object];
+                if (previousOwner != -1) {
+                    this.assigned[previousOwner] = -1;
+                    nextUnassigned[numNext++] = previousOwner;
+                }
+                this.owner[object] = winner[object];
+                this.assigned[winner[object]] = object;
+                this.prices[object] = winningBid[object];
+                winner[object] = -1;
+            }
+
+            // Swap the unassigned buffers for the next round
+            unassigned = nextUnassigned;
+            nextUnassigned = bidders;
+            numUnassigned = numNext;
+        }
+    }
+
+    // Finds the best object for a bidder and the price it is willing to pay for it.
+    private void computeBid(int bidder, long epsilon) {
+        int bestObject = -1;
+        long bestValue = Long.MIN_VALUE;
+        long secondValue = Long.MIN_VALUE;
+
+        for (int e = this.edgeStart[bidder]; e < this.edgeStart[bidder + 1]; e++) {
+            long value = this.edgeBenefit[e] - this.prices[this.edgeObject[e]];
+            if (value > bestValue) {
+                secondValue = bestValue;
+                bestValue = value;
+                bestObject = this.edgeObject[e];
+            } else if (value > secondValue) {
+                secondValue = value;
+            }
+        }
+
+        // A bidder with a single option only needs to outbid the current price
+        long increment = secondValue == Long.MIN_VALUE ? epsilon : bestValue - secondValue + epsilon;
+        this.bidObject[bidder] = bestObject;
+        this.bidPrice[bidder] = this.prices[bestObject] + increment;
+    }
+}
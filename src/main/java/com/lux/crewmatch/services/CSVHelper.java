@@ -62,6 +62,7 @@ public class CSVHelper {
                      CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
 
             List<Candidate> candidates = new ArrayList<>();
+            List<Long> unreadableTimestamps = new ArrayList<>();
             Iterable<CSVRecord> csvRecords = csvParser.getRecords();
 
             for (CSVRecord csvRecord : csvRecords) {
@@ -96,6 +97,11 @@ public class CSVHelper {
                     }
                     candidate.setAssigned(false);
 
+                    // Record rows whose timestamp cannot be used to order candidates, counting the header as row 1
+                    if (candidate.getTimestampMillis() == null) {
+                        unreadableTimestamps.add(csvRecord.getRecordNumber() + 1);
+                    }
+
                     // Add the candidate to the list
                     candidates.add(candidate);
                 } catch (Exception e) {
@@ -104,6 +110,12 @@ public class CSVHelper {
                 }
             }
 
+            // Reject the upload before anything is saved, rather than failing during a match
+            if (!unreadableTimestamps.isEmpty()) {
+                throw new RuntimeException("The timestamps on rows " + unreadableTimestamps + " could not be read. " +
+                        "Timestamps must be in the format " + Candidate.TIMESTAMP_FORMAT + ".");
+            }
+
             return candidates;
 
         } catch (IOException e) {
@@ -36,6 +36,9 @@ public class CSVService {
     @Autowired
     HeaderRepository headerRepository;
 
+    @Autowired
+    CandidateImportService candidateImportService;
+
     public InputStreamResource dataToCSV(Iterable<Production> productionsIterable) {
         List<Production> productions = new ArrayList<>();
 
@@ -84,22 +87,8 @@ public class CSVService {
 
             List<Candidate> candidates = CSVHelper.csvToCandidates(file.getInputStream(), headers.getCsvHeaders().toArray(new String[0]));
 
-            // Check if a candidate already exists, and if it does --> Update it
-            for (Candidate c : candidates) {
-                Optional<Candidate> candidateToUpdateOptional = Optional.ofNullable(candidateRepository.findByName(c.getName()));
-
-                if (candidateToUpdateOptional.isEmpty()) {
-                    // Save the candidate as-is if it does not exist yet
-                    candidateRepository.save(c);
-                } else {
-                    Candidate candidateToUpdate = candidateToUpdateOptional.get();
-
-                    // Update fields accordingly
-                    // As candidate was found by name, that parameter is not updated.
-                    updateCandidate(c, candidateToUpdate);
-                    candidateRepository.save(candidateToUpdate);
-                }
-            }
+            // Update the candidates that already exist and add the others, in bulk
+            candidateImportService.importCandidates(candidates);
         } catch (IOException e) {
             throw new RuntimeException("failed to store csv data: " + e.getMessage());
         }
@@ -135,12 +124,6 @@ public class CSVService {
         if (c.getProdPriority() != null) {
             candidateToUpdate.setProdPriority(c.getProdPriority());
         }
-        if (c.getAssignedProduction() != null) {
-            candidateToUpdate.setAssignedProduction(c.getAssignedProduction());
-        }
-        if (c.getAssignedRole() != null) {
-            candidateToUpdate.setAssignedRole(c.getAssignedRole());
-        }
 
     }
 
@@ -2,10 +2,7 @@ package com.lux.crewmatch.services;
 
 import com.lux.crewmatch.entities.Candidate;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Comparator;
-import java.util.Date;
 
 public class CandidateComparator implements Comparator<Candidate> {
 
@@ -26,12 +23,7 @@ public class CandidateComparator implements Comparator<Candidate> {
         }
 
         // Third, compare according to timestamp
-        try {
-            cmp = compareDate(o1.getTimestamp(), o2.getTimestamp());
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
-        }
-
+        cmp = Long.compare(timestampOf(o1), timestampOf(o2));
         if (cmp != 0) {
             return cmp;
         }
@@ -42,12 +34,9 @@ public class CandidateComparator implements Comparator<Candidate> {
         return cmp;
     }
 
-    // Helper method to parse timestamps and return an integer comparison.
-    private int compareDate(String timestamp1, String timestamp2) throws ParseException {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("M/d/yyyy H:mm:ss");
-        Date date1 = dateFormat.parse(timestamp1);
-        Date date2 = dateFormat.parse(timestamp2);
-
-        return date1.compareTo(date2);
+    // Helper method that returns the parsed timestamp, placing candidates whose timestamp cannot be read last.
+    static long timestampOf(Candidate candidate) {
+        Long timestamp = candidate.getTimestampMillis();
+        return timestamp != null ? timestamp : Long.MAX_VALUE;
     }
 }
@@ -0,0 +1,190 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Loads candidates into PostgreSQL with the COPY protocol. The rows are streamed into temporary staging tables, which
+ * are then merged into CANDIDATES, CANDIDATE_PRODUCTIONS and CANDIDATE_ROLES with a few set-based statements, so the
+ * number of round trips does not depend on the number of rows.
+ */
+public class CandidateCopyLoader {
+
+    // Bytes buffered before they are sent to the server
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    // The staging tables are dropped when the transaction ends
+    private static final String[] CREATE_STAGING_TABLES = {
+            "create temp table if not exists STAGED_CANDIDATES (ROW_NO integer, NAME varchar(255), " +
+                    "PRONOUNS varchar(255), EMAIL varchar(255), TIME varchar(255), TIME_MILLIS bigint, " +
+                    "YEARS_IN_UW integer, QUARTERS_IN_LUX integer, ACTING_INTEREST boolean, SENIORITY_RANK bigint, " +
+                    "PROD_PRIORITY boolean, ASSIGNED boolean, HAS_PRODUCTIONS boolean, HAS_ROLES boolean, ID integer) " +
+                    "on commit drop",
+            "create temp table if not exists STAGED_PRODUCTIONS (ROW_NO integer, POSITION integer, " +
+                    "VALUE varchar(255)) on commit drop",
+            "create temp table if not exists STAGED_ROLES (ROW_NO integer, POSITION integer, VALUE varchar(255)) " +
+                    "on commit drop",
+            "truncate STAGED_CANDIDATES, STAGED_PRODUCTIONS, STAGED_ROLES"
+    };
+
+    private static final String COPY_CANDIDATES = "copy STAGED_CANDIDATES (ROW_NO, NAME, PRONOUNS, EMAIL, TIME, " +
+            "TIME_MILLIS, YEARS_IN_UW, QUARTERS_IN_LUX, ACTING_INTEREST, SENIORITY_RANK, PROD_PRIORITY, ASSIGNED, " +
+            "HAS_PRODUCTIONS, HAS_ROLES) from stdin (format csv)";
+
+    // Matches each staged candidate to the stored candidate added first with the same name
+    private static final String RESOLVE_EXISTING = "update STAGED_CANDIDATES s set ID = " +
+            "(select min(c.ID) from CANDIDATES c where c.NAME = s.NAME)";
+
+    // Staged rows always have a timestamp, years and quarters, so only the other fields keep their stored values
+    // when the upload leaves them empty, as in CSVService.updateCandidate
+    private static final String UPDATE_EXISTING = "update CANDIDATES c set " +
+            "PRONOUNS = coalesce(s.PRONOUNS, c.PRONOUNS), EMAIL = coalesce(s.EMAIL, c.EMAIL), TIME = s.TIME, " +
+            "TIME_MILLIS = s.TIME_MILLIS, YEARS_IN_UW = s.YEARS_IN_UW, QUARTERS_IN_LUX = s.QUARTERS_IN_LUX, " +
+            "ACTING_INTEREST = coalesce(s.ACTING_INTEREST, c.ACTING_INTEREST), SENIORITY_RANK = s.SENIORITY_RANK, " +
+            "PROD_PRIORITY = coalesce(s.PROD_PRIORITY, c.PROD_PRIORITY), LAST_MODIFIED = ?, " +
+            "VERSION = coalesce(c.VERSION, 0) + 1 from STAGED_CANDIDATES s where c.ID = s.ID";
+
+    private static final String INSERT_NEW = "insert into CANDIDATES (NAME, PRONOUNS, EMAIL, TIME, TIME_MILLIS, " +
+            "YEARS_IN_UW, QUARTERS_IN_LUX, ACTING_INTEREST, SENIORITY_RANK, PROD_PRIORITY, ASSIGNED, LAST_MODIFIED, " +
+            "VERSION) select NAME, PRONOUNS, EMAIL, TIME, TIME_MILLIS, YEARS_IN_UW, QUARTERS_IN_LUX, ACTING_INTEREST, " +
+            "SENIORITY_RANK, PROD_PRIORITY, ASSIGNED, ?, 0 from STAGED_CANDIDATES where ID is null order by ROW_NO";
+
+    // Staged names are distinct, and new names were not stored before, so each matches exactly one new candidate
+    private static final String RESOLVE_NEW = "update STAGED_CANDIDATES s set ID = c.ID from CANDIDATES c " +
+            "where s.ID is null and c.NAME = s.NAME";
+
+    private CandidateCopyLoader() {
+
+    }
+
+    /**
+     * Determines whether candidates can be loaded by COPY. Every row needs a name to be matched on, and the fields
+     * its seniority rank is computed from so the rank can be computed before it is merged.
+     * @param candidates - The candidates to be loaded, with one row per name.
+     * @return - Returns a boolean indicating whether the candidates can be loaded.
+     */
+    public static boolean canLoad(List<Candidate> candidates) {
+        for (Candidate c : candidates) {
+            if (c.getName() == null || c.getTimestamp() == null || c.getYearsInUW() == null ||
+                    c.getQuartersInLux() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads candidates into the database, updating the stored candidates with the same names as
+     * CSVService.updateCandidate does and inserting the others.
+     * @param connection - A connection to the database, in the transaction of the import.
+     * @param candidates - The candidates to be loaded, with one row per name, accepted by canLoad.
+     * @param now - The time recorded as the candidates' last modification.
+     * @return - Returns false without changing anything if the database is not PostgreSQL, or true once the
+     * candidates are loaded.
+     * @throws SQLException - Thrown if a statement fails.
+     */
+    public static boolean load(Connection connection, List<Candidate> candidates, OffsetDateTime now)
+            throws SQLException {
+        if (!connection.isWrapperFor(PGConnection.class)) {
+            return false;
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : CREATE_STAGING_TABLES) {
+                statement.execute(sql);
+            }
+        }
+
+        copy(pgConnection, COPY_CANDIDATES, printer -> {
+            for (int i = 0; i < candidates.size(); i++) {
+                Candidate c = candidates.get(i);
+                c.updateSeniorityRank();
+                printer.printRecord(i, c.getName(), c.getPronouns(), c.getEmail(), c.getTimestamp(),
+                        c.getTimestampMillis(), c.getYearsInUW(), c.getQuartersInLux(), c.getActingInterest(),
+                        c.getSeniorityRank(), c.getProdPriority(), c.getAssigned(), c.getProductions() != null,
+                        c.getRoles() != null);
+            }
+        });
+        copyValues(pgConnection, "STAGED_PRODUCTIONS", candidates, Candidate::getProductions);
+        copyValues(pgConnection, "STAGED_ROLES", candidates, Candidate::getRoles);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("analyze STAGED_CANDIDATES");
+            statement.execute(RESOLVE_EXISTING);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_EXISTING)) {
+            statement.setObject(1, now);
+            statement.executeUpdate();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_NEW)) {
+            statement.setObject(1, now);
+            statement.executeUpdate();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(RESOLVE_NEW);
+            replaceCollection(statement, "CANDIDATE_PRODUCTIONS", "PRODUCTIONS", "STAGED_PRODUCTIONS",
+                    "HAS_PRODUCTIONS");
+            replaceCollection(statement, "CANDIDATE_ROLES", "ROLES", "STAGED_ROLES", "HAS_ROLES");
+        }
+        return true;
+    }
+
+    // Helper method that replaces the rows of an element collection table with the staged values, for the candidates
+    // whose list was provided, keeping the order of each list.
+    private static void replaceCollection(Statement statement, String table, String column, String stagingTable,
+                                          String provided) throws SQLException {
+        statement.execute("delete from " + table + " t using STAGED_CANDIDATES s where t.ID = s.ID and s." + provided);
+        statement.execute("insert into " + table + " (ID, " + column + ") select s.ID, v.VALUE from " + stagingTable +
+                " v join STAGED_CANDIDATES s on s.ROW_NO = v.ROW_NO order by v.ROW_NO, v.POSITION");
+    }
+
+    // Helper method that stages the values of one element collection of every candidate.
+    private static void copyValues(PGConnection pgConnection, String stagingTable, List<Candidate> candidates,
+                                   Function<Candidate, List<String>> values) throws SQLException {
+        copy(pgConnection, "copy " + stagingTable + " (ROW_NO, POSITION, VALUE) from stdin (format csv)", printer -> {
+            for (int i = 0; i < candidates.size(); i++) {
+                List<String> list = values.apply(candidates.get(i));
+                for (int j = 0; list != null && j < list.size(); j++) {
+                    printer.printRecord(i, j, list.get(j));
+                }
+            }
+        });
+    }
+
+    // Helper method that streams the records written by a writer to a COPY ... FROM STDIN statement. Nulls are sent
+    // unquoted and empty strings quoted, so the server can tell them apart.
+    private static void copy(PGConnection pgConnection, String sql, RecordWriter writer) throws SQLException {
+        try (CSVPrinter printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(
+                new PGCopyOutputStream(pgConnection, sql, COPY_BUFFER_SIZE), StandardCharsets.UTF_8)),
+                CSVFormat.POSTGRESQL_CSV)) {
+            writer.write(printer);
+        } catch (IOException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writes the records of a COPY statement
+    private interface RecordWriter {
+        void write(CSVPrinter printer) throws IOException;
+    }
+}
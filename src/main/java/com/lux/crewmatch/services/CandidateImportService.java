@@ -0,0 +1,293 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Writes the candidates read from an uploaded CSV in bulk. Existing candidates are found by name with a few IN
+ * queries, incoming rows are merged into them in memory as CSVService.updateCandidate does, and the inserts and
+ * updates are sent as JDBC batches, so an upload costs a number of round trips proportional to its size divided by
+ * the batch size rather than to its size.
+ */
+@Service
+public class CandidateImportService {
+
+    // Rows per JDBC batch, and names per IN query
+    private static final int BATCH_SIZE = 500;
+    private static final int LOOKUP_SIZE = 1000;
+
+    // Uploads with fewer rows than this are not worth setting up staging tables for
+    private static final int COPY_THRESHOLD = 1000;
+
+    private static final String CANDIDATE_COLUMNS = "ID, NAME, PRONOUNS, EMAIL, TIME, YEARS_IN_UW, QUARTERS_IN_LUX, " +
+            "ACTING_INTEREST, PROD_PRIORITY, ASSIGNED, VERSION";
+
+    private static final String INSERT_CANDIDATE = "insert into CANDIDATES (NAME, PRONOUNS, EMAIL, TIME, TIME_MILLIS, " +
+            "YEARS_IN_UW, QUARTERS_IN_LUX, ACTING_INTEREST, SENIORITY_RANK, PROD_PRIORITY, ASSIGNED, LAST_MODIFIED, " +
+            "VERSION) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String UPDATE_CANDIDATE = "update CANDIDATES set PRONOUNS = ?, EMAIL = ?, TIME = ?, " +
+            "TIME_MILLIS = ?, YEARS_IN_UW = ?, QUARTERS_IN_LUX = ?, ACTING_INTEREST = ?, SENIORITY_RANK = ?, " +
+            "PROD_PRIORITY = ?, ASSIGNED = ?, LAST_MODIFIED = ?, VERSION = VERSION + 1 where ID = ? and VERSION = ?";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * Saves the candidates of an upload in one transaction. A candidate whose name is already stored updates the
+     * stored candidate, and later rows with the same name update the earlier ones, as if the rows were saved one at a
+     * time. If several stored candidates share a name, the one added first is updated.
+     * Large uploads to PostgreSQL are loaded with the COPY protocol by the CandidateCopyLoader; all others, including
+     * every upload to H2, are written with batched statements.
+     * @param candidates - The candidates read from the upload, in the order of their rows.
+     */
+    @Transactional
+    public void importCandidates(List<Candidate> candidates) {
+        // Make sure pending changes to candidates are in the database before reading it directly
+        this.entityManager.flush();
+
+        List<Candidate> rows = mergeByName(candidates);
+        OffsetDateTime now = Instant.now().atOffset(ZoneOffset.UTC);
+
+        Boolean copied = rows.size() >= COPY_THRESHOLD && CandidateCopyLoader.canLoad(rows)
+                ? this.jdbcTemplate.execute((Connection connection) -> CandidateCopyLoader.load(connection, rows, now))
+                : Boolean.FALSE;
+        if (!Boolean.TRUE.equals(copied)) {
+            writeInBatches(rows, now);
+        }
+
+        // Entities already loaded in this transaction no longer reflect the database
+        this.entityManager.clear();
+    }
+
+    // Helper method that merges the rows sharing a name into the first of them, keeping the order of first rows.
+    private static List<Candidate> mergeByName(List<Candidate> candidates) {
+        Map<String, Candidate> merged = new LinkedHashMap<>();
+        for (Candidate c : candidates) {
+            Candidate candidateToUpdate = merged.putIfAbsent(c.getName(), c);
+            if (candidateToUpdate != null) {
+                CSVService.updateCandidate(c, candidateToUpdate);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    // Helper method that merges the rows into the stored candidates and writes them with batched statements.
+    private void writeInBatches(List<Candidate> rows, OffsetDateTime now) {
+        Map<String, Candidate> existing = findByNames(rows);
+
+        List<Candidate> inserts = new ArrayList<>();
+        List<Candidate> updates = new ArrayList<>();
+        for (Candidate c : rows) {
+            Candidate candidateToUpdate = existing.get(c.getName());
+            if (candidateToUpdate == null) {
+                inserts.add(c);
+            } else {
+                CSVService.updateCandidate(c, candidateToUpdate);
+                updates.add(candidateToUpdate);
+            }
+        }
+
+        insertCandidates(inserts, now);
+        updateCandidates(updates, now);
+        writeCollections(inserts, updates);
+    }
+
+    // Helper method that loads the stored candidates sharing a name with an incoming candidate, keyed by name. The
+    // element collections are not loaded and are left null.
+    private Map<String, Candidate> findByNames(List<Candidate> candidates) {
+        Set<String> distinctNames = new LinkedHashSet<>();
+        boolean unnamed = false;
+        for (Candidate c : candidates) {
+            if (c.getName() == null) {
+                unnamed = true;
+            } else {
+                distinctNames.add(c.getName());
+            }
+        }
+        List<String> names = new ArrayList<>(distinctNames);
+
+        List<Candidate> found = new ArrayList<>();
+        for (int i = 0; i < names.size(); i += LOOKUP_SIZE) {
+            List<String> chunk = names.subList(i, Math.min(names.size(), i + LOOKUP_SIZE));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            found.addAll(this.jdbcTemplate.query("select " + CANDIDATE_COLUMNS + " from CANDIDATES where NAME in (" +
+                    placeholders + ") order by ID", CANDIDATE_MAPPER, chunk.toArray()));
+        }
+        if (unnamed) {
+            found.addAll(this.jdbcTemplate.query("select " + CANDIDATE_COLUMNS + " from CANDIDATES " +
+                    "where NAME is null order by ID", CANDIDATE_MAPPER));
+        }
+
+        Map<String, Candidate> byName = new HashMap<>();
+        for (Candidate c : found) {
+            byName.putIfAbsent(c.getName(), c);
+        }
+        return byName;
+    }
+
+    // Helper method that inserts new candidates in batches and sets the ids generated for them.
+    private void insertCandidates(List<Candidate> inserts, OffsetDateTime now) {
+        for (int i = 0; i < inserts.size(); i += BATCH_SIZE) {
+            List<Candidate> batch = inserts.subList(i, Math.min(inserts.size(), i + BATCH_SIZE));
+            this.jdbcTemplate.execute((Connection connection) -> {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_CANDIDATE, new String[]{"id"})) {
+                    for (Candidate c : batch) {
+                        c.updateSeniorityRank();
+                        statement.setString(1, c.getName());
+                        setFields(statement, 2, c, now);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (Candidate c : batch) {
+                            if (!keys.next()) {
+                                throw new SQLException("The database did not return the ids of new candidates.");
+                            }
+                            c.setId(keys.getInt(1));
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+    }
+
+    // Helper method that updates stored candidates in batches, checking that none was changed since it was read.
+    private void updateCandidates(List<Candidate> updates, OffsetDateTime now) {
+        for (int i = 0; i < updates.size(); i += BATCH_SIZE) {
+            List<Candidate> batch = updates.subList(i, Math.min(updates.size(), i + BATCH_SIZE));
+            int[] counts = this.jdbcTemplate.execute((Connection connection) -> {
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_CANDIDATE)) {
+                    for (Candidate c : batch) {
+                        c.updateSeniorityRank();
+                        int index = setFields(statement, 1, c, now);
+                        statement.setInt(index, c.getId());
+                        statement.setInt(index + 1, c.getVersion() != null ? c.getVersion() : 0);
+                        statement.addBatch();
+                    }
+                    return statement.executeBatch();
+                }
+            });
+            for (int j = 0; counts != null && j < counts.length; j++) {
+                if (counts[j] == 0) {
+                    throw new ObjectOptimisticLockingFailureException(Candidate.class, batch.get(j).getId());
+                }
+            }
+        }
+    }
+
+    // Helper method that replaces the productions and roles of the written candidates which have them.
+    private void writeCollections(List<Candidate> inserts, List<Candidate> updates) {
+        List<Candidate> withProductions = new ArrayList<>();
+        List<Candidate> withRoles = new ArrayList<>();
+        for (Candidate c : updates) {
+            if (c.getProductions() != null) {
+                withProductions.add(c);
+            }
+            if (c.getRoles() != null) {
+                withRoles.add(c);
+            }
+        }
+        deleteRows("CANDIDATE_PRODUCTIONS", withProductions);
+        deleteRows("CANDIDATE_ROLES", withRoles);
+
+        for (Candidate c : inserts) {
+            if (c.getProductions() != null) {
+                withProductions.add(c);
+            }
+            if (c.getRoles() != null) {
+                withRoles.add(c);
+            }
+        }
+        insertRows("CANDIDATE_PRODUCTIONS", "PRODUCTIONS", withProductions, Candidate::getProductions);
+        insertRows("CANDIDATE_ROLES", "ROLES", withRoles, Candidate::getRoles);
+    }
+
+    // Helper method that deletes the rows of an element collection table belonging to candidates.
+    private void deleteRows(String table, List<Candidate> candidates) {
+        this.jdbcTemplate.batchUpdate("delete from " + table + " where ID = ?", candidates, BATCH_SIZE,
+                (statement, c) -> statement.setInt(1, c.getId()));
+    }
+
+    // Helper method that inserts the rows of an element collection table, in the order of each candidate's list.
+    private void insertRows(String table, String column, List<Candidate> candidates,
+                            Function<Candidate, List<String>> values) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Candidate c : candidates) {
+            for (String value : values.apply(c)) {
+                rows.add(new Object[]{c.getId(), value});
+            }
+        }
+        this.jdbcTemplate.batchUpdate("insert into " + table + " (ID, " + column + ") values (?, ?)", rows,
+                BATCH_SIZE, (statement, row) -> {
+                    statement.setInt(1, (Integer) row[0]);
+                    statement.setString(2, (String) row[1]);
+                });
+    }
+
+    // Helper method that binds the columns shared by inserts and updates, from PRONOUNS to LAST_MODIFIED.
+    // Returns the index of the next parameter.
+    private static int setFields(PreparedStatement statement, int index, Candidate c, OffsetDateTime now)
+            throws SQLException {
+        statement.setString(index++, c.getPronouns());
+        statement.setString(index++, c.getEmail());
+        statement.setString(index++, c.getTimestamp());
+        statement.setObject(index++, c.getTimestampMillis(), Types.BIGINT);
+        statement.setObject(index++, c.getYearsInUW(), Types.INTEGER);
+        statement.setObject(index++, c.getQuartersInLux(), Types.INTEGER);
+        statement.setObject(index++, c.getActingInterest(), Types.BOOLEAN);
+        statement.setObject(index++, c.getSeniorityRank(), Types.BIGINT);
+        statement.setObject(index++, c.getProdPriority(), Types.BOOLEAN);
+        statement.setObject(index++, c.getAssigned(), Types.BOOLEAN);
+        statement.setObject(index++, now);
+        return index;
+    }
+
+    // Reads a stored candidate without its element collections
+    private static final RowMapper<Candidate> CANDIDATE_MAPPER = (rs, rowNum) -> {
+        Candidate c = new Candidate();
+        c.setId(rs.getInt("ID"));
+        c.setName(rs.getString("NAME"));
+        c.setPronouns(rs.getString("PRONOUNS"));
+        c.setEmail(rs.getString("EMAIL"));
+        c.setTimestamp(rs.getString("TIME"));
+        c.setYearsInUW(rs.getObject("YEARS_IN_UW", Integer.class));
+        c.setQuartersInLux(rs.getObject("QUARTERS_IN_LUX", Integer.class));
+        c.setActingInterest(rs.getObject("ACTING_INTEREST", Boolean.class));
+        c.setProdPriority(rs.getObject("PROD_PRIORITY", Boolean.class));
+        c.setAssigned(rs.getObject("ASSIGNED", Boolean.class));
+        c.setVersion(rs.getObject("VERSION", Integer.class));
+        c.setProductions(null);
+        c.setRoles(null);
+        return c;
+    };
+}
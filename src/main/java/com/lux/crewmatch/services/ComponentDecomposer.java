@@ -0,0 +1,102 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the candidates of a match run into independent groups. Two candidates end up in the same group when they
+ * are connected through the productions they list, so no production is shared between groups and each group can be
+ * matched on its own without changing the result.
+ */
+public class ComponentDecomposer {
+
+    // Union-find over the productions of the run
+    private final int[] parent;
+    private final int[] size;
+    private final Map<String, Integer> productionIds = new HashMap<>();
+
+    /**
+     * Creates a decomposer over the productions of a match run.
+     * @param run - The match run whose productions form the nodes of the graph.
+     */
+    public ComponentDecomposer(MatchRun run) {
+        for (Production production : run.getProductions()) {
+            this.productionIds.put(production.getName(), this.productionIds.size());
+        }
+        this.parent = new int[this.productionIds.size()];
+        this.size = new int[this.productionIds.size()];
+        for (int i = 0; i < this.parent.length; i++) {
+            this.parent[i] = i;
+            this.size[i] = 1;
+        }
+    }
+
+    /**
+     * Groups candidates into connected components of the candidate-production graph. Candidates that list no
+     * production of the run cannot be placed by a preference based match and are left out.
+     * @param orderedCandidates - The candidates to group, in the order they should be matched.
+     * @return - Returns the components in order of their first candidate, each keeping the order of the input list.
+     */
+    public List<List<Candidate>> split(List<Candidate> orderedCandidates) {
+        // Connect all productions listed by the same candidate
+        for (Candidate candidate : orderedCandidates) {
+            int first = -1;
+            for (String production : candidate.getProductions()) {
+                Integer id = this.productionIds.get(production);
+                if (id == null) {
+                    continue;
+                }
+                if (first == -1) {
+                    first = id;
+                } else {
+                    union(first, id);
+                }
+            }
+        }
+
+        // Collect candidates by the root of their productions
+        Map<Integer, List<Candidate>> components = new LinkedHashMap<>();
+        for (Candidate candidate : orderedCandidates) {
+            for (String production : candidate.getProductions()) {
+                Integer id = this.productionIds.get(production);
+                if (id != null) {
+                    components.computeIfAbsent(find(id), root -> new ArrayList<>()).add(candidate);
+                    break;
+                }
+            }
+        }
+
+        return new ArrayList<>(components.values());
+    }
+
+    private int find(int node) {
+        while (this.parent[node] != node) {
+            // Path halving
+            this.parent[node] = this.parent[this.parent[node]];
+            node = this.parent[node];
+        }
+        return node;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        // Union by size
+        if (this.size[rootA] < this.size[rootB]) {
+            int temp = rootA;
+            rootA = rootB;
+            rootB = temp;
+        }
+        this.parent[rootB] = rootA;
+        this.size[rootA] += this.size[rootB];
+    }
+}
@@ -0,0 +1,222 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.ConfigRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches candidates to productions under the staffing rules of the config variables (see MatchConstraints), which
+ * the other matchers ignore. A greedy pass in seniority order gives a first solution, which the ConstraintSolver then
+ * improves for as long as the time budget allows. The best solution found is saved when the budget runs out.
+ */
+@Service
+public class ConstraintMatchService {
+
+    // Repositories
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Autowired
+    ConfigRepository configRepository;
+
+    @Autowired
+    MatchRunService matchRunService;
+
+    public static final long DEFAULT_BUDGET_MILLIS = 1000;
+    public static final long DEFAULT_SEED = 0;
+
+    // Weights of a candidate's first, second and third choice
+    private static final double[] CHOICE_WEIGHTS = {4.0, 2.0, 1.0};
+
+    // Method to match candidates to productions under the staffing rules
+    // Returns an http response stating how many candidates were matched and whether every minimum was met
+    @Transactional
+    public ResponseEntity<String> constraintMatch(long budgetMillis, long seed) {
+        MatchRun run = matchRunService.load();
+        ResponseEntity<String> response = constraintMatch(run, budgetMillis, seed);
+
+        // Write every placement back in one batch
+        matchRunService.flush(run);
+
+        return response;
+    }
+
+    // Runs the match with the default budget and seed, without writing anything back
+    public ResponseEntity<String> constraintMatch(MatchRun run) {
+        return constraintMatch(run, DEFAULT_BUDGET_MILLIS, DEFAULT_SEED);
+    }
+
+    // Runs the match on the entities of a match run in memory, without writing anything back
+    public ResponseEntity<String> constraintMatch(MatchRun run, long budgetMillis, long seed) {
+        List<Candidate> candidateList = run.getCandidates();
+        int totalCandidates = candidateList.size();
+
+        // Input processing:
+        // - If there are no candidates or no productions, the matching algorithm should not commence.
+        // - The budget and the productions per candidate may not be negative.
+        ResponseEntity<String> EXPECTATION_FAILED = getStringResponseEntity(candidateList);
+        if (EXPECTATION_FAILED != null) return EXPECTATION_FAILED;
+        if (budgetMillis < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The budget may not be negative.");
+        }
+        MatchConstraints constraints = MatchConstraints.from(this.configRepository.findAll());
+        if (constraints.getMaxProductionsPerCandidate() < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    "The number of productions per candidate may not be negative.");
+        }
+        List<Production> productions = new ArrayList<>(run.getProductions());
+        int numProductions = productions.size();
+
+        // A candidate can never hold more placements than they have distinct options, nor more than there are
+        // productions, so the configured limit is capped at both before it sizes the solver
+        int perCandidate = Math.min(constraints.getMaxProductionsPerCandidate(),
+                Math.min(numProductions, CHOICE_WEIGHTS.length * CHOICE_WEIGHTS.length));
+
+        // One program per (production, role) pair, with its headcount and limits
+        int[] crew = new int[numProductions];
+        List<Integer> programProductions = new ArrayList<>();
+        List<String> programRoles = new ArrayList<>();
+        List<int[]> programCounts = new ArrayList<>();
+        List<Map<String, Integer>> programIds = new ArrayList<>();
+        for (int p = 0; p < numProductions; p++) {
+            Production production = productions.get(p);
+            Map<String, Integer> ids = new HashMap<>();
+            for (int k = 0; k < production.getRoles().size(); k++) {
+                String role = production.getRoles().get(k);
+                Integer program = ids.get(role);
+                if (program == null) {
+                    program = programProductions.size();
+                    ids.put(role, program);
+                    programProductions.add(p);
+                    programRoles.add(role);
+                    programCounts.add(new int[2]);
+                }
+                // Slots, then filled slots
+                programCounts.get(program)[0]++;
+                if (!production.getMembers().get(k).equals("")) {
+                    programCounts.get(program)[1]++;
+                    crew[p]++;
+                }
+            }
+            programIds.add(ids);
+        }
+        int numPrograms = programProductions.size();
+        int[] programProduction = new int[numPrograms];
+        int[] programCount = new int[numPrograms];
+        int[] programLimit = new int[numPrograms];
+        int[] programMin = new int[numPrograms];
+        for (int g = 0; g < numPrograms; g++) {
+            int slots = programCounts.get(g)[0];
+            programProduction[g] = programProductions.get(g);
+            programCount[g] = programCounts.get(g)[1];
+            programLimit[g] = Math.min(slots, constraints.getMaxRole(programRoles.get(g)));
+            programMin[g] = Math.min(slots, constraints.getMinRole(programRoles.get(g)));
+        }
+
+        // Every candidate's choices in preference order, scored by their ranks
+        List<Candidate> orderedCandidates = new ArrayList<>();
+        for (Candidate candidate : candidateList) {
+            if (candidate.isComplete()) {
+                orderedCandidates.add(candidate);
+            }
+        }
+        SeniorityOrder.sort(orderedCandidates, run.getRankingPolicy());
+        Map<String, Integer> productionIds = new HashMap<>();
+        for (int p = 0; p < numProductions; p++) {
+            productionIds.put(productions.get(p).getName(), p);
+        }
+        int[] optionStart = new int[orderedCandidates.size() + 1];
+        List<Integer> optionPrograms = new ArrayList<>();
+        List<Double> optionScores = new ArrayList<>();
+        for (int c = 0; c < orderedCandidates.size(); c++) {
+            Candidate candidate = orderedCandidates.get(c);
+            int np = Math.min(candidate.getProductions().size(), CHOICE_WEIGHTS.length);
+            int nr = Math.min(candidate.getRoles().size(), CHOICE_WEIGHTS.length);
+            boolean prodPriority = candidate.getProdPriority();
+            for (int outer = 0; outer < (prodPriority ? np : nr); outer++) {
+                for (int inner = 0; inner < (prodPriority ? nr : np); inner++) {
+                    int i = prodPriority ? outer : inner;
+                    int j = prodPriority ? inner : outer;
+                    Integer p = productionIds.get(candidate.getProductions().get(i));
+                    Integer program = p == null ? null : programIds.get(p).get(candidate.getRoles().get(j));
+                    if (program == null || optionPrograms.subList(optionStart[c], optionPrograms.size()).contains(program)) {
+                        continue;
+                    }
+                    optionPrograms.add(program);
+                    // The rank of the preferred choice dominates, as in the optimal weighted match
+                    optionScores.add(CHOICE_WEIGHTS[outer] * CHOICE_WEIGHTS[0] + CHOICE_WEIGHTS[inner]);
+                }
+            }
+            optionStart[c + 1] = optionPrograms.size();
+        }
+        int[] optionProgram = new int[optionPrograms.size()];
+        double[] optionScore = new double[optionScores.size()];
+        for (int o = 0; o < optionProgram.length; o++) {
+            optionProgram[o] = optionPrograms.get(o);
+            optionScore[o] = optionScores.get(o);
+        }
+
+        // Seed greedily in seniority order, then search for as long as the budget allows
+        ConstraintSolver solver = new ConstraintSolver(crew, constraints.getMaxCrewSize(), programProduction,
+                programCount, programLimit, programMin, optionStart, optionProgram, optionScore,
+                perCandidate);
+        int[] order = new int[orderedCandidates.size()];
+        for (int c = 0; c < order.length; c++) {
+            order[c] = c;
+        }
+        // A seed stopped part way through only served the most senior candidates and was never searched, so it is
+        // discarded rather than placed
+        MatchProgress progress = run.getProgress();
+        if (!solver.seed(order, progress)) {
+            return ResponseEntity.status(HttpStatus.OK).body(
+                    "The match was stopped before a first solution was found, so no candidates have been placed. " +
+                            totalCandidates + " remain to be matched."
+            );
+        }
+        int rounds = solver.improve(TimeUnit.MILLISECONDS.toNanos(budgetMillis), progress, seed);
+
+        // Place every candidate in the first vacant slot of each of their programs
+        int numCandidatesAssigned = 0;
+        for (int c = 0; c < orderedCandidates.size(); c++) {
+            boolean placed = false;
+            for (int program : solver.programsOf(c)) {
+                placed |= run.place(orderedCandidates.get(c), productions.get(programProduction[program]),
+                        programRoles.get(program));
+            }
+            if (placed) {
+                numCandidatesAssigned++;
+            }
+        }
+
+        String staffing = solver.getShortfall() == 0
+                ? " Every staffing rule is met."
+                : " The minimum staffing of some roles could not be met, with " + solver.getShortfall() + " members short.";
+        return ResponseEntity.status(HttpStatus.OK).body(
+                numCandidatesAssigned + " have been placed on " + numProductions + " productions. " + (totalCandidates - numCandidatesAssigned) +
+                        " remain to be matched." + staffing + " The search kept " + rounds + " of its rounds."
+        );
+    }
+
+    // Helper method that determines if there are candidate and productions to be matched.
+    private ResponseEntity<String> getStringResponseEntity(List<Candidate> candidateList) {
+        if (candidateList.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("There are no candidates to match.");
+        }
+        if ((int) this.productionRepository.count() == 0) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("No productions have been created.");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,415 @@
+package com.lux.crewmatch.services;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Places candidates on (production, role) programs subject to staffing rules, with a greedy seed followed by large
+ * neighbourhood search.
+ *
+ * The rules are caps that are never broken (the crew size of each production, the headcount of each program and the
+ * number of productions per candidate) and minimum headcounts of programs, whose total shortfall is minimized. A
+ * solution is compared by its shortfall, then the number of candidates placed, then the number of placements, then
+ * the total score of the options used.
+ * Every cap and the shortfall are kept in counters that are updated as placements are added and removed, so checking
+ * or making a move takes O(1) time however large the run is.
+ *
+ * Each round of the search removes a few random placements, and when a minimum is short, the placements of a few
+ * candidates who listed the short program. The removed candidates and a sample of the others who listed the freed
+ * programs are then reinserted in random order, each taking their best option that is still allowed. A round that
+ * makes the solution worse is undone, so the current solution is always the best one found and can be returned as
+ * soon as the time budget runs out.
+ */
+public class ConstraintSolver {
+
+    // The most placements removed at random in one round, and the most candidates drawn from one program
+    private static final int DESTROY_SIZE = 8;
+    private static final int SAMPLE_SIZE = 3;
+    private static final int REPAIR_SIZE = DESTROY_SIZE * (SAMPLE_SIZE + 1) + SAMPLE_SIZE * (SAMPLE_SIZE + 2);
+    private static final double EPSILON = 1e-9;
+
+    // Productions and programs with their limits and current headcounts
+    private final int[] crew;
+    private final int[] crewLimit;
+    private final int[] programProduction;
+    private final int[] programCount;
+    private final int[] programLimit;
+    private final int[] programMin;
+    private final int[] minPrograms;
+
+    // Candidates with their options in CSR form, and the candidates who listed each program
+    private final int numCandidates;
+    private final int[] optionStart;
+    private final int[] optionProgram;
+    private final double[] optionScore;
+    private final int[] listedStart;
+    private final int[] listedCandidates;
+
+    // Placements: each candidate has room for perCandidate programs, and every used room is in a list for sampling
+    private final int perCandidate;
+    private final int[] candidateCount;
+    private final int[] placedProgram;
+    private final double[] placedScore;
+    private final int[] placements;
+    private final int[] placementPosition;
+    private int numPlacements;
+
+    // Objective
+    private int shortfall;
+    private int candidatesPlaced;
+    private double satisfaction;
+
+    // Undo log of the current round: the candidate, program and score of each change, negated candidates for adds
+    private int[] logCandidate = new int[64];
+    private int[] logProgram = new int[64];
+    private double[] logScore = new double[64];
+    private int logSize;
+
+    // Candidates already taken into the current round
+    private final int[] stamp;
+    private int round;
+
+    /**
+     * Creates a solver with no placements beyond the members productions already have.
+     * @param crew - The number of members each production already has.
+     * @param maxCrewSize - The most members any production may have.
+     * @param programProduction - The production of every program.
+     * @param programCount - The number of members each program already has.
+     * @param programLimit - The most members each program may have, counting its existing members.
+     * @param programMin - The fewest members each program should have, counting its existing members.
+     * @param optionStart - The offsets of each candidate's options in the option arrays, of length candidates + 1.
+     * @param optionProgram - The program of every option.
+     * @param optionScore - How much every option is worth to its candidate.
+     * @param perCandidate - The most programs a candidate may be placed in, each on a different production.
+     */
+    public ConstraintSolver(int[] crew, int maxCrewSize, int[] programProduction, int[] programCount,
+                            int[] programLimit, int[] programMin, int[] optionStart, int[] optionProgram,
+                            double[] optionScore, int perCandidate) {
+        this.crew = crew.clone();
+        this.crewLimit = new int[crew.length];
+        Arrays.fill(this.crewLimit, maxCrewSize);
+        this.programProduction = programProduction;
+        this.programCount = programCount.clone();
+        this.programLimit = programLimit;
+        this.programMin = programMin;
+
+        int numPrograms = programProduction.length;
+        int numMin = 0;
+        for (int g = 0; g < numPrograms; g++) {
+            this.shortfall += Math.max(0, programMin[g] - programCount[g]);
+            if (programMin[g] > 0) {
+                numMin++;
+            }
+        }
+        this.minPrograms = new int[numMin];
+        for (int g = 0, m = 0; g < numPrograms; g++) {
+            if (programMin[g] > 0) {
+                this.minPrograms[m++] = g;
+            }
+        }
+
+        this.numCandidates = optionStart.length - 1;
+        this.optionStart = optionStart;
+        this.optionProgram = optionProgram;
+        this.optionScore = optionScore;
+        this.listedStart = new int[numPrograms + 1];
+        for (int program : optionProgram) {
+            this.listedStart[program + 1]++;
+        }
+        for (int g = 0; g < numPrograms; g++) {
+            this.listedStart[g + 1] += this.listedStart[g];
+        }
+        this.listedCandidates = new int[optionProgram.length];
+        int[] next = Arrays.copyOf(this.listedStart, numPrograms);
+        for (int c = 0; c < this.numCandidates; c++) {
+            for (int o = optionStart[c]; o < optionStart[c + 1]; o++) {
+                this.listedCandidates[next[optionProgram[o]]++] = c;
+            }
+        }
+
+        this.perCandidate = Math.max(0, perCandidate);
+        this.candidateCount = new int[this.numCandidates];
+        this.placedProgram = new int[this.numCandidates * this.perCandidate];
+        Arrays.fill(this.placedProgram, -1);
+        this.placedScore = new double[this.placedProgram.length];
+        this.placements = new int[this.placedProgram.length];
+        this.placementPosition = new int[this.placedProgram.length];
+        this.stamp = new int[this.numCandidates];
+    }
+
+    /**
+     * Places candidates greedily, one placement per candidate per pass in the given order, each taking their best
+     * allowed option, preferring options that make up a shortfall.
+     * @param order - The indices of the candidates in the order they choose.
+     * @param progress - The progress of the run, reported after every candidate of the first pass.
+     * @return - Returns true if every pass finished, or false if the run was stopped part way through, leaving a seed
+     * that favours the candidates who chose first.
+     */
+    public boolean seed(int[] order, MatchProgress progress) {
+        for (int pass = 0; pass < this.perCandidate; pass++) {
+            for (int c : order) {
+                boolean placed = this.candidateCount[c] == pass && insertBest(c);
+                // Nothing placed by the seed is ever undone
+                this.logSize = 0;
+                if (pass == 0 && !progress.advance(1, placed ? 1 : 0)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Improves the solution by large neighbourhood search until the time budget runs out or the run is stopped.
+     * @param budgetNanos - How long to search for.
+     * @param progress - The progress of the run, which may stop the search early.
+     * @param seed - The seed of the random choices, so equal budgets that allow the same rounds give the same result.
+     * @return - Returns the number of rounds that were kept.
+     */
+    public int improve(long budgetNanos, MatchProgress progress, long seed) {
+        Random random = new Random(seed);
+        long deadline = System.nanoTime() + budgetNanos;
+        int[] repair = new int[REPAIR_SIZE];
+        int kept = 0;
+        while (System.nanoTime() < deadline && progress.shouldContinue()) {
+            if (this.perCandidate == 0 || (this.numPlacements == 0 && this.shortfall == 0)) {
+                break;
+            }
+            int beforeShortfall = this.shortfall;
+            int beforeCandidates = this.candidatesPlaced;
+            int beforePlaced = this.numPlacements;
+            double beforeSatisfaction = this.satisfaction;
+            this.logSize = 0;
+            this.round++;
+            int size = 0;
+
+            // Destroy a few random placements, taking their candidates and others who listed the freed programs
+            int removals = this.numPlacements == 0 ? 0 : 1 + random.nextInt(Math.min(DESTROY_SIZE, this.numPlacements));
+            for (int r = 0; r < removals; r++) {
+                int key = this.placements[random.nextInt(this.numPlacements)];
+                int program = this.placedProgram[key];
+                size = take(repair, size, key / this.perCandidate);
+                remove(key);
+                size = sample(repair, size, program, random);
+            }
+
+            // Free a few candidates who listed a program that is short of its minimum
+            if (this.shortfall > 0 && this.minPrograms.length > 0) {
+                int program = this.minPrograms[random.nextInt(this.minPrograms.length)];
+                if (this.programCount[program] < this.programMin[program]) {
+                    int start = size;
+                    size = sample(repair, size, program, random);
+                    for (int i = start; i < size; i++) {
+                        int c = repair[i];
+                        if (this.candidateCount[c] == this.perCandidate) {
+                            int key = c * this.perCandidate + random.nextInt(this.perCandidate);
+                            int freed = this.placedProgram[key];
+                            remove(key);
+                            size = sample(repair, size, freed, random);
+                        }
+                    }
+                }
+            }
+
+            // Repair in random order
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = repair[i];
+                repair[i] = repair[j];
+                repair[j] = swap;
+            }
+            for (int i = 0; i < size; i++) {
+                insertBest(repair[i]);
+            }
+
+            if (compare(beforeShortfall, beforeCandidates, beforePlaced, beforeSatisfaction) < 0) {
+                undo();
+            } else {
+                kept++;
+            }
+        }
+        this.logSize = 0;
+        return kept;
+    }
+
+    public int getShortfall() {
+        return this.shortfall;
+    }
+
+    public int getCandidatesPlaced() {
+        return this.candidatesPlaced;
+    }
+
+    public int getPlaced() {
+        return this.numPlacements;
+    }
+
+    public double getSatisfaction() {
+        return this.satisfaction;
+    }
+
+    /**
+     * Lists the programs a candidate has been placed in.
+     * @param c - The index of the candidate.
+     * @return - Returns the programs, in no particular order.
+     */
+    public int[] programsOf(int c) {
+        int[] programs = new int[this.candidateCount[c]];
+        int n = 0;
+        for (int k = c * this.perCandidate; k < (c + 1) * this.perCandidate; k++) {
+            if (this.placedProgram[k] != -1) {
+                programs[n++] = this.placedProgram[k];
+            }
+        }
+        return programs;
+    }
+
+    // Compares the current solution to an earlier one: negative if it is worse, positive if it is better
+    private int compare(int otherShortfall, int otherCandidates, int otherPlaced, double otherSatisfaction) {
+        if (this.shortfall != otherShortfall) {
+            return this.shortfall < otherShortfall ? 1 : -1;
+        }
+        if (this.candidatesPlaced != otherCandidates) {
+            return this.candidatesPlaced > otherCandidates ? 1 : -1;
+        }
+        if (this.numPlacements != otherPlaced) {
+            return this.numPlacements > otherPlaced ? 1 : -1;
+        }
+        if (Math.abs(this.satisfaction - otherSatisfaction) > EPSILON) {
+            return this.satisfaction > otherSatisfaction ? 1 : -1;
+        }
+        return 0;
+    }
+
+    // Adds a candidate to the round's repair list unless they are already in it
+    private int take(int[] repair, int size, int c) {
+        if (this.stamp[c] == this.round || size == repair.length) {
+            return size;
+        }
+        this.stamp[c] = this.round;
+        repair[size] = c;
+        return size + 1;
+    }
+
+    // Adds a few random candidates who listed a program to the round's repair list
+    private int sample(int[] repair, int size, int program, Random random) {
+        int listed = this.listedStart[program + 1] - this.listedStart[program];
+        for (int s = 0; s < SAMPLE_SIZE && listed > 0; s++) {
+            size = take(repair, size, this.listedCandidates[this.listedStart[program] + random.nextInt(listed)]);
+        }
+        return size;
+    }
+
+    // Places a candidate in their best allowed option, preferring one that makes up a shortfall, then the highest
+    // score, then the earliest listed. Returns false if no option is allowed.
+    private boolean insertBest(int c) {
+        if (this.candidateCount[c] >= this.perCandidate) {
+            return false;
+        }
+        int best = -1;
+        boolean bestFills = false;
+        for (int o = this.optionStart[c]; o < this.optionStart[c + 1]; o++) {
+            int program = this.optionProgram[o];
+            if (!allowed(c, program)) {
+                continue;
+            }
+            boolean fills = this.programCount[program] < this.programMin[program];
+            if (best == -1 || (fills && !bestFills)
+                    || (fills == bestFills && this.optionScore[o] > this.optionScore[best] + EPSILON)) {
+                best = o;
+                bestFills = fills;
+            }
+        }
+        if (best == -1) {
+            return false;
+        }
+        add(c, this.optionProgram[best], this.optionScore[best]);
+        return true;
+    }
+
+    // Checks every cap for one more placement in O(1), besides the candidate's own few placements
+    private boolean allowed(int c, int program) {
+        int p = this.programProduction[program];
+        if (this.candidateCount[c] >= this.perCandidate || this.crew[p] >= this.crewLimit[p]
+                || this.programCount[program] >= this.programLimit[program]) {
+            return false;
+        }
+        for (int k = c * this.perCandidate; k < (c + 1) * this.perCandidate; k++) {
+            if (this.placedProgram[k] != -1 && this.programProduction[this.placedProgram[k]] == p) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(int c, int program, double score) {
+        int key = c * this.perCandidate;
+        while (this.placedProgram[key] != -1) {
+            key++;
+        }
+        this.placedProgram[key] = program;
+        this.placedScore[key] = score;
+        this.placementPosition[key] = this.numPlacements;
+        this.placements[this.numPlacements++] = key;
+        if (this.candidateCount[c]++ == 0) {
+            this.candidatesPlaced++;
+        }
+        this.crew[this.programProduction[program]]++;
+        if (this.programCount[program]++ < this.programMin[program]) {
+            this.shortfall--;
+        }
+        this.satisfaction += score;
+        log(-c - 1, program, score);
+    }
+
+    private void remove(int key) {
+        int c = key / this.perCandidate;
+        int program = this.placedProgram[key];
+        double score = this.placedScore[key];
+        this.placedProgram[key] = -1;
+        int last = this.placements[--this.numPlacements];
+        this.placements[this.placementPosition[key]] = last;
+        this.placementPosition[last] = this.placementPosition[key];
+        if (--this.candidateCount[c] == 0) {
+            this.candidatesPlaced--;
+        }
+        this.crew[this.programProduction[program]]--;
+        if (--this.programCount[program] < this.programMin[program]) {
+            this.shortfall++;
+        }
+        this.satisfaction -= score;
+        log(c, program, score);
+    }
+
+    private void log(int c, int program, double score) {
+        if (this.logSize == this.logCandidate.length) {
+            this.logCandidate = Arrays.copyOf(this.logCandidate, this.logSize * 2);
+            this.logProgram = Arrays.copyOf(this.logProgram, this.logSize * 2);
+            this.logScore = Arrays.copyOf(this.logScore, this.logSize * 2);
+        }
+        this.logCandidate[this.logSize] = c;
+        this.logProgram[this.logSize] = program;
+        this.logScore[this.logSize] = score;
+        this.logSize++;
+    }
+
+    // Reverts the changes of the current round, latest first
+    private void undo() {
+        int size = this.logSize;
+        for (int i = size - 1; i >= 0; i--) {
+            int c = this.logCandidate[i];
+            int program = this.logProgram[i];
+            if (c < 0) {
+                c = -c - 1;
+                int key = c * this.perCandidate;
+                while (this.placedProgram[key] != program) {
+                    key++;
+                }
+                remove(key);
+            } else {
+                add(c, program, this.logScore[i]);
+            }
+        }
+        this.logSize = 0;
+    }
+}
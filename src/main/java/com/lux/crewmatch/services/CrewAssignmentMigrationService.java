@@ -0,0 +1,83 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Moves the assignments of candidates saved before the CREW_ASSIGNMENTS table existed into it. Those assignments are
+ * held by name in the CANDIDATE_ASSIGNED_PRODUCTION and CANDIDATE_ASSIGNED_ROLE tables, whose rows are deleted once
+ * they have been moved so they are not moved again.
+ */
+@Service
+public class CrewAssignmentMigrationService {
+
+    // Repositories
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * Assigns every candidate with rows in the old assignment tables to the productions named there. The old tables
+     * have no order column, so productions and roles are paired in the order their rows are stored, as the old
+     * element collections were. Names of productions that no longer exist are dropped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void migrateAssignments() {
+        if (!tableExists("CANDIDATE_ASSIGNED_PRODUCTION") || !tableExists("CANDIDATE_ASSIGNED_ROLE")) {
+            return;
+        }
+        List<?> candidateIds = this.entityManager.createNativeQuery(
+                        "select distinct CANDIDATE_ID from CANDIDATE_ASSIGNED_PRODUCTION")
+                .getResultList();
+        for (Object candidateId : candidateIds) {
+            Candidate candidate = this.candidateRepository.findById(((Number) candidateId).intValue()).orElse(null);
+            if (candidate == null) {
+                continue;
+            }
+            List<String> productions = column("CANDIDATE_ASSIGNED_PRODUCTION", "ASSIGNED_PRODUCTION", candidate.getId());
+            List<String> roles = column("CANDIDATE_ASSIGNED_ROLE", "ASSIGNED_ROLE", candidate.getId());
+            for (int i = 0; i < productions.size() && i < roles.size(); i++) {
+                Production production = this.productionRepository.findByName(productions.get(i));
+                if (production != null) {
+                    candidate.assign(production, roles.get(i));
+                }
+            }
+        }
+        this.entityManager.createNativeQuery("delete from CANDIDATE_ASSIGNED_PRODUCTION").executeUpdate();
+        this.entityManager.createNativeQuery("delete from CANDIDATE_ASSIGNED_ROLE").executeUpdate();
+    }
+
+    // Helper method that determines if a table exists in the database.
+    private boolean tableExists(String table) {
+        Number count = (Number) this.entityManager.createNativeQuery(
+                        "select count(*) from information_schema.tables where upper(table_name) = :table")
+                .setParameter("table", table)
+                .getSingleResult();
+        return count.intValue() > 0;
+    }
+
+    // Helper method that reads one column of an old assignment table for a candidate.
+    @SuppressWarnings("unchecked")
+    private <T> List<T> column(String table, String column, Integer candidateId) {
+        return this.entityManager.createNativeQuery("select " + column + " from " + table + " where CANDIDATE_ID = :id")
+                .setParameter("id", candidateId)
+                .getResultList();
+    }
+}
@@ -0,0 +1,292 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import com.lux.crewmatch.repositories.ProductionRepository.ProductionVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Places candidates that registered or changed since the previous run without re-reading the whole pool, which is
+ * meant to be run repeatedly while registration is open.
+ *
+ * The service keeps the open slots of every active production between runs, together with the candidates it placed
+ * itself. Before each run only the id and version of the productions are read; productions whose version changed
+ * (e.g. through a full match or a manual roster edit) are reloaded, every other one is taken from the kept state. A
+ * run then loads only the new candidates and the productions they list, so its cost follows the size of the change set.
+ *
+ * New candidates are placed in seniority order by their preferences. If a preferred role is full, a new candidate
+ * takes the place of the least senior candidate this service put there, provided the new candidate is more senior by
+ * the configured ranking policy. The displaced candidate is then matched again in the same run, with every production
+ * they listed loaded into it. A displaced candidate left without a slot is reported as such, and is considered again
+ * by the next run like any other changed candidate.
+ */
+@Service
+public class IncrementalMatchService {
+
+    // Repositories
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Autowired
+    MatchRunService matchRunService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // Open slot state of each active production by name, kept between runs
+    private final Map<String, OpenSlots> openSlots = new HashMap<>();
+    // Candidates modified after this instant have not been seen by a run yet, null before the first run
+    private Instant lastRun;
+
+    // Open slots of a single production as of its recorded version
+    private static class OpenSlots {
+        final Integer id;
+        Integer version;
+        Long slotVersions;
+        final Map<String, Integer> vacancies = new HashMap<>();
+        // Candidates placed by this service in each role, only holding the fields needed to compare seniority
+        final Map<String, List<Candidate>> incumbents = new HashMap<>();
+
+        OpenSlots(Integer id) {
+            this.id = id;
+        }
+    }
+
+    // Method to place the candidates created or changed since the last run
+    // Returns an HTTP response stating how many candidates were matched
+    public synchronized ResponseEntity<String> incrementalMatch() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        try {
+            return transactionTemplate.execute(status -> matchChanges());
+        } catch (RuntimeException e) {
+            // The kept state may no longer describe the database, so the next run starts over
+            reset();
+            throw e;
+        }
+    }
+
+    // Discards the kept state so the next run considers every unassigned candidate
+    public synchronized void reset() {
+        this.openSlots.clear();
+        this.lastRun = null;
+    }
+
+    private ResponseEntity<String> matchChanges() {
+        Instant runStart = Instant.now();
+
+        // Bring the open slots up to date with productions changed outside this service
+        List<ProductionVersion> versions = this.productionRepository.findActiveVersions();
+        if (versions.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("No productions have been created.");
+        }
+        Set<String> activeNames = new HashSet<>();
+        for (ProductionVersion version : versions) {
+            activeNames.add(version.getName());
+            OpenSlots slots = this.openSlots.get(version.getName());
+            if (slots == null || !slots.id.equals(version.getId()) || !slots.version.equals(version.getVersion())
+                    || !slots.slotVersions.equals(version.getSlotVersions())) {
+                this.productionRepository.findById(version.getId())
+                        .ifPresent(production -> this.openSlots.put(production.getName(), rebuild(production, slots)));
+            }
+        }
+        this.openSlots.keySet().retainAll(activeNames);
+
+        // Only the candidates created or changed since the previous run
+        List<Candidate> changed = this.lastRun == null
+                ? this.candidateRepository.findByAssignedFalseAndActingInterestFalse()
+                : this.candidateRepository.findByAssignedFalseAndActingInterestFalseAndLastModifiedAfter(this.lastRun);
+        Comparator<Candidate> comparator = this.matchRunService.rankingPolicy().comparator();
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(comparator);
+        Set<Integer> listedProductions = new HashSet<>();
+        for (Candidate candidate : changed) {
+            if (!candidate.isComplete()) {
+                continue;
+            }
+            queue.add(candidate);
+            for (String name : candidate.getProductions()) {
+                OpenSlots slots = this.openSlots.get(name);
+                if (slots != null) {
+                    listedProductions.add(slots.id);
+                }
+            }
+        }
+
+        List<Production> productions = new ArrayList<>();
+        this.productionRepository.findAllById(listedProductions).forEach(productions::add);
+        MatchRun run = new MatchRun(productions, changed);
+        Map<Integer, Candidate> displacedCandidates = new HashMap<>();
+
+        while (!queue.isEmpty()) {
+            Candidate candidate = queue.poll();
+            for (String[] preference : preferences(candidate)) {
+                Production production = run.getProduction(preference[0]);
+                OpenSlots slots = this.openSlots.get(preference[0]);
+                if (production == null || slots == null) {
+                    continue;
+                }
+                String role = preference[1];
+
+                // Take a vacant slot if there is one
+                if (slots.vacancies.getOrDefault(role, 0) > 0) {
+                    if (run.place(candidate, production, role)) {
+                        slots.vacancies.merge(role, -1, Integer::sum);
+                        slots.incumbents.computeIfAbsent(role, r -> new ArrayList<>()).add(seniorityOf(candidate));
+                        break;
+                    }
+                    continue;
+                }
+
+                // Otherwise displace the least senior candidate placed here by this service, if less senior
+                List<Candidate> incumbents = slots.incumbents.get(role);
+                if (incumbents == null || incumbents.isEmpty()) {
+                    continue;
+                }
+                Candidate leastSenior = incumbents.get(0);
+                for (Candidate incumbent : incumbents) {
+                    if (comparator.compare(incumbent, leastSenior) > 0) {
+                        leastSenior = incumbent;
+                    }
+                }
+                if (comparator.compare(candidate, leastSenior) >= 0) {
+                    continue;
+                }
+                Integer displacedId = leastSenior.getId();
+                Candidate displaced = displacedCandidates.computeIfAbsent(displacedId,
+                        id -> this.candidateRepository.findById(id).orElse(null));
+                if (displaced == null || !run.remove(displaced, production, role)) {
+                    continue;
+                }
+                incumbents.remove(leastSenior);
+                run.place(candidate, production, role);
+                incumbents.add(seniorityOf(candidate));
+                addListedProductions(run, displaced);
+                queue.add(displaced);
+                break;
+            }
+        }
+
+        // Write every placement back in one batch, then record the new versions of the changed productions
+        this.matchRunService.flush(run);
+        for (Production production : run.getChangedProductions()) {
+            OpenSlots slots = this.openSlots.get(production.getName());
+            if (slots != null) {
+                slots.version = production.getVersion();
+                slots.slotVersions = production.slotVersions();
+            }
+        }
+        this.lastRun = runStart;
+
+        int numCandidatesAssigned = 0;
+        for (Candidate candidate : changed) {
+            if (Boolean.TRUE.equals(candidate.getAssigned())) {
+                numCandidatesAssigned++;
+            }
+        }
+
+        int numDisplacedUnplaced = 0;
+        for (Candidate displaced : displacedCandidates.values()) {
+            if (displaced != null && !Boolean.TRUE.equals(displaced.getAssigned())) {
+                numDisplacedUnplaced++;
+            }
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(
+                numCandidatesAssigned + " new candidates have been placed on " + versions.size() + " productions. " +
+                        (changed.size() - numCandidatesAssigned) + " remain to be matched." +
+                        (numDisplacedUnplaced > 0 ? " " + numDisplacedUnplaced + " displaced candidates could not be " +
+                                "placed again and remain to be matched." : "")
+        );
+    }
+
+    // Helper method that loads the productions a candidate listed that are not yet part of the run, so a displaced
+    // candidate can be matched again against all of their preferences.
+    private void addListedProductions(MatchRun run, Candidate candidate) {
+        Set<Integer> missing = new HashSet<>();
+        for (String name : candidate.getProductions()) {
+            OpenSlots slots = this.openSlots.get(name);
+            if (slots != null && run.getProduction(name) == null) {
+                missing.add(slots.id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            this.productionRepository.findAllById(missing).forEach(run::addProduction);
+        }
+    }
+
+    // Helper method that recounts the open slots of a production, keeping the candidates placed by this service that
+    // are still on its roster.
+    private OpenSlots rebuild(Production production, OpenSlots previous) {
+        OpenSlots slots = new OpenSlots(production.getId());
+        slots.version = production.getVersion();
+        slots.slotVersions = production.slotVersions();
+        Map<String, Set<String>> members = new HashMap<>();
+        for (int i = 0; i < production.getRoles().size(); i++) {
+            String role = production.getRoles().get(i);
+            String member = production.getMembers().get(i);
+            if (member.equals("")) {
+                slots.vacancies.merge(role, 1, Integer::sum);
+            } else {
+                members.computeIfAbsent(role, r -> new HashSet<>()).add(member);
+            }
+        }
+        if (previous != null && previous.id.equals(production.getId())) {
+            previous.incumbents.forEach((role, incumbents) -> {
+                for (Candidate incumbent : incumbents) {
+                    if (members.getOrDefault(role, Set.of()).contains(incumbent.getName())) {
+                        slots.incumbents.computeIfAbsent(role, r -> new ArrayList<>()).add(incumbent);
+                    }
+                }
+            });
+        }
+        return slots;
+    }
+
+    // Helper method that lists a candidate's production and role pairs in the order they should be tried.
+    private static List<String[]> preferences(Candidate candidate) {
+        Map<String, String[]> preferences = new LinkedHashMap<>();
+        List<String> productions = candidate.getProductions();
+        List<String> roles = candidate.getRoles();
+        int outer = candidate.getProdPriority() ? productions.size() : roles.size();
+        int inner = candidate.getProdPriority() ? roles.size() : productions.size();
+        for (int i = 0; i < outer; i++) {
+            for (int j = 0; j < inner; j++) {
+                String production = candidate.getProdPriority() ? productions.get(i) : productions.get(j);
+                String role = candidate.getProdPriority() ? roles.get(j) : roles.get(i);
+                preferences.putIfAbsent(production + "\n" + role, new String[] {production, role});
+            }
+        }
+        return new ArrayList<>(preferences.values());
+    }
+
+    // Helper method that copies the fields used by the ranking policy, so the kept state holds no entities.
+    private static Candidate seniorityOf(Candidate candidate) {
+        Candidate copy = new Candidate();
+        copy.setId(candidate.getId());
+        copy.setName(candidate.getName());
+        copy.setQuartersInLux(candidate.getQuartersInLux());
+        copy.setYearsInUW(candidate.getYearsInUW());
+        copy.setTimestamp(candidate.getTimestamp());
+        return copy;
+    }
+}
@@ -0,0 +1,74 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Configs;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The staffing rules enforced by the constraint match, read from the config variables:
+ * - "maxCrewSize": the most members a production may have. Defaults to 24.
+ * - "maxProductionsPerCandidate": the most productions a candidate may be placed on. Defaults to 1.
+ * - "minRole:ROLE": the fewest members in ROLE each production with that role should have, where it has the slots.
+ * - "maxRole:ROLE": the most members in ROLE any production may have.
+ */
+public class MatchConstraints {
+
+    public static final String MAX_CREW_SIZE = "maxCrewSize";
+    public static final String MAX_PRODUCTIONS_PER_CANDIDATE = "maxProductionsPerCandidate";
+    public static final String MIN_ROLE_PREFIX = "minRole:";
+    public static final String MAX_ROLE_PREFIX = "maxRole:";
+
+    public static final int DEFAULT_MAX_CREW_SIZE = 24;
+    public static final int DEFAULT_MAX_PRODUCTIONS_PER_CANDIDATE = 1;
+
+    // Fields
+    private int maxCrewSize = DEFAULT_MAX_CREW_SIZE;
+    private int maxProductionsPerCandidate = DEFAULT_MAX_PRODUCTIONS_PER_CANDIDATE;
+    private final Map<String, Integer> minRole = new HashMap<>();
+    private final Map<String, Integer> maxRole = new HashMap<>();
+
+    /**
+     * Collects the staffing rules from the config variables. Variables without a value, and any others, are ignored.
+     * @param configs - Every config variable.
+     * @return - Returns the rules, with defaults for the limits that are not configured.
+     */
+    public static MatchConstraints from(Iterable<Configs> configs) {
+        MatchConstraints constraints = new MatchConstraints();
+        for (Configs config : configs) {
+            String name = config.getName();
+            Integer value = config.getValue();
+            if (name == null || value == null) {
+                continue;
+            }
+            if (name.equals(MAX_CREW_SIZE)) {
+                constraints.maxCrewSize = value;
+            } else if (name.equals(MAX_PRODUCTIONS_PER_CANDIDATE)) {
+                constraints.maxProductionsPerCandidate = value;
+            } else if (name.startsWith(MIN_ROLE_PREFIX)) {
+                constraints.minRole.put(name.substring(MIN_ROLE_PREFIX.length()), value);
+            } else if (name.startsWith(MAX_ROLE_PREFIX)) {
+                constraints.maxRole.put(name.substring(MAX_ROLE_PREFIX.length()), value);
+            }
+        }
+        return constraints;
+    }
+
+    public int getMaxCrewSize() {
+        return maxCrewSize;
+    }
+
+    public int getMaxProductionsPerCandidate() {
+        return maxProductionsPerCandidate;
+    }
+
+    // The minimum headcount of a role on each production, or 0 if there is none
+    public int getMinRole(String role) {
+        return minRole.getOrDefault(role, 0);
+    }
+
+    // The maximum headcount of a role on each production, or Integer.MAX_VALUE if there is none
+    public int getMaxRole(String role) {
+        return maxRole.getOrDefault(role, Integer.MAX_VALUE);
+    }
+}
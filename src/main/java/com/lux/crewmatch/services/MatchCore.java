@@ -0,0 +1,514 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Array based state of a match run used by the greedy and weighted matchers.
+ *
+ * Production and role names are interned into dense int ids once, when the core is built. Every (production, role)
+ * pair with at least one slot becomes a program holding its slot ids in ascending order, and every candidate's
+ * preferences are resolved into a grid of program ids. Placing a candidate then only reads and writes primitive
+ * arrays, and nothing is allocated per candidate. Placements are written back to the entities with apply().
+ *
+ * The greedy and weighted placement rules are those of the original list based matchers, including the order in
+ * which equally weighted options are tried. The configured role weights are never changed: the weighted rule derives
+ * each slot's effective weight from which slots are still vacant. Progress is reported to the run's
+ * MatchProgress after every candidate, and placement stops early when it asks to.
+ */
+public class MatchCore {
+
+    // Productions and their slots. Slot ids are global, with the slots of production p starting at slotStart[p].
+    private final Production[] productions;
+    private final int[] slotStart;
+    private final boolean[] filled;
+
+    // Configured role weights, which are never changed, and the running total of the weights of each production's
+    // vacant slots. The effective weight of a vacant slot is its configured weight over that total, scaled to 10.
+    private final double[] weights;
+    private final int[] weightStart;
+    private final int[] weightLength;
+    private final double[] vacantWeight;
+
+    // Programs: the ascending slot ids of each (production, role) pair, and how far the vacancy search has advanced
+    private final int[] slotProgram;
+    private final int[] programProduction;
+    private final int[] programStart;
+    private final int[] programSlots;
+    private final int[] programHead;
+
+    // Candidates in match order, with their production ids (-1 if unknown) and a production x role grid of programs
+    private final Candidate[] candidates;
+    private final boolean[] prodPriority;
+    private final int[] productionStart;
+    private final int[] candidateProductions;
+    private final int[] numRoles;
+    private final int[] gridStart;
+    private final int[] grid;
+    private final int[] placedSlot;
+
+    // Heap of weighted options, ordered exactly like a java.util.PriorityQueue with the AssignmentComparator
+    private final double[] heapWeight;
+    private final int[] heapSlot;
+    private final int[] heapProgram;
+    private int heapSize;
+
+    private final MatchProgress progress;
+
+    /**
+     * Builds the arrays for a match run.
+     * @param run - The match run providing the productions.
+     * @param orderedCandidates - The candidates to be placed, in the order they should be matched.
+     */
+    public MatchCore(MatchRun run, List<Candidate> orderedCandidates) {
+        this.progress = run.getProgress();
+
+        // Intern productions and slots
+        int numProductions = run.getProductions().size();
+        this.productions = run.getProductions().toArray(new Production[0]);
+        Map<String, Integer> productionIds = new HashMap<>();
+        this.slotStart = new int[numProductions + 1];
+        this.weightStart = new int[numProductions + 1];
+        this.weightLength = new int[numProductions];
+        int maxSlots = 0;
+        for (int p = 0; p < numProductions; p++) {
+            productionIds.put(this.productions[p].getName(), p);
+            int size = this.productions[p].getRoles().size();
+            this.slotStart[p + 1] = this.slotStart[p] + size;
+            this.weightLength[p] = this.productions[p].getRoleWeights().size();
+            this.weightStart[p + 1] = this.weightStart[p] + this.weightLength[p];
+            maxSlots = Math.max(maxSlots, size);
+        }
+        this.filled = new boolean[this.slotStart[numProductions]];
+        this.weights = new double[this.weightStart[numProductions]];
+        this.vacantWeight = new double[numProductions];
+
+        // Intern roles and group slots into programs
+        Map<String, Integer> roleIds = new HashMap<>();
+        Map<Long, Integer> programIds = new HashMap<>();
+        int[] slotProgram = new int[this.filled.length];
+        this.slotProgram = slotProgram;
+        int numPrograms = 0;
+        for (int p = 0; p < numProductions; p++) {
+            Production production = this.productions[p];
+            for (int k = 0; k < production.getRoles().size(); k++) {
+                int slot = this.slotStart[p] + k;
+                this.filled[slot] = !production.getMembers().get(k).equals("");
+                int role = roleIds.computeIfAbsent(production.getRoles().get(k), name -> roleIds.size());
+                long key = (long) p << 32 | role;
+                Integer program = programIds.get(key);
+                if (program == null) {
+                    program = numPrograms++;
+                    programIds.put(key, program);
+                }
+                slotProgram[slot] = program;
+            }
+            for (int k = 0; k < this.weightLength[p]; k++) {
+                this.weights[this.weightStart[p] + k] = production.getRoleWeights().get(k);
+                if (k < production.getRoles().size() && !this.filled[this.slotStart[p] + k]) {
+                    this.vacantWeight[p] += this.weights[this.weightStart[p] + k];
+                }
+            }
+        }
+        this.programProduction = new int[numPrograms];
+        for (int p = 0; p < numProductions; p++) {
+            for (int slot = this.slotStart[p]; slot < this.slotStart[p + 1]; slot++) {
+                this.programProduction[slotProgram[slot]] = p;
+            }
+        }
+        this.programStart = new int[numPrograms + 1];
+        for (int program : slotProgram) {
+            this.programStart[program + 1]++;
+        }
+        for (int program = 0; program < numPrograms; program++) {
+            this.programStart[program + 1] += this.programStart[program];
+        }
+        this.programSlots = new int[slotProgram.length];
+        this.programHead = new int[numPrograms];
+        for (int program = 0; program < numPrograms; program++) {
+            this.programHead[program] = this.programStart[program];
+        }
+        for (int slot = 0; slot < slotProgram.length; slot++) {
+            this.programSlots[this.programHead[slotProgram[slot]]++] = slot;
+        }
+        for (int program = 0; program < numPrograms; program++) {
+            this.programHead[program] = this.programStart[program];
+        }
+
+        // Resolve every candidate's preferences into program ids
+        int n = orderedCandidates.size();
+        this.candidates = orderedCandidates.toArray(new Candidate[0]);
+        this.prodPriority = new boolean[n];
+        this.productionStart = new int[n + 1];
+        this.numRoles = new int[n];
+        this.gridStart = new int[n + 1];
+        for (int c = 0; c < n; c++) {
+            Candidate candidate = this.candidates[c];
+            this.prodPriority[c] = candidate.getProdPriority();
+            this.numRoles[c] = candidate.getRoles().size();
+            this.productionStart[c + 1] = this.productionStart[c] + candidate.getProductions().size();
+            this.gridStart[c + 1] = this.gridStart[c] + candidate.getProductions().size() * this.numRoles[c];
+        }
+        this.candidateProductions = new int[this.productionStart[n]];
+        this.grid = new int[this.gridStart[n]];
+        int maxRoles = 0;
+        for (int c = 0; c < n; c++) {
+            Candidate candidate = this.candidates[c];
+            maxRoles = Math.max(maxRoles, Math.max(this.numRoles[c], candidate.getProductions().size()));
+            for (int i = 0; i < candidate.getProductions().size(); i++) {
+                Integer production = productionIds.get(candidate.getProductions().get(i));
+                this.candidateProductions[this.productionStart[c] + i] = production != null ? production : -1;
+                for (int j = 0; j < this.numRoles[c]; j++) {
+                    Integer role = roleIds.get(candidate.getRoles().get(j));
+                    Integer program = production == null || role == null ? null
+                            : programIds.get((long) production << 32 | role);
+                    this.grid[this.gridStart[c] + i * this.numRoles[c] + j] = program != null ? program : -1;
+                }
+            }
+        }
+        this.placedSlot = new int[n];
+        Arrays.fill(this.placedSlot, -1);
+
+        int heapCapacity = Math.max(1, maxRoles * maxSlots);
+        this.heapWeight = new double[heapCapacity];
+        this.heapSlot = new int[heapCapacity];
+        this.heapProgram = new int[heapCapacity];
+    }
+
+    // Copies a core, sharing the arrays that placement only reads
+    private MatchCore(MatchCore core, MatchProgress progress) {
+        this.productions = core.productions;
+        this.slotStart = core.slotStart;
+        this.filled = core.filled.clone();
+        this.weights = core.weights;
+        this.weightStart = core.weightStart;
+        this.weightLength = core.weightLength;
+        this.vacantWeight = core.vacantWeight.clone();
+        this.slotProgram = core.slotProgram;
+        this.programProduction = core.programProduction;
+        this.programStart = core.programStart;
+        this.programSlots = core.programSlots;
+        this.programHead = core.programHead.clone();
+        this.candidates = core.candidates;
+        this.prodPriority = core.prodPriority;
+        this.productionStart = core.productionStart;
+        this.candidateProductions = core.candidateProductions;
+        this.numRoles = core.numRoles;
+        this.gridStart = core.gridStart;
+        this.grid = core.grid;
+        this.placedSlot = core.placedSlot.clone();
+        this.heapWeight = new double[core.heapWeight.length];
+        this.heapSlot = new int[core.heapSlot.length];
+        this.heapProgram = new int[core.heapProgram.length];
+        this.progress = progress;
+    }
+
+    /**
+     * Creates an independent copy of the core in its current state, so several matches can be tried from the same
+     * starting point at once.
+     * @param progress - The progress the copy reports to.
+     * @return - Returns a core whose placements do not affect this one.
+     */
+    public MatchCore copy(MatchProgress progress) {
+        return new MatchCore(this, progress);
+    }
+
+    public int size() {
+        return this.candidates.length;
+    }
+
+    /**
+     * Finds which of a candidate's choices they were placed by.
+     * @param c - The index of the candidate.
+     * @return - Returns the production rank times the number of roles plus the role rank of the choice, taking the
+     * first such choice in the candidate's preference order, or -1 if the candidate has not been placed.
+     */
+    public int placedChoice(int c) {
+        if (this.placedSlot[c] == -1) {
+            return -1;
+        }
+        int program = this.slotProgram[this.placedSlot[c]];
+        int np = this.productionStart[c + 1] - this.productionStart[c];
+        int nr = this.numRoles[c];
+        for (int outer = 0; outer < (this.prodPriority[c] ? np : nr); outer++) {
+            for (int inner = 0; inner < (this.prodPriority[c] ? nr : np); inner++) {
+                int cell = this.prodPriority[c] ? outer * nr + inner : inner * nr + outer;
+                if (this.grid[this.gridStart[c] + cell] == program) {
+                    return cell;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // The number of slots of a production, in the order of the run's productions, that are still vacant
+    public int vacancies(int p) {
+        int vacant = 0;
+        for (int slot = this.slotStart[p]; slot < this.slotStart[p + 1]; slot++) {
+            if (!this.filled[slot]) {
+                vacant++;
+            }
+        }
+        return vacant;
+    }
+
+    // The number of roles a candidate ranked, for decoding placedChoice
+    public int numRoles(int c) {
+        return this.numRoles[c];
+    }
+
+    public boolean prodPriority(int c) {
+        return this.prodPriority[c];
+    }
+
+    /**
+     * Places candidates one after another in their preference order: the first production (or role, depending on the
+     * candidate's priority) with a vacant slot for one of their roles (or productions) wins. Calls for sets of
+     * candidates that share no production may run concurrently.
+     * @param order - The indices of the candidates to place, in match order.
+     * @return - Returns the number of candidates placed.
+     */
+    public int placeInOrder(int[] order) {
+        int numPlaced = 0;
+        for (int c : order) {
+            boolean placed = placeGreedy(c);
+            if (placed) {
+                numPlaced++;
+            }
+            if (!this.progress.advance(1, placed ? 1 : 0)) {
+                break;
+            }
+        }
+        return numPlaced;
+    }
+
+    /**
+     * Places every candidate in order by the weighted rule: within each preferred production (or role), the options
+     * are tried from the highest effective role weight times preference weight down. Filled slots weigh nothing, and
+     * the weights of the vacant slots of a production are normalized against each other.
+     * @param preferenceWeights - The weight of a candidate's first, second and third choice.
+     * @return - Returns the number of candidates placed.
+     */
+    public int placeWeighted(double[] preferenceWeights) {
+        return placeWeighted(preferenceWeights, null);
+    }
+
+    /**
+     * Places every candidate in order by the weighted rule, with the effective role weights of each production
+     * multiplied by a factor. The factors only change which production a candidate is placed on when they put their
+     * role first, as the roles within one production are compared at the same scale.
+     * @param preferenceWeights - The weight of a candidate's first, second and third choice.
+     * @param productionScale - The factor of each production, in the order of the run's productions, or null for 1.
+     * @return - Returns the number of candidates placed.
+     */
+    public int placeWeighted(double[] preferenceWeights, double[] productionScale) {
+        int numPlaced = 0;
+        for (int c = 0; c < this.candidates.length; c++) {
+            boolean placed = placeWeighted(c, preferenceWeights, productionScale);
+            if (placed) {
+                numPlaced++;
+            }
+            if (!this.progress.advance(1, placed ? 1 : 0)) {
+                break;
+            }
+        }
+        return numPlaced;
+    }
+
+    /**
+     * Writes every placement back to the entities. Role weights are left as they were configured.
+     * @param run - The match run the core was built from.
+     */
+    public void apply(MatchRun run) {
+        for (int c = 0; c < this.candidates.length; c++) {
+            int slot = this.placedSlot[c];
+            if (slot == -1) {
+                continue;
+            }
+            int p = this.programProduction[this.slotProgram[slot]];
+            run.placeAt(this.candidates[c], this.productions[p], slot - this.slotStart[p]);
+        }
+    }
+
+    private boolean placeGreedy(int c) {
+        int np = this.productionStart[c + 1] - this.productionStart[c];
+        int nr = this.numRoles[c];
+        if (this.prodPriority[c]) {
+            for (int i = 0; i < np; i++) {
+                if (this.candidateProductions[this.productionStart[c] + i] == -1) {
+                    continue;
+                }
+                for (int j = 0; j < nr; j++) {
+                    if (take(c, this.grid[this.gridStart[c] + i * nr + j]) != -1) {
+                        return true;
+                    }
+                }
+            }
+        } else {
+            for (int j = 0; j < nr; j++) {
+                for (int i = 0; i < np; i++) {
+                    if (this.candidateProductions[this.productionStart[c] + i] == -1) {
+                        continue;
+                    }
+                    if (take(c, this.grid[this.gridStart[c] + i * nr + j]) != -1) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean placeWeighted(int c, double[] preferenceWeights, double[] productionScale) {
+        int np = this.productionStart[c + 1] - this.productionStart[c];
+        int nr = this.numRoles[c];
+        if (this.prodPriority[c]) {
+            // One round per production, comparing the candidate's roles by weight
+            for (int i = 0; i < np; i++) {
+                int p = this.candidateProductions[this.productionStart[c] + i];
+                if (p == -1) {
+                    continue;
+                }
+                this.heapSize = 0;
+                for (int j = 0; j < nr && j < preferenceWeights.length; j++) {
+                    pushProgram(this.grid[this.gridStart[c] + i * nr + j], p, preferenceWeights[j], productionScale);
+                }
+                if (takeBest(c)) {
+                    return true;
+                }
+            }
+        } else {
+            // One round per role, comparing the candidate's productions by weight
+            for (int j = 0; j < nr; j++) {
+                this.heapSize = 0;
+                for (int i = 0; i < np && i < preferenceWeights.length; i++) {
+                    int p = this.candidateProductions[this.productionStart[c] + i];
+                    if (p == -1) {
+                        continue;
+                    }
+                    pushProgram(this.grid[this.gridStart[c] + i * nr + j], p, preferenceWeights[i], productionScale);
+                }
+                if (takeBest(c)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Adds every slot of a program to the heap, weighted by the slot's role weight times the preference weight.
+    private void pushProgram(int program, int p, double preferenceWeight, double[] productionScale) {
+        if (program == -1) {
+            return;
+        }
+        for (int k = this.programStart[program]; k < this.programStart[program + 1]; k++) {
+            int slot = this.programSlots[k];
+            double weight = productionScale == null ? weightOf(p, slot) : weightOf(p, slot) * productionScale[p];
+            offer(weight * preferenceWeight, slot, program);
+        }
+    }
+
+    // Tries the options on the heap from the highest weight down, taking the first program with a vacant slot.
+    private boolean takeBest(int c) {
+        while (this.heapSize > 0) {
+            int program = this.heapProgram[0];
+            poll();
+            if (take(c, program) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Fills the first vacant slot of a program. Returns the slot, or -1 if the program is full.
+    private int take(int c, int program) {
+        if (program == -1) {
+            return -1;
+        }
+        int head = this.programHead[program];
+        int end = this.programStart[program + 1];
+        while (head < end && this.filled[this.programSlots[head]]) {
+            head++;
+        }
+        this.programHead[program] = head;
+        if (head == end) {
+            return -1;
+        }
+        int slot = this.programSlots[head];
+        this.filled[slot] = true;
+        this.placedSlot[c] = slot;
+        int p = this.programProduction[program];
+        int local = slot - this.slotStart[p];
+        if (local < this.weightLength[p]) {
+            this.vacantWeight[p] -= this.weights[this.weightStart[p] + local];
+        }
+        return slot;
+    }
+
+    // The effective weight of a slot, in O(1) from the running total of its production's vacant weights
+    private double weightOf(int p, int slot) {
+        int local = slot - this.slotStart[p];
+        if (this.filled[slot] || local >= this.weightLength[p]) {
+            return 0.0;
+        }
+        return Production.effectiveWeight(this.weights[this.weightStart[p] + local], this.vacantWeight[p]);
+    }
+
+    // Heap operations mirroring java.util.PriorityQueue, where the option with the highest weight is on top
+    private static int compare(double a, double b) {
+        return -Double.compare(a, b);
+    }
+
+    private void offer(double weight, int slot, int program) {
+        int k = this.heapSize++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (compare(weight, this.heapWeight[parent]) >= 0) {
+                break;
+            }
+            move(parent, k);
+            k = parent;
+        }
+        this.heapWeight[k] = weight;
+        this.heapSlot[k] = slot;
+        this.heapProgram[k] = program;
+    }
+
+    private void poll() {
+        int n = --this.heapSize;
+        if (n == 0) {
+            return;
+        }
+        double weight = this.heapWeight[n];
+        int slot = this.heapSlot[n];
+        int program = this.heapProgram[n];
+        int k = 0;
+        int half = n >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < n && compare(this.heapWeight[child], this.heapWeight[right]) > 0) {
+                child = right;
+            }
+            if (compare(weight, this.heapWeight[child]) <= 0) {
+                break;
+            }
+            move(child, k);
+            k = child;
+        }
+        this.heapWeight[k] = weight;
+        this.heapSlot[k] = slot;
+        this.heapProgram[k] = program;
+    }
+
+    private void move(int from, int to) {
+        this.heapWeight[to] = this.heapWeight[from];
+        this.heapSlot[to] = this.heapSlot[from];
+        this.heapProgram[to] = this.heapProgram[from];
+    }
+}
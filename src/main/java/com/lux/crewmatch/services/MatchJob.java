@@ -0,0 +1,88 @@
+package com.lux.crewmatch.services;
+
+/**
+ * A match running in the background. Reports how many candidates have been processed and placed so far, and the
+ * outcome once the run has finished.
+ */
+public class MatchJob {
+
+    public enum State {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    // Fields
+    private final String id;
+    private final String strategy;
+    private final MatchProgress progress;
+    private volatile State state = State.RUNNING;
+    private volatile int totalCandidates;
+    private volatile String message;
+    // The outcome of strategies that report more than a message, e.g. the comparison table of a weight sweep
+    private volatile Object result;
+
+    public MatchJob(String id, String strategy, MatchProgress progress) {
+        this.id = id;
+        this.strategy = strategy;
+        this.progress = progress;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public int getTotalCandidates() {
+        return totalCandidates;
+    }
+
+    public void setTotalCandidates(int totalCandidates) {
+        this.totalCandidates = totalCandidates;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public void setResult(Object result) {
+        this.result = result;
+    }
+
+    public int getProcessed() {
+        return progress.getProcessed();
+    }
+
+    public int getPlaced() {
+        return progress.getPlaced();
+    }
+
+    public long getElapsedMillis() {
+        return progress.getElapsedMillis();
+    }
+
+    public boolean isBudgetExceeded() {
+        return progress.isBudgetExceeded();
+    }
+
+    MatchProgress getProgress() {
+        return progress;
+    }
+}
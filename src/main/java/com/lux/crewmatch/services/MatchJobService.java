@@ -0,0 +1,230 @@
+package com.lux.crewmatch.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs matches in the background so large runs do not block a request.
+ *
+ * Jobs run one at a time on a dedicated thread. The match endpoints that run on the request thread take the same lock,
+ * so a new job or match is rejected while any other is still running. A job can be cancelled, in which case nothing it
+ * computed is written, or given a wall-clock budget, in which case the placements made before the budget ran out are
+ * kept.
+ */
+@Service
+public class MatchJobService {
+
+    @Autowired
+    MatchRunService matchRunService;
+
+    @Autowired
+    MatchStrategies matchStrategies;
+
+    @Autowired
+    SwapImprovementService swapImprovementService;
+
+    @Autowired
+    WeightedMatchService weightedMatchService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // Only the most recent jobs are kept
+    private static final int MAX_JOBS = 16;
+
+    private final Map<String, MatchJob> jobs = Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MatchJob> eldest) {
+                    return size() > MAX_JOBS;
+                }
+            });
+
+    private final AtomicReference<MatchJob> activeJob = new AtomicReference<>();
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), runnable -> {
+                Thread thread = new Thread(runnable, "match-job");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Starts a match in the background. Throws a bad request exception if the strategy or one of its parameters is
+     * not recognized, and a conflict exception if another match is still running.
+     * @param strategy - The name of the match endpoint to run, e.g. "match", "monteCarloMatch", "improve" or
+     *                 "weightSweep".
+     * @param budgetMillis - The time the match may take in milliseconds, or null for no limit.
+     * @param parameters - The parameters of the endpoint by name, e.g. "runs" and "seed" for "monteCarloMatch", or the
+     *                   grid of "weightSweep". Parameters left out take the endpoint's defaults.
+     * @return - Returns the job that was started.
+     */
+    public MatchJob start(String strategy, Long budgetMillis, Map<String, ?> parameters) {
+        if (budgetMillis != null && budgetMillis <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The time budget must be a positive number of milliseconds.");
+        }
+        // Improvements start from the placed candidates, every other strategy from the unassigned ones
+        Supplier<MatchRun> loader = strategy.equals("improve") ? this.matchRunService::loadPlaced : this.matchRunService::load;
+        Function<MatchRun, ResponseEntity<?>> matcher = matcher(strategy, parameters);
+
+        MatchJob job = new MatchJob(UUID.randomUUID().toString(), strategy,
+                new MatchProgress(budgetMillis != null ? budgetMillis : 0));
+        acquire(job);
+
+        this.jobs.put(job.getId(), job);
+        try {
+            this.executor.execute(() -> run(job, loader, matcher));
+        } catch (RejectedExecutionException e) {
+            this.activeJob.set(null);
+            this.jobs.remove(job.getId());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The match could not be started.");
+        }
+        return job;
+    }
+
+    /**
+     * Runs a match on the calling thread, holding the same lock as the match jobs so at most one match runs at a
+     * time. Throws a conflict exception if another match is still running.
+     * @param strategy - The name of the match endpoint being run.
+     * @param match - The match to run.
+     * @return - Returns the result of the match.
+     */
+    public <T> T runExclusively(String strategy, Supplier<T> match) {
+        MatchJob job = new MatchJob(UUID.randomUUID().toString(), strategy, new MatchProgress());
+        acquire(job);
+        try {
+            return match.get();
+        } finally {
+            job.getProgress().finish();
+            this.activeJob.set(null);
+        }
+    }
+
+    /**
+     * Finds a job by its id.
+     * @param id - The id of the job.
+     * @return - Returns the job, or null if there is no job with that id.
+     */
+    public MatchJob get(String id) {
+        return this.jobs.get(id);
+    }
+
+    /**
+     * Cancels a job. A job that has already finished is left as it is.
+     * @param id - The id of the job to cancel.
+     * @return - Returns the job, or null if there is no job with that id.
+     */
+    public MatchJob cancel(String id) {
+        MatchJob job = this.jobs.get(id);
+        if (job != null) {
+            job.getProgress().cancel();
+        }
+        return job;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        MatchJob job = this.activeJob.get();
+        if (job != null) {
+            job.getProgress().cancel();
+        }
+        this.executor.shutdown();
+    }
+
+    // Marks a match as the one running, unless another match is still running
+    private void acquire(MatchJob job) {
+        if (!this.activeJob.compareAndSet(null, job)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A match is already running. Please wait for it to finish or cancel it.");
+        }
+    }
+
+    // Finds the matcher of a strategy, reading its parameters before the job starts so bad ones are rejected at once
+    private Function<MatchRun, ResponseEntity<?>> matcher(String strategy, Map<String, ?> parameters) {
+        switch (strategy) {
+            case "improve" -> {
+                boolean apply = SwapImprovementService.applies(
+                        MatchStrategies.stringParameter(parameters, "mode", "suggest"));
+                SwapImprover.Objective objective = SwapImprovementService.objective(
+                        MatchStrategies.stringParameter(parameters, "objective", "pareto"));
+                boolean threeWay = MatchStrategies.booleanParameter(parameters, "threeWay", false);
+                return run -> this.swapImprovementService.improve(run, apply, objective, threeWay);
+            }
+            case "weightSweep" -> {
+                WeightSweep.Request request;
+                try {
+                    request = this.objectMapper.convertValue(parameters, WeightSweep.Request.class);
+                } catch (IllegalArgumentException e) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The weight sweep parameters could not be read.");
+                }
+                return run -> ResponseEntity.ok(this.weightedMatchService.weightSweep(run, request));
+            }
+            default -> {
+                Function<MatchRun, ResponseEntity<String>> matcher = this.matchStrategies.get(strategy, parameters);
+                return matcher::apply;
+            }
+        }
+    }
+
+    // Runs the match of a job in its own transaction, which is rolled back if the job is cancelled
+    private void run(MatchJob job, Supplier<MatchRun> loader, Function<MatchRun, ResponseEntity<?>> matcher) {
+        MatchProgress progress = job.getProgress();
+        MatchJob.State state = MatchJob.State.FAILED;
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+            state = transactionTemplate.execute(status -> {
+                MatchRun run = loader.get();
+                run.setProgress(progress);
+                job.setTotalCandidates(run.getCandidates().size());
+
+                ResponseEntity<?> response = matcher.apply(run);
+                // Messages are reported as they are, and anything else, such as the table of a sweep, as the result
+                if (response.getBody() instanceof String message) {
+                    job.setMessage(message);
+                } else {
+                    job.setResult(response.getBody());
+                }
+                if (progress.isCancelled()) {
+                    status.setRollbackOnly();
+                    return MatchJob.State.CANCELLED;
+                }
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return MatchJob.State.FAILED;
+                }
+                this.matchRunService.flush(run);
+                return MatchJob.State.COMPLETED;
+            });
+        } catch (ResponseStatusException e) {
+            job.setMessage(e.getReason());
+        } catch (RuntimeException e) {
+            job.setMessage(e.getMessage());
+        } finally {
+            progress.finish();
+            this.activeJob.set(null);
+            // Only report the outcome once the transaction has ended and another match may start
+            job.setState(state);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.lux.crewmatch.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a match that was computed without being written to the database. Holds the slots each production
+ * would fill, along with the versions of every production and candidate involved, so the preview can later be
+ * committed by its token as long as none of them changed in the meantime.
+ */
+public class MatchPreview {
+
+    // Fields
+    private final String token;
+    private final String strategy;
+    private final String message;
+    private final List<ProductionChanges> productions = new ArrayList<>();
+
+    public MatchPreview(String token, String strategy, String message) {
+        this.token = token;
+        this.strategy = strategy;
+        this.message = message;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public List<ProductionChanges> getProductions() {
+        return productions;
+    }
+
+    /**
+     * The slots filled on a single production.
+     */
+    public static class ProductionChanges {
+
+        private final Integer productionId;
+        private final String production;
+        private final Integer version;
+        private final Long slotVersions;
+        private final List<SlotChange> slots = new ArrayList<>();
+
+        public ProductionChanges(Integer productionId, String production, Integer version, Long slotVersions) {
+            this.productionId = productionId;
+            this.production = production;
+            this.version = version;
+            this.slotVersions = slotVersions;
+        }
+
+        public Integer getProductionId() {
+            return productionId;
+        }
+
+        public String getProduction() {
+            return production;
+        }
+
+        public Integer getVersion() {
+            return version;
+        }
+
+        // The sum of the versions of the production's slots, which changes with any change to its roster
+        public Long getSlotVersions() {
+            return slotVersions;
+        }
+
+        public List<SlotChange> getSlots() {
+            return slots;
+        }
+    }
+
+    /**
+     * A candidate placed in one slot of a production's roles list.
+     */
+    public static class SlotChange {
+
+        private final Integer index;
+        private final String role;
+        private final String candidate;
+        private final Integer candidateId;
+        private final Integer candidateVersion;
+
+        public SlotChange(Integer index, String role, String candidate, Integer candidateId, Integer candidateVersion) {
+            this.index = index;
+            this.role = role;
+            this.candidate = candidate;
+            this.candidateId = candidateId;
+            this.candidateVersion = candidateVersion;
+        }
+
+        public Integer getIndex() {
+            return index;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public String getCandidate() {
+            return candidate;
+        }
+
+        public Integer getCandidateId() {
+            return candidateId;
+        }
+
+        public Integer getCandidateVersion() {
+            return candidateVersion;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Runs any of the matching algorithms as a dry run and keeps the resulting slot changes until they are committed or
+ * discarded.
+ *
+ * A preview runs in a read-only transaction that is always rolled back, so nothing computed by the matcher reaches
+ * the database. Committing applies the stored slot changes in one batched transaction after checking that every
+ * production and candidate involved still has the version it had when the preview was created.
+ */
+@Service
+public class MatchPreviewService {
+
+    // Repositories
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Autowired
+    MatchRunService matchRunService;
+
+    @Autowired
+    MatchStrategies matchStrategies;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // Only the most recent previews are kept
+    private static final int MAX_PREVIEWS = 16;
+
+    private final Map<String, MatchPreview> previews = Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MatchPreview> eldest) {
+                    return size() > MAX_PREVIEWS;
+                }
+            });
+
+    /**
+     * Computes a match without writing anything and stores the resulting changes under a new token.
+     * @param strategy - The name of the match endpoint to preview, e.g. "match" or "weightedMatch".
+     * @return - Returns the preview containing the token and the slots each production would fill.
+     */
+    public MatchPreview preview(String strategy) {
+        Function<MatchRun, ResponseEntity<String>> matcher = this.matchStrategies.get(strategy);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        transactionTemplate.setReadOnly(true);
+        MatchPreview preview = transactionTemplate.execute(status -> {
+            // Never write the entities changed by the matcher back
+            status.setRollbackOnly();
+
+            MatchRun run = this.matchRunService.load();
+            Map<Production, List<String>> members = new HashMap<>();
+            for (Production production : run.getProductions()) {
+                members.put(production, new ArrayList<>(production.getMembers()));
+            }
+
+            ResponseEntity<String> response = matcher.apply(run);
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                throw new ResponseStatusException(response.getStatusCode(), response.getBody());
+            }
+
+            return diff(run, strategy, response.getBody(), members);
+        });
+
+        this.previews.put(preview.getToken(), preview);
+        return preview;
+    }
+
+    /**
+     * Applies the changes of a preview in one transaction.
+     * @param token - The token of the preview to commit.
+     * @return - Returns the message of the match that was previewed.
+     */
+    @Transactional
+    public ResponseEntity<String> commit(String token) {
+        MatchPreview preview = this.previews.remove(token);
+        if (preview == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "There is no match preview with that token.");
+        }
+
+        // Load every production and candidate the preview touches
+        Set<Integer> productionIds = new HashSet<>();
+        Set<Integer> candidateIds = new HashSet<>();
+        for (MatchPreview.ProductionChanges changes : preview.getProductions()) {
+            productionIds.add(changes.getProductionId());
+            for (MatchPreview.SlotChange slot : changes.getSlots()) {
+                candidateIds.add(slot.getCandidateId());
+            }
+        }
+        Map<Integer, Production> productions = new HashMap<>();
+        this.productionRepository.findAllById(productionIds).forEach(p -> productions.put(p.getId(), p));
+        Map<Integer, Candidate> candidates = new HashMap<>();
+        this.candidateRepository.findAllById(candidateIds).forEach(c -> candidates.put(c.getId(), c));
+
+        MatchRun run = new MatchRun(new ArrayList<>(productions.values()), new ArrayList<>(candidates.values()));
+        for (MatchPreview.ProductionChanges changes : preview.getProductions()) {
+            Production production = productions.get(changes.getProductionId());
+            if (production == null || !production.getVersion().equals(changes.getVersion())
+                    || production.slotVersions() != changes.getSlotVersions()) {
+                throw conflict();
+            }
+            for (MatchPreview.SlotChange slot : changes.getSlots()) {
+                Candidate candidate = candidates.get(slot.getCandidateId());
+                if (candidate == null || !candidate.getVersion().equals(slot.getCandidateVersion())
+                        || !run.placeAt(candidate, production, slot.getIndex())) {
+                    throw conflict();
+                }
+            }
+        }
+
+        // Write every placement back in one batch
+        try {
+            this.matchRunService.flush(run);
+        } catch (OptimisticLockException | OptimisticLockingFailureException e) {
+            throw conflict();
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(preview.getMessage());
+    }
+
+    /**
+     * Discards a preview without touching the database.
+     * @param token - The token of the preview to discard.
+     * @return - Returns true if a preview with that token existed.
+     */
+    public boolean discard(String token) {
+        return this.previews.remove(token) != null;
+    }
+
+    // Helper method that collects the slots filled during a run.
+    private static MatchPreview diff(MatchRun run, String strategy, String message,
+                                     Map<Production, List<String>> members) {
+        // Keyed by id, since several candidates may share a name
+        Map<Integer, Candidate> placedCandidates = new HashMap<>();
+        for (Candidate candidate : run.getChangedCandidates()) {
+            placedCandidates.put(candidate.getId(), candidate);
+        }
+
+        MatchPreview preview = new MatchPreview(UUID.randomUUID().toString(), strategy, message);
+        for (Production production : run.getProductions()) {
+            MatchPreview.ProductionChanges changes = new MatchPreview.ProductionChanges(
+                    production.getId(), production.getName(), production.getVersion(), production.slotVersions());
+            List<String> before = members.get(production);
+            for (int i = 0; i < production.getMembers().size(); i++) {
+                String member = production.getMembers().get(i);
+                if (!member.equals(before.get(i))) {
+                    Candidate candidate = placedCandidates.get(production.memberIdAt(i));
+                    if (candidate == null) {
+                        throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Slot " + i + " of " +
+                                production.getName() + " was filled with " + member +
+                                ", who is not among the candidates placed by the match.");
+                    }
+                    changes.getSlots().add(new MatchPreview.SlotChange(i, production.getRoles().get(i), member,
+                            candidate.getId(), candidate.getVersion()));
+                }
+            }
+            if (!changes.getSlots().isEmpty()) {
+                preview.getProductions().add(changes);
+            }
+        }
+        return preview;
+    }
+
+    private static ResponseStatusException conflict() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "The productions or candidates have changed since the preview was created. Please create a new preview.");
+    }
+}
@@ -0,0 +1,96 @@
+package com.lux.crewmatch.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of a match run, updated by the matchers as they place candidates. Matchers stop early once the run is
+ * cancelled or its wall-clock budget has been used up, keeping the placements made so far. Counters may be updated
+ * from several threads.
+ */
+public class MatchProgress {
+
+    // Fields
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger placed = new AtomicInteger();
+    private final long startTime = System.nanoTime();
+    private final long budgetNanos;
+    private volatile boolean cancelled;
+    private volatile boolean budgetExceeded;
+    private volatile long endTime;
+
+    /**
+     * Creates progress for a run without a budget.
+     */
+    public MatchProgress() {
+        this(0);
+    }
+
+    /**
+     * Creates progress for a run with a wall-clock budget.
+     * @param budgetMillis - The time the run may take in milliseconds, or 0 for no limit.
+     */
+    public MatchProgress(long budgetMillis) {
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    /**
+     * Records candidates that have been processed.
+     * @param processedCount - The number of candidates processed since the last update.
+     * @param placedCount - The number of those candidates that were placed.
+     * @return - Returns true if the matcher should continue, or false if it should stop.
+     */
+    public boolean advance(int processedCount, int placedCount) {
+        if (processedCount != 0) {
+            this.processed.addAndGet(processedCount);
+        }
+        if (placedCount != 0) {
+            this.placed.addAndGet(placedCount);
+        }
+        return shouldContinue();
+    }
+
+    // Returns false once the run has been cancelled or has used up its budget
+    public boolean shouldContinue() {
+        if (this.cancelled) {
+            return false;
+        }
+        if (this.budgetNanos > 0 && System.nanoTime() - this.startTime >= this.budgetNanos) {
+            this.budgetExceeded = true;
+            return false;
+        }
+        return true;
+    }
+
+    // Stops the clock once the run has finished
+    public void finish() {
+        if (this.endTime == 0) {
+            this.endTime = System.nanoTime();
+        }
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    public int getPlaced() {
+        return placed.get();
+    }
+
+    public long getElapsedMillis() {
+        long end = this.endTime != 0 ? this.endTime : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - this.startTime);
+    }
+}
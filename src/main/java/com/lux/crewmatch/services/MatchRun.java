@@ -0,0 +1,181 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the complete state of a single match run in memory. Productions are keyed by name so the matching algorithms
+ * never have to query the repository for a preference, and every entity touched by a placement is recorded so the
+ * run can be written back in a single batched flush by the MatchRunService. Placements may be made from several
+ * threads as long as each production is only touched by one of them.
+ */
+public class MatchRun {
+
+    // Fields
+    private final Map<String, Production> productions;
+    private final List<Candidate> candidates;
+    private final Set<Production> changedProductions = new LinkedHashSet<>();
+    private final Set<Candidate> changedCandidates = new LinkedHashSet<>();
+    private MatchProgress progress = new MatchProgress();
+    private RankingPolicy rankingPolicy = RankingPolicy.DEFAULT;
+
+    /**
+     * Creates a match run over the provided productions and candidates.
+     * @param productionList - The active productions that candidates may be placed on.
+     * @param candidateList - The candidates that are to be matched.
+     */
+    public MatchRun(List<Production> productionList, List<Candidate> candidateList) {
+        this.productions = new LinkedHashMap<>();
+        for (Production production : productionList) {
+            this.productions.putIfAbsent(production.getName(), production);
+        }
+        this.candidates = candidateList;
+    }
+
+    /**
+     * Looks up a production taking part in the run by its name.
+     * @param name - The name of the production.
+     * @return - Returns the production, or null if no active production has that name.
+     */
+    public Production getProduction(String name) {
+        return this.productions.get(name);
+    }
+
+    // Adds a production to the run, e.g. one listed by a candidate who joins the run after it was loaded
+    public void addProduction(Production production) {
+        this.productions.putIfAbsent(production.getName(), production);
+    }
+
+    public Collection<Production> getProductions() {
+        return this.productions.values();
+    }
+
+    public List<String> getProductionNames() {
+        return new ArrayList<>(this.productions.keySet());
+    }
+
+    public List<Candidate> getCandidates() {
+        return this.candidates;
+    }
+
+    public MatchProgress getProgress() {
+        return this.progress;
+    }
+
+    // Replaces the progress of the run, e.g. to report it to a match job or give the run a time budget
+    public void setProgress(MatchProgress progress) {
+        this.progress = progress;
+    }
+
+    // The order in which the matchers consider candidates, the default policy unless the run was loaded with another
+    public RankingPolicy getRankingPolicy() {
+        return this.rankingPolicy;
+    }
+
+    public void setRankingPolicy(RankingPolicy rankingPolicy) {
+        this.rankingPolicy = rankingPolicy;
+    }
+
+    /**
+     * Attempts to place a candidate on a production in the given role and records both entities as changed
+     * if the placement succeeds.
+     * @param candidate - The candidate to be placed.
+     * @param production - The production to place the candidate on.
+     * @param role - The role the candidate should fill.
+     * @return - Returns true if the candidate was placed.
+     */
+    public boolean place(Candidate candidate, Production production, String role) {
+        if (!production.place(candidate, role)) {
+            return false;
+        }
+        candidate.assign(production, role);
+        markChanged(candidate, production);
+        return true;
+    }
+
+    /**
+     * Attempts to place a candidate in a particular slot of a production and records both entities as changed if the
+     * placement succeeds.
+     * @param candidate - The candidate to be placed.
+     * @param production - The production to place the candidate on.
+     * @param index - The index of the slot in the production's roles list.
+     * @return - Returns true if the candidate was placed.
+     */
+    public boolean placeAt(Candidate candidate, Production production, int index) {
+        if (!production.placeAt(candidate, index)) {
+            return false;
+        }
+        candidate.assign(production, production.getRoles().get(index));
+        markChanged(candidate, production);
+        return true;
+    }
+
+    /**
+     * Removes a candidate from a role on a production and records both entities as changed if the candidate was
+     * found in that role.
+     * @param candidate - The candidate to be removed.
+     * @param production - The production to remove the candidate from.
+     * @param role - The role the candidate currently fills.
+     * @return - Returns true if the candidate was removed.
+     */
+    public boolean remove(Candidate candidate, Production production, String role) {
+        if (!production.vacate(candidate, role)) {
+            return false;
+        }
+        candidate.unassign(production, role);
+        markChanged(candidate, production);
+        return true;
+    }
+
+    /**
+     * Exchanges the candidates in two occupied slots, each taking over the other's role, and records all four
+     * entities as changed.
+     * @param first - The candidate in the first slot.
+     * @param firstProduction - The production of the first slot.
+     * @param firstIndex - The index of the first slot in its production's roles list.
+     * @param second - The candidate in the second slot.
+     * @param secondProduction - The production of the second slot.
+     * @param secondIndex - The index of the second slot in its production's roles list.
+     */
+    public void swap(Candidate first, Production firstProduction, int firstIndex,
+                     Candidate second, Production secondProduction, int secondIndex) {
+        String firstRole = firstProduction.getRoles().get(firstIndex);
+        String secondRole = secondProduction.getRoles().get(secondIndex);
+        firstProduction.replaceAt(firstIndex, second);
+        secondProduction.replaceAt(secondIndex, first);
+
+        // Assign before unassigning, so neither candidate is left without an assignment in between
+        first.assign(secondProduction, secondRole);
+        first.unassign(firstProduction, firstRole);
+        second.assign(firstProduction, firstRole);
+        second.unassign(secondProduction, secondRole);
+        markChanged(first, firstProduction);
+        markChanged(second, secondProduction);
+    }
+
+    // Marks a production as changed outside a placement, e.g. when its weights are updated.
+    public synchronized void markChanged(Production production) {
+        this.changedProductions.add(production);
+    }
+
+    private synchronized void markChanged(Candidate candidate, Production production) {
+        this.changedCandidates.add(candidate);
+        this.changedProductions.add(production);
+    }
+
+    public Set<Production> getChangedProductions() {
+        return this.changedProductions;
+    }
+
+    public Set<Candidate> getChangedCandidates() {
+        return this.changedCandidates;
+    }
+}
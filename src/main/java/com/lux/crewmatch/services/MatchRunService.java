@@ -0,0 +1,178 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.ConfigRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+@Service
+public class MatchRunService {
+
+    // Repositories
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Autowired
+    ConfigRepository configRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    // Candidates are streamed in pages of this many, matching the fetch size of the id cursor
+    private static final int STREAM_PAGE_SIZE = 256;
+
+    /**
+     * Loads every active production and every unassigned candidate interested in crew roles, with all of their
+     * element collections initialized, into a new match run. The collections are fetched with one query each, so the
+     * number of queries does not depend on the number of productions or candidates.
+     * @return - Returns a match run ready to be used by the matching algorithms.
+     */
+    @Transactional
+    public MatchRun load() {
+        // All queries run in the same persistence context, so each one initializes a collection on the same entities.
+        List<Production> productions = this.productionRepository.findActiveFetchSlots();
+        this.productionRepository.findActiveFetchRankings();
+
+        List<Candidate> candidates = this.candidateRepository.findUnassignedFetchProductions();
+        this.candidateRepository.findUnassignedFetchRoles();
+        this.candidateRepository.findUnassignedFetchAssignments();
+
+        return newRun(productions, candidates);
+    }
+
+    /**
+     * Loads every active production and every placed candidate interested in crew roles, with all of their element
+     * collections initialized, into a new match run. Used to improve the placements of earlier matches.
+     * @return - Returns a match run over the candidates already placed.
+     */
+    @Transactional
+    public MatchRun loadPlaced() {
+        List<Production> productions = this.productionRepository.findActiveFetchSlots();
+        this.productionRepository.findActiveFetchRankings();
+
+        List<Candidate> candidates = this.candidateRepository.findAssignedFetchProductions();
+        this.candidateRepository.findAssignedFetchRoles();
+        this.candidateRepository.findAssignedFetchAssignments();
+
+        return newRun(productions, candidates);
+    }
+
+    /**
+     * Loads every active production, with all of its element collections initialized, into a match run without any
+     * candidates. Used by matchers that stream the candidate pool instead of loading it.
+     * @return - Returns a match run over the active productions.
+     */
+    @Transactional
+    public MatchRun loadProductions() {
+        List<Production> productions = this.productionRepository.findActiveFetchSlots();
+        this.productionRepository.findActiveFetchRankings();
+
+        return newRun(productions, new ArrayList<>());
+    }
+
+    // Reads the ranking policy from the config variables, the default policy unless one is configured
+    public RankingPolicy rankingPolicy() {
+        return RankingPolicy.from(this.configRepository.findAll());
+    }
+
+    // Helper method that creates a match run ranking its candidates by the configured policy.
+    private MatchRun newRun(List<Production> productions, List<Candidate> candidates) {
+        MatchRun run = new MatchRun(productions, candidates);
+        run.setRankingPolicy(rankingPolicy());
+        return run;
+    }
+
+    /**
+     * Streams every ranked, unassigned candidate interested in crew roles from most to least senior. The ids come
+     * from a cursor over the rank index, and each page of candidates is loaded with one query per element collection.
+     * Candidates the consumer does not place in the run are detached once their page is done, so only the productions
+     * and the placed candidates stay in memory however large the pool is.
+     * @param run - The match run the candidates are placed in.
+     * @param consumer - Called with each candidate in order. Returns true to keep going, or false to stop the stream.
+     */
+    @Transactional
+    public void streamUnassigned(MatchRun run, Predicate<Candidate> consumer) {
+        try (Stream<Integer> ids = this.candidateRepository.streamUnassignedIdsBySeniority()) {
+            Iterator<Integer> iterator = ids.iterator();
+            boolean running = true;
+            while (running && iterator.hasNext()) {
+                List<Integer> page = new ArrayList<>(STREAM_PAGE_SIZE);
+                while (iterator.hasNext() && page.size() < STREAM_PAGE_SIZE) {
+                    page.add(iterator.next());
+                }
+
+                Map<Integer, Candidate> candidates = new HashMap<>();
+                this.candidateRepository.findByIdInFetchProductions(page).forEach(c -> candidates.put(c.getId(), c));
+                this.candidateRepository.findByIdInFetchRoles(page);
+                this.candidateRepository.findByIdInFetchAssignments(page);
+
+                for (Integer id : page) {
+                    Candidate candidate = candidates.get(id);
+                    if (running && candidate != null) {
+                        running = consumer.test(candidate);
+                    }
+                }
+                for (Candidate candidate : candidates.values()) {
+                    if (!run.getChangedCandidates().contains(candidate)) {
+                        this.entityManager.detach(candidate);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the seniority rank of candidates saved before the rank was stored, so the streaming match sees them.
+     * Candidates missing the fields the rank is computed from are left without one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillSeniorityRanks() {
+        // Page through by id, since candidates left without a rank are found again by the same query
+        int lastId = Integer.MIN_VALUE;
+        List<Candidate> page;
+        do {
+            page = this.candidateRepository.findBySeniorityRankIsNullAndIdGreaterThanOrderByIdAsc(lastId,
+                    PageRequest.of(0, STREAM_PAGE_SIZE));
+            for (Candidate candidate : page) {
+                candidate.updateSeniorityRank();
+                lastId = candidate.getId();
+            }
+            // Write the page and let go of it before reading the next one
+            this.entityManager.flush();
+            this.entityManager.clear();
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    /**
+     * Writes every production and candidate changed during a run back to the database in one transaction. Statements
+     * are grouped into JDBC batches according to the hibernate batch settings in application.properties.
+     * @param run - The match run whose changes are to be saved.
+     */
+    @Transactional
+    public void flush(MatchRun run) {
+        this.productionRepository.saveAll(run.getChangedProductions());
+        this.candidateRepository.saveAll(run.getChangedCandidates());
+        this.entityManager.flush();
+    }
+}
@@ -1,5 +1,6 @@
 package com.lux.crewmatch.services;
 
+import com.lux.crewmatch.entities.Assignment;
 import com.lux.crewmatch.entities.Candidate;
 import com.lux.crewmatch.entities.Production;
 import com.lux.crewmatch.repositories.CandidateRepository;
@@ -8,11 +9,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 @Service
 public class MatchService {
@@ -23,12 +28,39 @@ public class MatchService {
 
     @Autowired
     ProductionRepository productionRepository;
+
+    @Autowired
+    MatchRunService matchRunService;
+
+    // Pools with fewer candidates than this are matched on the calling thread
+    private static final int PARALLEL_THRESHOLD = 512;
+    int parallelThreshold = PARALLEL_THRESHOLD;
+
+    // Pools with more candidates than this are streamed from the database instead of loaded at once
+    private static final int STREAMING_THRESHOLD = 20000;
     
     // Method to match candidates to productions
     // Returns an http response stating how many candidates were matched
+    @Transactional
     public ResponseEntity<String> match() {
+        // The rank column follows the default policy, so only that policy can be streamed in order
+        if (candidateRepository.countByAssignedFalseAndActingInterestFalse() > STREAMING_THRESHOLD
+                && matchRunService.rankingPolicy().isDefault()) {
+            return streamMatch();
+        }
+        MatchRun run = matchRunService.load();
+        ResponseEntity<String> response = match(run);
+
+        // Write every placement back in one batch
+        matchRunService.flush(run);
+
+        return response;
+    }
+
+    // Runs the match on the entities of a match run in memory, without writing anything back
+    public ResponseEntity<String> match(MatchRun run) {
         // Only assigning unassigned candidates
-        List<Candidate> candidateList = candidateRepository.findByAssignedFalseAndActingInterestFalse();
+        List<Candidate> candidateList = run.getCandidates();
         int totalCandidates = candidateList.size();
         int numCandidatesAssigned = 0;
         int numProductions;
@@ -37,34 +69,43 @@ public class MatchService {
         // - If there are no candidates or no productions, the matching algorithm should not commence.
         ResponseEntity<String> EXPECTATION_FAILED = getStringResponseEntity(candidateList);
         if (EXPECTATION_FAILED != null) return EXPECTATION_FAILED;
-        List<Production> productionList = this.productionRepository.findByArchived(false);
-        numProductions = productionList.size();
+        numProductions = run.getProductions().size();
 
-        PriorityQueue<Candidate> orderedCandidates = new PriorityQueue<>(new CandidateComparator());
+        List<Candidate> orderedCandidates = new ArrayList<>();
         for (Candidate candidate : candidateList) {
             if (candidate.isComplete()) {
                 orderedCandidates.add(candidate);
             }
         }
+        SeniorityOrder.sort(orderedCandidates, run.getRankingPolicy());
 
-        // Iterate through candidate in sorted order
-        while (!orderedCandidates.isEmpty()) {
-            Candidate candidate = orderedCandidates.poll();
-
-            // Skip the candidate if it does not contain all required fields to match
-            if (!candidate.isComplete()) {
-                continue;
+        MatchCore core = new MatchCore(run, orderedCandidates);
+        if (orderedCandidates.size() < this.parallelThreshold) {
+            int[] order = new int[core.size()];
+            for (int c = 0; c < order.length; c++) {
+                order[c] = c;
             }
-
-            if (candidate.getProdPriority()) {
-                // True when candidate prefers to be placed on desired production over role.
-                numCandidatesAssigned += assignToProductionWithProductionBias(candidate, new ArrayList<>(candidate.getRoles()), false);
-
-            } else {
-                // Branch where candidate prefers roles to productions.
-                numCandidatesAssigned += assignToProductionWithRoleBias(candidate, new ArrayList<>(candidate.getProductions()), false);
+            numCandidatesAssigned = core.placeInOrder(order);
+        } else {
+            // Candidates who share no production cannot affect each other's placements, so every connected component
+            // is matched on its own in seniority order, which gives the same result as one serial pass.
+            Map<Candidate, Integer> positions = new IdentityHashMap<>();
+            for (int c = 0; c < orderedCandidates.size(); c++) {
+                positions.put(orderedCandidates.get(c), c);
+            }
+            List<ForkJoinTask<Integer>> tasks = new ArrayList<>();
+            for (List<Candidate> component : new ComponentDecomposer(run).split(orderedCandidates)) {
+                int[] order = new int[component.size()];
+                for (int c = 0; c < order.length; c++) {
+                    order[c] = positions.get(component.get(c));
+                }
+                tasks.add(ForkJoinPool.commonPool().submit(() -> core.placeInOrder(order)));
+            }
+            for (ForkJoinTask<Integer> task : tasks) {
+                numCandidatesAssigned += task.join();
             }
         }
+        core.apply(run);
 
         return ResponseEntity.status(HttpStatus.OK).body(
                 numCandidatesAssigned + " have been placed on " + numProductions + " productions. " + (totalCandidates - numCandidatesAssigned) +
@@ -73,11 +114,88 @@ public class MatchService {
 
     }
 
+    // Method to match candidates to productions by the same rule as match(), reading the pool in the seniority order
+    // of the default ranking policy from the database so that only the productions and the placed candidates are held in memory
+    // Returns an http response stating how many candidates were matched
+    @Transactional
+    public ResponseEntity<String> streamMatch() {
+        int totalCandidates = (int) candidateRepository.countByAssignedFalseAndActingInterestFalse();
+
+        // Input processing:
+        // - If there are no candidates or no productions, the matching algorithm should not commence.
+        if (totalCandidates == 0) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("There are no candidates to match.");
+        }
+        if ((int) this.productionRepository.count() == 0) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("No productions have been created.");
+        }
+        MatchRun run = matchRunService.loadProductions();
+        int numProductions = run.getProductions().size();
+
+        int[] numCandidatesAssigned = {0};
+        MatchProgress progress = run.getProgress();
+        matchRunService.streamUnassigned(run, candidate -> {
+            boolean placed = candidate.isComplete() && placeGreedy(run, candidate);
+            if (placed) {
+                numCandidatesAssigned[0]++;
+            }
+            return progress.advance(1, placed ? 1 : 0);
+        });
+
+        // Write every placement back in one batch
+        matchRunService.flush(run);
+
+        return ResponseEntity.status(HttpStatus.OK).body(
+                numCandidatesAssigned[0] + " have been placed on " + numProductions + " productions. " + (totalCandidates - numCandidatesAssigned[0]) +
+                " remain to be matched."
+        );
+    }
+
+    // Places a candidate in the first production (or role, depending on their priority) with a vacant slot for one of
+    // their roles (or productions), the rule MatchCore follows for the greedy match
+    private static boolean placeGreedy(MatchRun run, Candidate candidate) {
+        if (candidate.getProdPriority()) {
+            for (String productionName : candidate.getProductions()) {
+                Production production = run.getProduction(productionName);
+                if (production == null) {
+                    continue;
+                }
+                for (String role : candidate.getRoles()) {
+                    if (run.place(candidate, production, role)) {
+                        return true;
+                    }
+                }
+            }
+        } else {
+            for (String role : candidate.getRoles()) {
+                for (String productionName : candidate.getProductions()) {
+                    Production production = run.getProduction(productionName);
+                    if (production != null && run.place(candidate, production, role)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     // Method to match candidates without taking production/role preferences into consideration
     // Returns an http response with how many candidates were matched.
+    @Transactional
     public ResponseEntity<String> matchWithoutPreference() {
+        MatchRun run = matchRunService.load();
+        ResponseEntity<String> response = matchWithoutPreference(run);
+
+        // Write every placement back in one batch
+        matchRunService.flush(run);
+
+        return response;
+    }
+
+    // Runs the match on the entities of a match run in memory, without writing anything back
+    public ResponseEntity<String> matchWithoutPreference(MatchRun run) {
         // Select unassigned candidates
-        List<Candidate> candidateList = this.candidateRepository.findByAssignedFalseAndActingInterestFalse();
+        List<Candidate> candidateList = run.getCandidates();
         int totalCandidates = candidateList.size();
         int numCandidatesAssigned = 0;
         int numProductions;
@@ -85,70 +203,66 @@ public class MatchService {
         // Input processing
         ResponseEntity<String> EXPECTATION_FAILED = getStringResponseEntity(candidateList);
         if (EXPECTATION_FAILED != null) return EXPECTATION_FAILED;
-        numProductions = (int) this.productionRepository.count();
+        numProductions = run.getProductions().size();
 
-        // Initialize ordered candidate list
-        PriorityQueue<Candidate> orderedCandidates = new PriorityQueue<>(new CandidateComparator());
+        // Initialize ordered candidate list, which is sorted once and reused by both passes
+        List<Candidate> orderedCandidates = new ArrayList<>();
         for (Candidate candidate : candidateList) {
             if (candidate.isComplete()) {
                 orderedCandidates.add(candidate);
             }
         }
+        SeniorityOrder.sort(orderedCandidates, run.getRankingPolicy());
 
-        while (!orderedCandidates.isEmpty()) {
-            Candidate candidate = orderedCandidates.poll();
-
-            // Skip the candidate if it does not contain all required fields to match
-            if (!candidate.isComplete()) {
-                continue;
-            }
-
+        MatchProgress progress = run.getProgress();
+        for (Candidate candidate : orderedCandidates) {
             // Based on production priority, assign candidate to any role in their top productions
             // or any production with their top roles
+            int placed;
             if (candidate.getProdPriority()) {
                 // The roles to choose from will be determined by the roles in stored productions
-                numCandidatesAssigned += assignToProductionWithProductionBias(candidate, null, true);
+                placed = assignToProductionWithProductionBias(run, candidate, null, true);
             } else {
                 // The productions to choose from will be determined by all available ones in the repository
-                numCandidatesAssigned += assignToProductionWithRoleBias(candidate, null, true);
+                placed = assignToProductionWithRoleBias(run, candidate, null, true);
+            }
+            numCandidatesAssigned += placed;
+            if (!progress.advance(1, placed)) {
+                break;
             }
         }
 
         // If there are still candidates to assign, do so without any preferences considered
         // Last resort --> Nothing available that fits the candidates' choices
-        // Start by rechecking for candidates that are unmatched
-        candidateList = new ArrayList<>(this.candidateRepository.findByAssignedFalseAndActingInterestFalse());
-        for (Candidate candidate : candidateList) {
-            if (candidate.isComplete()) {
-                orderedCandidates.add(candidate);
-            }
-        }
-
-        while (!orderedCandidates.isEmpty()) {
-            Candidate candidate = orderedCandidates.poll();
-
-            // Obtain all productions
-            List<String> productions = obtainAllProductionNames();
-            for (String production : productions) {
-
-                Optional<Production> productionOptional = Optional.ofNullable(productionRepository.findByName(production));
-                if (productionOptional.isEmpty()) {
+        // Every vacant slot goes into one queue, highest role weight first, and each remaining candidate takes the
+        // top slot in seniority order
+        PriorityQueue<Assignment> vacantSlots = new PriorityQueue<>(new AssignmentComparator()
+                .thenComparing(assignment -> assignment.getProduction().getName())
+                .thenComparing(Assignment::getAssignmentIndex));
+        for (Production production : run.getProductions()) {
+            double vacantWeight = production.vacantWeight();
+            for (int k = 0; k < production.getRoles().size(); k++) {
+                if (!production.getMembers().get(k).equals("")) {
                     continue;
                 }
-                Production productionToTry = productionOptional.get();
-
-                // Try to place candidate in any role
-                for (String role : new ArrayList<>(productionToTry.getRoles())) {
-                    if (productionToTry.place(candidate, role)) {
-                        numCandidatesAssigned++;
-                        candidate.assign(productionToTry, role);
-                        productionRepository.save(productionToTry);
-                        candidateRepository.save(candidate);
-                        break;
-                    }
-                }
+                double weight = k < production.getRoleWeights().size()
+                        ? Production.effectiveWeight(production.getRoleWeights().get(k), vacantWeight) : 0.0;
+                vacantSlots.add(new Assignment(null, production, k, production.getRoles().get(k), weight));
+            }
+        }
+        for (Candidate candidate : orderedCandidates) {
+            if (vacantSlots.isEmpty() || !progress.shouldContinue()) {
+                break;
+            }
+            if (candidate.getAssigned()) {
+                continue;
             }
 
+            Assignment slot = vacantSlots.poll();
+            if (run.placeAt(candidate, slot.getProduction(), slot.getAssignmentIndex())) {
+                numCandidatesAssigned++;
+                progress.advance(0, 1);
+            }
         }
 
         return ResponseEntity.status(HttpStatus.OK).body(
@@ -158,7 +272,7 @@ public class MatchService {
 
     }
 
-    private Integer assignToProductionWithProductionBias(Candidate candidate, List<String> roles, boolean useProdRoles) {
+    private Integer assignToProductionWithProductionBias(MatchRun run, Candidate candidate, List<String> roles, boolean useProdRoles) {
         int numCandidatesAssigned = 0;
 
         for (String production : new ArrayList<>(candidate.getProductions())) {
@@ -167,20 +281,16 @@ public class MatchService {
                 break;
             }
 
-            Optional<Production> productionOptional = Optional.ofNullable(productionRepository.findByName(production));
-            if (productionOptional.isEmpty()) {
+            Production productionToTry = run.getProduction(production);
+            if (productionToTry == null) {
                 continue;
             }
 
             // Try to place a candidate on a production with any roles.
-            Production productionToTry = productionOptional.get();
             List<String> rolesToUse = useProdRoles ? new ArrayList<>(productionToTry.getRoles()) : roles;
             for (String role : rolesToUse) {
-                if (productionToTry.place(candidate, role)) {
+                if (run.place(candidate, productionToTry, role)) {
                     numCandidatesAssigned++;
-                    candidate.assign(productionToTry, role);
-                    productionRepository.save(productionToTry);
-                    candidateRepository.save(candidate);
                     break;
                 }
             }
@@ -189,7 +299,7 @@ public class MatchService {
         return numCandidatesAssigned;
     }
 
-    private Integer assignToProductionWithRoleBias(Candidate candidate, List<String> productions, boolean useRepoProds) {
+    private Integer assignToProductionWithRoleBias(MatchRun run, Candidate candidate, List<String> productions, boolean useRepoProds) {
         int numCandidatesAssigned = 0;
 
         for (String role : new ArrayList<>(candidate.getRoles())) {
@@ -199,21 +309,17 @@ public class MatchService {
             }
 
             // Use appropriate productions names
-            List<String> prodsToUse = useRepoProds ? obtainAllProductionNames() : productions;
+            List<String> prodsToUse = useRepoProds ? run.getProductionNames() : productions;
 
             for (String production : prodsToUse) {
-                Optional<Production> productionOptional = Optional.ofNullable(productionRepository.findByName(production));
-                if (productionOptional.isEmpty()) {
+                Production productionToTry = run.getProduction(production);
+                if (productionToTry == null) {
                     continue;
                 }
 
-                Production productionToTry = productionOptional.get();
                 // Attempt to place with the given role
-                if (productionToTry.place(candidate, role)) {
+                if (run.place(candidate, productionToTry, role)) {
                     numCandidatesAssigned++;
-                    candidate.assign(productionToTry, role);
-                    productionRepository.save(productionToTry);
-                    candidateRepository.save(candidate);
                     break;
                 }
             }
@@ -233,14 +339,4 @@ public class MatchService {
         return null;
     }
 
-    private List<String> obtainAllProductionNames() {
-        List<Production> allProductions = productionRepository.findByArchived(false);
-        List<String> prodNames = new ArrayList<>();
-        for (Production prod : allProductions) {
-            prodNames.add(prod.getName());
-        }
-
-        return prodNames;
-    }
-
 }
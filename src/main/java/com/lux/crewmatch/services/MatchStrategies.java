@@ -0,0 +1,114 @@
+package com.lux.crewmatch.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Maps the name of a match endpoint to the matcher behind it, so previews and match jobs can run any strategy on a
+ * match run.
+ */
+@Component
+public class MatchStrategies {
+
+    // Matchers
+    @Autowired
+    MatchService matchService;
+
+    @Autowired
+    WeightedMatchService weightedMatchService;
+
+    @Autowired
+    StableMatchService stableMatchService;
+
+    @Autowired
+    MonteCarloMatchService monteCarloMatchService;
+
+    @Autowired
+    ConstraintMatchService constraintMatchService;
+
+    /**
+     * Finds the matcher for a strategy with its default parameters.
+     * @param strategy - The name of the match endpoint, e.g. "match" or "weightedMatch".
+     * @return - Returns a function that runs the match on a match run without writing anything.
+     */
+    public Function<MatchRun, ResponseEntity<String>> get(String strategy) {
+        return get(strategy, Map.of());
+    }
+
+    /**
+     * Finds the matcher for a strategy. Throws a bad request exception if a parameter has the wrong type.
+     * @param strategy - The name of the match endpoint, e.g. "match" or "weightedMatch".
+     * @param parameters - The request parameters of the endpoint by name, e.g. "runs" and "seed" for
+     *                   "monteCarloMatch". Parameters left out take the endpoint's defaults, and others are ignored.
+     * @return - Returns a function that runs the match on a match run without writing anything.
+     */
+    public Function<MatchRun, ResponseEntity<String>> get(String strategy, Map<String, ?> parameters) {
+        return switch (strategy) {
+            case "match" -> this.matchService::match;
+            case "matchNoPreference" -> this.matchService::matchWithoutPreference;
+            case "weightedMatch" -> this.weightedMatchService::weightedMatch;
+            case "optimalWeightedMatch" -> this.weightedMatchService::optimalWeightedMatch;
+            case "stableMatch" -> this.stableMatchService::stableMatch;
+            case "monteCarloMatch" -> {
+                int runs = intParameter(parameters, "runs", MonteCarloMatchService.DEFAULT_RUNS);
+                long seed = longParameter(parameters, "seed", MonteCarloMatchService.DEFAULT_SEED);
+                yield run -> this.monteCarloMatchService.monteCarloMatch(run, runs, seed);
+            }
+            case "constraintMatch" -> {
+                long budgetMillis = longParameter(parameters, "budgetMillis", ConstraintMatchService.DEFAULT_BUDGET_MILLIS);
+                long seed = longParameter(parameters, "seed", ConstraintMatchService.DEFAULT_SEED);
+                yield run -> this.constraintMatchService.constraintMatch(run, budgetMillis, seed);
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "There is no match strategy with that name.");
+        };
+    }
+
+    // Reads a whole number parameter, given either as a number or as text
+    static long longParameter(Map<String, ?> parameters, String name, long defaultValue) {
+        Object value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return value instanceof Number number && !(value instanceof Double || value instanceof Float)
+                    ? number.longValue() : Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The parameter " + name + " must be a whole number.");
+        }
+    }
+
+    static int intParameter(Map<String, ?> parameters, String name, int defaultValue) {
+        long value = longParameter(parameters, name, defaultValue);
+        if (value != (int) value) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The parameter " + name + " is out of range.");
+        }
+        return (int) value;
+    }
+
+    // Reads a true or false parameter, given either as a boolean or as text
+    static boolean booleanParameter(Map<String, ?> parameters, String name, boolean defaultValue) {
+        Object value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        return switch (value.toString()) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The parameter " + name + " must be true or false.");
+        };
+    }
+
+    static String stringParameter(Map<String, ?> parameters, String name, String defaultValue) {
+        Object value = parameters.get(name);
+        return value == null ? defaultValue : value.toString();
+    }
+}
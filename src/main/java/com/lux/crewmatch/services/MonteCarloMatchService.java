@@ -0,0 +1,228 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs the greedy match many times with different orders among equally senior candidates and keeps the best result.
+ *
+ * Candidates are always matched from most to least senior by every level of the ranking policy but the last, which
+ * for the default policy means by quarters in LUX and years at UW. Within a group that ties on those levels, the first
+ * run keeps the full policy order and every other run shuffles the group with a random generator seeded from the
+ * run's seed and its number. Runs work on their own copies of the match core, so they share
+ * no mutable state and are spread over every core. The same seed and number of runs always give the same result.
+ */
+@Service
+public class MonteCarloMatchService {
+
+    // Repositories
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Autowired
+    MatchRunService matchRunService;
+
+    public static final int DEFAULT_RUNS = 32;
+    public static final int MAX_RUNS = 1024;
+    public static final long DEFAULT_SEED = 0;
+
+    // Weights of a candidate's first, second and third choice when scoring a run
+    private static final double[] CHOICE_WEIGHTS = {4.0, 2.0, 1.0};
+
+    // Method to match candidates to productions with the best of many tie-breaking orders
+    // Returns an http response stating how many candidates were matched and which run was chosen
+    @Transactional
+    public ResponseEntity<String> monteCarloMatch(int runs, long seed) {
+        MatchRun run = matchRunService.load();
+        ResponseEntity<String> response = monteCarloMatch(run, runs, seed);
+
+        // Write every placement of the best run back in one batch
+        matchRunService.flush(run);
+
+        return response;
+    }
+
+    // Runs the match with the default number of runs and seed, without writing anything back
+    public ResponseEntity<String> monteCarloMatch(MatchRun run) {
+        return monteCarloMatch(run, DEFAULT_RUNS, DEFAULT_SEED);
+    }
+
+    // Runs the match on the entities of a match run in memory, without writing anything back
+    public ResponseEntity<String> monteCarloMatch(MatchRun run, int runs, long seed) {
+        List<Candidate> candidateList = run.getCandidates();
+        int totalCandidates = candidateList.size();
+
+        // Input processing:
+        // - If there are no candidates or no productions, the matching algorithm should not commence.
+        // - At least one run is needed, and at most MAX_RUNS are tried.
+        ResponseEntity<String> EXPECTATION_FAILED = getStringResponseEntity(candidateList);
+        if (EXPECTATION_FAILED != null) return EXPECTATION_FAILED;
+        if (runs < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The number of runs must be at least 1.");
+        }
+        if (runs > MAX_RUNS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The number of runs may be at most " + MAX_RUNS + ".");
+        }
+        int numProductions = run.getProductions().size();
+
+        List<Candidate> orderedCandidates = new ArrayList<>();
+        for (Candidate candidate : candidateList) {
+            if (candidate.isComplete()) {
+                orderedCandidates.add(candidate);
+            }
+        }
+        SeniorityOrder.sort(orderedCandidates, run.getRankingPolicy());
+
+        // Groups of candidates that tie on every level of the ranking policy but its last, which breaks the ties
+        // the trials explore, as ranges of the seniority order. A policy of a single level groups equal keys.
+        RankingPolicy policy = run.getRankingPolicy();
+        int[] groupEnd = SeniorityOrder.tieGroupEnds(orderedCandidates, policy,
+                policy.numLevels() > 1 ? policy.numLevels() - 1 : policy.numLevels());
+
+        // Try every run in parallel, each on its own copy of the core, which is dropped once the run is scored. Runs
+        // left out by a cancellation or an exhausted budget are not scored.
+        MatchCore core = new MatchCore(run, orderedCandidates);
+        MatchProgress progress = run.getProgress();
+        List<ForkJoinTask<Score>> tasks = new ArrayList<>();
+        for (int r = 0; r < runs; r++) {
+            int number = r;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                if (!progress.shouldContinue()) {
+                    return null;
+                }
+                MatchCore trial = core.copy(new MatchProgress());
+                trial.placeInOrder(order(groupEnd, seed, number));
+                return score(trial, number);
+            }));
+        }
+        Score best = null;
+        for (ForkJoinTask<Score> task : tasks) {
+            Score score = task.join();
+            if (score != null && (best == null || score.compareTo(best) > 0)) {
+                best = score;
+            }
+        }
+        if (best == null) {
+            return ResponseEntity.status(HttpStatus.OK).body(
+                    "0 have been placed on " + numProductions + " productions. " + totalCandidates + " remain to be matched."
+            );
+        }
+
+        // Repeat the best run on a fresh copy of the core and apply it. Its order only depends on the seed and its
+        // number, and it reports to its own progress, so it places exactly as it did when scored even when the run has
+        // been stopped since.
+        int numCandidatesAssigned = best.placed;
+        MatchCore winner = core.copy(new MatchProgress());
+        winner.placeInOrder(order(groupEnd, seed, best.run));
+        winner.apply(run);
+        progress.advance(winner.size(), numCandidatesAssigned);
+
+        return ResponseEntity.status(HttpStatus.OK).body(
+                numCandidatesAssigned + " have been placed on " + numProductions + " productions. " + (totalCandidates - numCandidatesAssigned) +
+                        " remain to be matched. Run " + (best.run + 1) + " of " + runs + " (seed " + seed + ") was chosen, " +
+                        "with " + best.firstChoices + " first choices and a satisfaction of " + best.satisfaction + "."
+        );
+    }
+
+    // The match order of a run. The first run keeps the seniority order, and later runs shuffle each group of ties.
+    private static int[] order(int[] groupEnd, long seed, int run) {
+        int[] order = new int[groupEnd.length];
+        for (int c = 0; c < order.length; c++) {
+            order[c] = c;
+        }
+        if (run == 0) {
+            return order;
+        }
+        Random random = new Random(seed * 1_000_003L + run);
+        for (int start = 0; start < order.length; start = groupEnd[start]) {
+            for (int i = groupEnd[start] - 1; i > start; i--) {
+                int j = start + random.nextInt(i - start + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+        }
+        return order;
+    }
+
+    // Scores a run by the choices its candidates were placed by
+    private static Score score(MatchCore core, int run) {
+        Score score = new Score(run);
+        for (int c = 0; c < core.size(); c++) {
+            int choice = core.placedChoice(c);
+            if (choice == -1) {
+                continue;
+            }
+            int productionRank = choice / core.numRoles(c);
+            int roleRank = choice % core.numRoles(c);
+            boolean prodPriority = core.prodPriority(c);
+            int preferredRank = prodPriority ? productionRank : roleRank;
+            int otherRank = prodPriority ? roleRank : productionRank;
+
+            score.placed++;
+            if (preferredRank == 0) {
+                score.firstChoices++;
+            }
+            // The rank of the preferred choice dominates, as in the optimal weighted match
+            score.satisfaction += weight(preferredRank) * CHOICE_WEIGHTS[0] + weight(otherRank);
+        }
+        return score;
+    }
+
+    private static double weight(int rank) {
+        return rank < CHOICE_WEIGHTS.length ? CHOICE_WEIGHTS[rank] : 0.0;
+    }
+
+    // The objective of a run: the most candidates placed, then the highest satisfaction, then the most first choices.
+    // Ties go to the earlier run.
+    private static class Score implements Comparable<Score> {
+
+        private final int run;
+        private int placed;
+        private int firstChoices;
+        private double satisfaction;
+
+        private Score(int run) {
+            this.run = run;
+        }
+
+        @Override
+        public int compareTo(Score other) {
+            int cmp = Integer.compare(this.placed, other.placed);
+            if (cmp != 0) {
+                return cmp;
+            }
+            cmp = Double.compare(this.satisfaction, other.satisfaction);
+            if (cmp != 0) {
+                return cmp;
+            }
+            cmp = Integer.compare(this.firstChoices, other.firstChoices);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return -Integer.compare(this.run, other.run);
+        }
+    }
+
+    // Helper method that determines if there are candidate and productions to be matched.
+    private ResponseEntity<String> getStringResponseEntity(List<Candidate> candidateList) {
+        if (candidateList.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("There are no candidates to match.");
+        }
+        if ((int) this.productionRepository.count() == 0) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("No productions have been created.");
+        }
+        return null;
+    }
+}
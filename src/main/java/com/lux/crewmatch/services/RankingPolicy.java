@@ -0,0 +1,159 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Configs;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The order in which candidates are ranked by seniority, read from the config variables. Each variable named
+ * "rank:LEVEL:FIELD" adds FIELD with its value as the weight to the weighted sum of that level. Candidates are ordered
+ * by the sum of the lowest level first, a higher sum ranking first, and the following levels break the ties in turn.
+ * A negative weight therefore ranks lower values first. Ties that remain are broken by name.
+ *
+ * Fields are "quartersInLux", "yearsInUW" and "timestamp" (in seconds, with unreadable timestamps last). Without
+ * any ranking variables the policy is that of the CandidateComparator:
+ * rank:1:quartersInLux = 1, rank:2:yearsInUW = 1, rank:3:timestamp = -1.
+ *
+ * The policy is compiled into one primitive key per candidate and level before a sort (see SeniorityOrder), so the
+ * variables are never interpreted while comparing candidates.
+ */
+public class RankingPolicy {
+
+    public static final String RANK_PREFIX = "rank:";
+    public static final int MAX_WEIGHT = 1000;
+
+    static final String[] FIELDS = {"quartersInLux", "yearsInUW", "timestamp"};
+    private static final int QUARTERS = 0;
+    private static final int YEARS = 1;
+    private static final int TIMESTAMP = 2;
+
+    // Seconds after the earliest timestamp are capped so a weighted sum cannot overflow
+    private static final long MAX_SECONDS = 1L << 40;
+
+    public static final RankingPolicy DEFAULT = new RankingPolicy(new long[][] {{1, 0, 0}, {0, 1, 0}, {0, 0, -1}});
+
+    // The weight of every field on each level, in level order
+    private final long[][] weights;
+
+    private RankingPolicy(long[][] weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * Collects the ranking policy from the config variables. Variables without a value, invalid ranking variables
+     * and any others are ignored.
+     * @param configs - Every config variable.
+     * @return - Returns the policy, or the default policy if no ranking variables are configured.
+     */
+    public static RankingPolicy from(Iterable<Configs> configs) {
+        Map<Integer, long[]> levels = new TreeMap<>();
+        for (Configs config : configs) {
+            if (config.getName() == null || config.getValue() == null || validate(config.getName(), config.getValue()) != null) {
+                continue;
+            }
+            String[] parts = config.getName().split(":");
+            int level = Integer.parseInt(parts[1]);
+            levels.computeIfAbsent(level, l -> new long[FIELDS.length])[Arrays.asList(FIELDS).indexOf(parts[2])] = config.getValue();
+        }
+        if (levels.isEmpty()) {
+            return DEFAULT;
+        }
+        return new RankingPolicy(levels.values().toArray(new long[0][]));
+    }
+
+    /**
+     * Checks a ranking variable before it is saved.
+     * @param name - The name of the config variable, starting with "rank:".
+     * @param value - The weight of the field.
+     * @return - Returns a message stating what is wrong with the variable, or null if it is valid.
+     */
+    public static String validate(String name, Integer value) {
+        String[] parts = name.split(":", -1);
+        if (parts.length != 3 || !parts[0].equals("rank") || !parts[1].matches("-?\\d{1,9}")) {
+            return "A ranking variable must be named rank:LEVEL:FIELD, with a whole number as the level.";
+        }
+        if (!Arrays.asList(FIELDS).contains(parts[2])) {
+            return "A ranking variable must rank by one of " + String.join(", ", FIELDS) + ".";
+        }
+        if (value != null && Math.abs((long) value) > MAX_WEIGHT) {
+            return "The weight of a ranking variable must be between -" + MAX_WEIGHT + " and " + MAX_WEIGHT + ".";
+        }
+        return null;
+    }
+
+    public boolean isDefault() {
+        return Arrays.deepEquals(this.weights, DEFAULT.weights);
+    }
+
+    public int numLevels() {
+        return this.weights.length;
+    }
+
+    /**
+     * Compares two complete candidates by the policy, for code that ranks candidates a few at a time instead of
+     * sorting a whole pool, e.g. a priority queue. Ties on every level are broken by name, as in a sort.
+     * @return - Returns a comparator that orders candidates from most to least senior.
+     */
+    public Comparator<Candidate> comparator() {
+        return (first, second) -> {
+            long[][] keys = keys(new Candidate[] {first, second});
+            for (long[] key : keys) {
+                int cmp = Long.compare(key[0], key[1]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return first.getName().compareTo(second.getName());
+        };
+    }
+
+    /**
+     * Computes the key of every candidate on every level. Each field is read once per candidate, and each key is the
+     * negated weighted sum of its level, so that ascending keys order the candidates from most to least senior.
+     * @param candidates - The complete candidates to rank.
+     * @return - Returns the keys by level, then by the position of the candidate.
+     */
+    long[][] keys(Candidate[] candidates) {
+        int n = candidates.length;
+        long[][] fields = new long[FIELDS.length][n];
+        boolean[] unreadable = new boolean[n];
+        long earliest = Long.MAX_VALUE;
+        long latest = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            fields[QUARTERS][i] = candidates[i].getQuartersInLux();
+            fields[YEARS][i] = candidates[i].getYearsInUW();
+            Long timestamp = candidates[i].getTimestampMillis();
+            unreadable[i] = timestamp == null;
+            if (timestamp != null) {
+                fields[TIMESTAMP][i] = Math.floorDiv(timestamp, 1000L);
+                earliest = Math.min(earliest, fields[TIMESTAMP][i]);
+                latest = Math.max(latest, fields[TIMESTAMP][i]);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            // Unreadable timestamps rank after every readable one
+            long seconds = unreadable[i] ? latest - earliest + 1 : fields[TIMESTAMP][i] - earliest;
+            fields[TIMESTAMP][i] = Math.min(Math.max(seconds, 0), MAX_SECONDS);
+        }
+
+        long[][] keys = new long[this.weights.length][n];
+        for (int level = 0; level < this.weights.length; level++) {
+            for (int f = 0; f < FIELDS.length; f++) {
+                long weight = this.weights[level][f];
+                if (weight == 0) {
+                    continue;
+                }
+                long[] key = keys[level];
+                long[] field = fields[f];
+                for (int i = 0; i < n; i++) {
+                    key[i] -= weight * field[i];
+                }
+            }
+        }
+        return keys;
+    }
+}
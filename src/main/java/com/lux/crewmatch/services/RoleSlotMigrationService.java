@@ -0,0 +1,74 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Moves the crews of productions saved before role slots existed into the ROLE_SLOTS table. Those crews are held in
+ * the PRODUCTION_ROLES, PROD_ROLE_WEIGHTS and PRODUCTION_MEMBERS tables, which are left in place afterwards.
+ */
+@Service
+public class RoleSlotMigrationService {
+
+    // Repositories
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * Builds the slots of every production that has none from the old crew tables. The old tables have no order
+     * column, so their rows are read in the order they are stored, as the old element collections were.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void migrateRosters() {
+        if (!tableExists("PRODUCTION_ROLES")) {
+            return;
+        }
+        for (Production production : this.productionRepository.findAll()) {
+            if (!production.getRoles().isEmpty()) {
+                continue;
+            }
+            List<String> roles = column("PRODUCTION_ROLES", "ROLES", production.getId());
+            if (roles.isEmpty()) {
+                continue;
+            }
+            List<String> members = column("PRODUCTION_MEMBERS", "MEMBERS", production.getId());
+            List<Number> weights = column("PROD_ROLE_WEIGHTS", "ROLE_WEIGHTS", production.getId());
+            production.setRoles(roles);
+            production.setMembers(members.subList(0, Math.min(members.size(), roles.size())));
+            // The stored weights are already normalized
+            for (int i = 0; i < weights.size() && i < roles.size(); i++) {
+                production.getRoleWeights().set(i, weights.get(i) != null ? weights.get(i).doubleValue() : null);
+            }
+        }
+    }
+
+    // Helper method that determines if a table exists in the database.
+    private boolean tableExists(String table) {
+        Number count = (Number) this.entityManager.createNativeQuery(
+                        "select count(*) from information_schema.tables where upper(table_name) = :table")
+                .setParameter("table", table)
+                .getSingleResult();
+        return count.intValue() > 0;
+    }
+
+    // Helper method that reads one column of an old crew table for a production.
+    @SuppressWarnings("unchecked")
+    private <T> List<T> column(String table, String column, Integer productionId) {
+        return this.entityManager.createNativeQuery("select " + column + " from " + table + " where ID = :id")
+                .setParameter("id", productionId)
+                .getResultList();
+    }
+}
@@ -0,0 +1,176 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorts candidates into the order of a RankingPolicy with primitive comparisons only.
+ *
+ * The policy gives every candidate one long key per level. When the keys fit, each candidate is reduced to a single
+ * long, from the most significant bits down: the key of each level relative to its smallest value, then the candidate's
+ * position in the pool. Sorting these longs sorts the candidates, and the low bits of each identify its candidate.
+ * Otherwise the positions are merge sorted by comparing the keys level by level. Candidates with equal keys on every
+ * level are then put in name order, so names are only compared between candidates the policy cannot tell apart.
+ */
+public final class SeniorityOrder {
+
+    private SeniorityOrder() {
+
+    }
+
+    /**
+     * Sorts a list of complete candidates from most to least senior by the default policy, i.e. the order of the
+     * CandidateComparator.
+     * @param candidates - The candidates to sort in place.
+     */
+    public static void sort(List<Candidate> candidates) {
+        sort(candidates, RankingPolicy.DEFAULT);
+    }
+
+    /**
+     * Sorts a list of complete candidates from most to least senior.
+     * @param candidates - The candidates to sort in place.
+     * @param policy - The ranking policy that defines seniority.
+     */
+    public static void sort(List<Candidate> candidates, RankingPolicy policy) {
+        int n = candidates.size();
+        if (n < 2) {
+            return;
+        }
+        Candidate[] pool = candidates.toArray(new Candidate[0]);
+        long[][] keys = policy.keys(pool);
+
+        int[] order = packedOrder(keys, n);
+        if (order == null) {
+            order = mergedOrder(keys, n);
+        }
+
+        // Break the remaining ties by name, one run of equal keys at a time
+        Comparator<Candidate> byName = Comparator.comparing(Candidate::getName);
+        int start = 0;
+        for (int k = 1; k <= n; k++) {
+            if (k < n && compare(keys, order[start], order[k]) == 0) {
+                continue;
+            }
+            if (k - start > 1) {
+                Candidate[] tied = new Candidate[k - start];
+                for (int t = start; t < k; t++) {
+                    tied[t - start] = pool[order[t]];
+                }
+                Arrays.sort(tied, byName);
+                for (int t = start; t < k; t++) {
+                    candidates.set(t, tied[t - start]);
+                }
+            } else {
+                candidates.set(start, pool[order[start]]);
+            }
+            start = k;
+        }
+    }
+
+    /**
+     * Finds the runs of candidates that tie on the leading levels of a policy, in a list sorted by that policy.
+     * @param sorted - Complete candidates in the order of the policy.
+     * @param policy - The ranking policy the candidates were sorted by.
+     * @param levels - The number of leading levels compared, at most the number of levels of the policy.
+     * @return - Returns, for every position, the position just after the last candidate of its run.
+     */
+    public static int[] tieGroupEnds(List<Candidate> sorted, RankingPolicy policy, int levels) {
+        int n = sorted.size();
+        long[][] keys = policy.keys(sorted.toArray(new Candidate[0]));
+        int[] groupEnd = new int[n];
+        for (int c = n - 1; c >= 0; c--) {
+            boolean last = c == n - 1;
+            for (int level = 0; level < levels && !last; level++) {
+                last = keys[level][c] != keys[level][c + 1];
+            }
+            groupEnd[c] = last ? c + 1 : groupEnd[c + 1];
+        }
+        return groupEnd;
+    }
+
+    // Helper method that sorts the positions by packing every key into one long, or returns null if they do not fit.
+    private static int[] packedOrder(long[][] keys, int n) {
+        int indexBits = 32 - Integer.numberOfLeadingZeros(n - 1);
+        int[] bits = new int[keys.length];
+        long[] min = new long[keys.length];
+        int totalBits = indexBits;
+        for (int level = 0; level < keys.length; level++) {
+            long lo = Long.MAX_VALUE;
+            long hi = Long.MIN_VALUE;
+            for (long key : keys[level]) {
+                lo = Math.min(lo, key);
+                hi = Math.max(hi, key);
+            }
+            long range = hi - lo;
+            if (range < 0) {
+                return null;
+            }
+            min[level] = lo;
+            bits[level] = 64 - Long.numberOfLeadingZeros(range);
+            totalBits += bits[level];
+        }
+        if (totalBits > 63) {
+            return null;
+        }
+
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            long key = 0;
+            for (int level = 0; level < keys.length; level++) {
+                key = key << bits[level] | (keys[level][i] - min[level]);
+            }
+            packed[i] = key << indexBits | i;
+        }
+        Arrays.sort(packed);
+
+        int[] order = new int[n];
+        long indexMask = (1L << indexBits) - 1;
+        for (int k = 0; k < n; k++) {
+            order[k] = (int) (packed[k] & indexMask);
+        }
+        return order;
+    }
+
+    // Helper method that merge sorts the positions by their keys, for keys too wide to be packed.
+    private static int[] mergedOrder(long[][] keys, int n) {
+        int[] order = new int[n];
+        int[] buffer = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int a = lo;
+                int b = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (b >= hi || (a < mid && compare(keys, order[a], order[b]) <= 0)) {
+                        buffer[k] = order[a++];
+                    } else {
+                        buffer[k] = order[b++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    // Helper method that compares two candidates by their keys, level by level.
+    private static int compare(long[][] keys, int a, int b) {
+        for (long[] key : keys) {
+            int cmp = Long.compare(key[a], key[b]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,290 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches candidates to productions with candidate-proposing deferred acceptance (Gale-Shapley).
+ *
+ * Every role on a production with vacant slots forms a program whose capacity is the number of vacant slots for that
+ * role. Candidates propose to programs in their preference order, and each program holds the best ranked proposals
+ * it has received so far according to the production lead's rankings. Candidates the lead has not ranked come after
+ * all ranked candidates in seniority order. The result is stable: no candidate and production prefer each other over
+ * their final placements.
+ */
+@Service
+public class StableMatchService {
+
+    // Repositories
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Autowired
+    MatchRunService matchRunService;
+
+    // Progress is checked once every 1024 proposals
+    private static final int PROGRESS_INTERVAL = 1023;
+
+    // Method to match candidates to productions with a stable matching
+    // Returns an HTTP response stating how many candidates were matched
+    @Transactional
+    public ResponseEntity<String> stableMatch() {
+        MatchRun run = matchRunService.load();
+        ResponseEntity<String> response = stableMatch(run);
+
+        // Write every placement back in one batch
+        matchRunService.flush(run);
+
+        return response;
+    }
+
+    // Runs the match on the entities of a match run in memory, without writing anything back
+    public ResponseEntity<String> stableMatch(MatchRun run) {
+        List<Candidate> candidateList = run.getCandidates();
+        int totalCandidates = candidateList.size();
+        int numCandidatesAssigned = 0;
+        int numProductions;
+
+        // Input processing:
+        // - If there are no candidates or no productions, the matching algorithm should not commence.
+        ResponseEntity<String> EXPECTATION_FAILED = getStringResponseEntity(candidateList);
+        if (EXPECTATION_FAILED != null) return EXPECTATION_FAILED;
+        numProductions = run.getProductions().size();
+
+        // Candidates in seniority order, which is also the order used for candidates a lead has not ranked
+        List<Candidate> candidates = new ArrayList<>();
+        for (Candidate candidate : candidateList) {
+            if (candidate.isComplete()) {
+                candidates.add(candidate);
+            }
+        }
+        SeniorityOrder.sort(candidates, run.getRankingPolicy());
+        int n = candidates.size();
+
+        // Create a program for every role with vacant slots on each production
+        Map<Production, Map<String, Integer>> programIds = new HashMap<>();
+        List<Production> programProductions = new ArrayList<>();
+        List<String> programRoles = new ArrayList<>();
+        List<Integer> capacities = new ArrayList<>();
+        for (Production production : run.getProductions()) {
+            Map<String, Integer> rolePrograms = new HashMap<>();
+            for (int k = 0; k < production.getRoles().size(); k++) {
+                if (!production.getMembers().get(k).equals("")) {
+                    continue;
+                }
+                String role = production.getRoles().get(k);
+                Integer program = rolePrograms.get(role);
+                if (program == null) {
+                    rolePrograms.put(role, programProductions.size());
+                    programProductions.add(production);
+                    programRoles.add(role);
+                    capacities.add(1);
+                } else {
+                    capacities.set(program, capacities.get(program) + 1);
+                }
+            }
+            programIds.put(production, rolePrograms);
+        }
+        int numPrograms = programProductions.size();
+
+        // Rank lookup of every production: ranked candidates first, then everyone else by seniority
+        Map<Production, Map<String, Integer>> leadRanks = new HashMap<>();
+        for (Production production : run.getProductions()) {
+            Map<String, Integer> ranks = new HashMap<>();
+            if (production.getRankings() != null) {
+                for (String name : production.getRankings()) {
+                    ranks.putIfAbsent(name, ranks.size());
+                }
+            }
+            leadRanks.put(production, ranks);
+        }
+
+        // Flatten each candidate's preferences into program ids, storing the program's rank of the candidate
+        // alongside each proposal so acceptance decisions are O(1) lookups
+        int[] prefStart = new int[n + 1];
+        int[] prefProgram = new int[n * 9];
+        int[] prefRank = new int[n * 9];
+        int numPrefs = 0;
+        for (int c = 0; c < n; c++) {
+            prefStart[c] = numPrefs;
+            Candidate candidate = candidates.get(c);
+            List<String> productions = candidate.getProductions();
+            List<String> roles = candidate.getRoles();
+            int outer = candidate.getProdPriority() ? productions.size() : roles.size();
+            int inner = candidate.getProdPriority() ? roles.size() : productions.size();
+            for (int i = 0; i < outer && i < 3; i++) {
+                for (int j = 0; j < inner && j < 3; j++) {
+                    String productionName = candidate.getProdPriority() ? productions.get(i) : productions.get(j);
+                    String role = candidate.getProdPriority() ? roles.get(j) : roles.get(i);
+                    Production production = run.getProduction(productionName);
+                    if (production == null) {
+                        continue;
+                    }
+                    Integer program = programIds.get(production).get(role);
+                    if (program == null || contains(prefProgram, prefStart[c], numPrefs, program)) {
+                        continue;
+                    }
+                    Integer rank = leadRanks.get(production).get(candidate.getName());
+                    prefProgram[numPrefs] = program;
+                    prefRank[numPrefs] = rank != null ? rank : leadRanks.get(production).size() + c;
+                    numPrefs++;
+                }
+            }
+        }
+        prefStart[n] = numPrefs;
+
+        // Each program holds its accepted candidates in an array-backed max-heap keyed by rank, worst on top
+        int[] heapStart = new int[numPrograms + 1];
+        for (int p = 0; p < numPrograms; p++) {
+            heapStart[p + 1] = heapStart[p] + capacities.get(p);
+        }
+        int[] heap = new int[heapStart[numPrograms]];
+        int[] heapSize = new int[numPrograms];
+        int[] heldRank = new int[n];
+        int[] heldProgram = new int[n];
+        Arrays.fill(heldProgram, -1);
+
+        // Free candidates propose in turn, the most senior first
+        int[] next = new int[n];
+        int[] free = new int[n];
+        int top = 0;
+        for (int c = n - 1; c >= 0; c--) {
+            free[top++] = c;
+            next[c] = prefStart[c];
+        }
+
+        // Stop proposing once the run is cancelled or out of time. Candidates held at that point may still be
+        // displaced, so the holds are not a stable matching and are discarded rather than placed.
+        MatchProgress progress = run.getProgress();
+        int proposals = 0;
+        while (top > 0) {
+            if ((++proposals & PROGRESS_INTERVAL) == 0 && !progress.shouldContinue()) {
+                return ResponseEntity.status(HttpStatus.OK).body(
+                        "The match was stopped before it was stable, so no candidates have been placed. " +
+                                totalCandidates + " remain to be matched."
+                );
+            }
+            int c = free[--top];
+            if (next[c] == prefStart[c + 1]) {
+                // Every preference has rejected the candidate
+                continue;
+            }
+            int k = next[c]++;
+            int program = prefProgram[k];
+            int rank = prefRank[k];
+
+            if (heapSize[program] < capacities.get(program)) {
+                heldRank[c] = rank;
+                heldProgram[c] = program;
+                heapPush(heap, heapStart[program], heapSize[program]++, c, heldRank);
+            } else {
+                int worst = heap[heapStart[program]];
+                if (rank < heldRank[worst]) {
+                    heldRank[c] = rank;
+                    heldProgram[c] = program;
+                    heldProgram[worst] = -1;
+                    heapReplaceTop(heap, heapStart[program], heapSize[program], c, heldRank);
+                    free[top++] = worst;
+                } else {
+                    free[top++] = c;
+                }
+            }
+        }
+
+        // Place every held candidate, filling each program's slots in rank order
+        Integer[] order = new Integer[n];
+        for (int c = 0; c < n; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(heldRank[a], heldRank[b]));
+        for (int c : order) {
+            int program = heldProgram[c];
+            int placed = 0;
+            if (program != -1 && run.place(candidates.get(c), programProductions.get(program), programRoles.get(program))) {
+                numCandidatesAssigned++;
+                placed = 1;
+            }
+            progress.advance(1, placed);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(
+                numCandidatesAssigned + " have been placed on " + numProductions + " productions. " + (totalCandidates - numCandidatesAssigned) +
+                        " remain to be matched."
+        );
+    }
+
+    // Helper method that checks whether a program already appears in part of the flattened preferences.
+    private static boolean contains(int[] values, int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Adds a candidate to a program's heap, where the candidate with the highest rank value sits on top.
+    private static void heapPush(int[] heap, int start, int size, int candidate, int[] rank) {
+        int i = size;
+        heap[start + i] = candidate;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (rank[heap[start + parent]] >= rank[heap[start + i]]) {
+                break;
+            }
+            swap(heap, start + parent, start + i);
+            i = parent;
+        }
+    }
+
+    // Replaces the top of a full heap with a new candidate and restores the heap order.
+    private static void heapReplaceTop(int[] heap, int start, int size, int candidate, int[] rank) {
+        heap[start] = candidate;
+        int i = 0;
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && rank[heap[start + left]] > rank[heap[start + largest]]) {
+                largest = left;
+            }
+            if (right < size && rank[heap[start + right]] > rank[heap[start + largest]]) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(heap, start + i, start + largest);
+            i = largest;
+        }
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int temp = values[i];
+        values[i] = values[j];
+        values[j] = temp;
+    }
+
+    // Helper method that determines if there are candidate and productions to be matched.
+    private ResponseEntity<String> getStringResponseEntity(List<Candidate> candidateList) {
+        if (candidateList.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("There are no candidates to match.");
+        }
+        if ((int) this.productionRepository.count() == 0) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("No productions have been created.");
+        }
+        return null;
+    }
+}
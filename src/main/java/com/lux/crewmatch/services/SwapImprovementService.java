@@ -0,0 +1,142 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.entities.SwapRequest;
+import com.lux.crewmatch.repositories.SwapRequestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Improves the placements of earlier matches by exchanging placed candidates between slots with the SwapImprover.
+ * The exchanges are either applied directly, or saved as pending swap requests for the production leads to accept.
+ */
+@Service
+public class SwapImprovementService {
+
+    // Repositories
+    @Autowired
+    SwapRequestRepository swapRequestRepository;
+
+    @Autowired
+    MatchRunService matchRunService;
+
+    /**
+     * Finds improving exchanges between the candidates placed on active productions.
+     * @param apply - True to make the exchanges, or false to save them as swap requests without changing any placement.
+     * @param objective - Whether an exchange must leave nobody worse off, or only raise the total score.
+     * @param threeWay - Whether to also look for rotations between three candidates.
+     * @return - Returns a ResponseEntity with a message containing how many swaps were found and how much they raise
+     * the total score.
+     */
+    @Transactional
+    public ResponseEntity<String> improve(boolean apply, SwapImprover.Objective objective, boolean threeWay) {
+        MatchRun run = matchRunService.loadPlaced();
+        ResponseEntity<String> response = improve(run, apply, objective, threeWay);
+
+        // Write the exchanged placements back in one batch
+        if (apply) {
+            matchRunService.flush(run);
+        }
+
+        return response;
+    }
+
+    // Finds the exchanges on a match run of placed candidates. Applied exchanges are only made on the entities of the
+    // run, while suggested ones are saved as swap requests.
+    public ResponseEntity<String> improve(MatchRun run, boolean apply, SwapImprover.Objective objective,
+                                          boolean threeWay) {
+        if (run.getCandidates().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body("There are no placed candidates to improve.");
+        }
+
+        SwapImprover improver = new SwapImprover(new ArrayList<>(run.getProductions()), run.getCandidates(),
+                objective, threeWay);
+        Candidate[] occupants = improver.occupants();
+        double before = improver.totalScore();
+        List<int[]> swaps = improver.improve(run.getProgress());
+        double after = improver.totalScore();
+
+        // Replay the swaps in order on a copy of the occupants, so each one refers to where the candidates are at
+        // that point without touching the productions unless the swaps are applied
+        List<SwapRequest> requests = new ArrayList<>();
+        for (int[] swap : swaps) {
+            Production firstProduction = improver.productionOf(swap[0]);
+            Production secondProduction = improver.productionOf(swap[1]);
+            int firstIndex = improver.indexOf(swap[0]);
+            int secondIndex = improver.indexOf(swap[1]);
+            Candidate first = occupants[swap[0]];
+            Candidate second = occupants[swap[1]];
+            occupants[swap[0]] = second;
+            occupants[swap[1]] = first;
+            if (apply) {
+                run.swap(first, firstProduction, firstIndex, second, secondProduction, secondIndex);
+            } else {
+                requests.add(toRequest(first, firstProduction, firstIndex, second, secondProduction, secondIndex));
+            }
+        }
+
+        if (apply) {
+            return ResponseEntity.status(HttpStatus.OK).body(
+                    swaps.size() + " swaps have been made, raising the total preference score from " + before + " to " +
+                            after + "."
+            );
+        }
+
+        this.swapRequestRepository.saveAll(requests);
+        return ResponseEntity.status(HttpStatus.OK).body(
+                requests.size() + " swap requests have been suggested, which would raise the total preference score " +
+                        "from " + before + " to " + after + ". They should be accepted in the order they were created."
+        );
+    }
+
+    /**
+     * Reads the mode of an improvement. Throws a bad request exception if the mode is not recognized.
+     * @param mode - "suggest" to save the exchanges as swap requests, or "apply" to make them.
+     * @return - Returns true if the exchanges should be made.
+     */
+    public static boolean applies(String mode) {
+        return switch (mode) {
+            case "suggest" -> false;
+            case "apply" -> true;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The mode must be \"suggest\" or \"apply\".");
+        };
+    }
+
+    /**
+     * Reads the objective of an improvement. Throws a bad request exception if the objective is not recognized.
+     * @param objective - "pareto" to only make exchanges that leave nobody worse off, or "total" to make any exchange
+     *                  that raises the total preference score.
+     * @return - Returns the objective.
+     */
+    public static SwapImprover.Objective objective(String objective) {
+        return switch (objective) {
+            case "pareto" -> SwapImprover.Objective.PARETO;
+            case "total" -> SwapImprover.Objective.TOTAL;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The objective must be \"pareto\" or \"total\".");
+        };
+    }
+
+    // Creates a pending swap request between the leads of two productions
+    private static SwapRequest toRequest(Candidate first, Production firstProduction, int firstIndex,
+                                         Candidate second, Production secondProduction, int secondIndex) {
+        SwapRequest request = new SwapRequest();
+        request.setCompleted(false);
+        request.setFromLead(firstProduction.getProdLead());
+        request.setToLead(secondProduction.getProdLead());
+        request.setProduction1(firstProduction.getName());
+        request.setMember1(first.getName());
+        request.setRole1(firstProduction.getRoles().get(firstIndex));
+        request.setProduction2(secondProduction.getName());
+        request.setMember2(second.getName());
+        request.setRole2(secondProduction.getRoles().get(secondIndex));
+        return request;
+    }
+}
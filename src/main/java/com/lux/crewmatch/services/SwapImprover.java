@@ -0,0 +1,338 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local search over the placements of a match run that exchanges candidates between occupied slots.
+ *
+ * Every slot keeps its role, so exchanges never break a production's crew. Candidates are scored by the slot they hold:
+ * a slot whose production and role they both listed scores by the ranks of the two choices, with the rank of the
+ * preferred choice (production or role) dominating as in the optimal weighted match, and any other slot scores 0. A
+ * pairwise swap, or optionally a three way rotation, is made only if it is an improvement: under the Pareto objective
+ * nobody may be worse off and someone must be better off, while under the total objective the sum of the scores must
+ * rise. Under either objective, nobody is moved into a slot whose production and role they did not both list, so a swap
+ * never trades one candidate's gain for a placement another never asked for. Each candidate can only gain by moving
+ * into one of the at most nine (production, role) pairs they listed, so the partners of a candidate are found through
+ * an index from role and production to slots instead of by comparing every pair of candidates.
+ */
+public class SwapImprover {
+
+    public enum Objective {
+        PARETO, TOTAL
+    }
+
+    // Weights of a candidate's first, second and third choice
+    private static final double[] CHOICE_WEIGHTS = {4.0, 2.0, 1.0};
+    private static final double EPSILON = 1e-9;
+
+    // Rounds stop early once a full pass finds no improvement
+    private static final int MAX_ROUNDS = 100;
+
+    // Slots, with the program (production, role pair) of each and the candidate holding it, or -1
+    private final Production[] productions;
+    private final int[] slotStart;
+    private final int[] slotProduction;
+    private final int[] slotProgram;
+    private final int[] occupant;
+
+    // Index from role to production to the slots of that program
+    private final Map<String, Map<String, Integer>> programIds = new HashMap<>();
+    private final List<int[]> programSlots = new ArrayList<>();
+
+    // Candidates with the programs they listed and the score each of those programs gives them
+    private final Candidate[] candidates;
+    private final int[][] desiredPrograms;
+    private final double[][] desiredScores;
+
+    private final Objective objective;
+    private final boolean threeWay;
+
+    // The exchanges made so far, as pairs of slots swapped in order
+    private final List<int[]> swaps = new ArrayList<>();
+
+    /**
+     * Builds the slot index of a match run.
+     * @param productions - The productions whose occupied slots may be exchanged.
+     * @param candidates - The placed candidates, matched to slots by id, or by name where a slot has no member id.
+     *                   Slots held by anyone else are left alone.
+     * @param objective - Whether a swap must leave nobody worse off, or only raise the total score.
+     * @param threeWay - Whether to also look for rotations between three candidates.
+     */
+    public SwapImprover(List<Production> productions, List<Candidate> candidates, Objective objective, boolean threeWay) {
+        this.objective = objective;
+        this.threeWay = threeWay;
+        this.productions = productions.toArray(new Production[0]);
+        this.candidates = candidates.toArray(new Candidate[0]);
+
+        // Slots record the id of their member, so candidates sharing a name are told apart; only slots whose member
+        // is known by name alone are matched by name
+        Map<Integer, Integer> candidateIds = new HashMap<>();
+        Map<String, Integer> candidateNames = new HashMap<>();
+        for (int c = 0; c < this.candidates.length; c++) {
+            if (this.candidates[c].getId() != null) {
+                candidateIds.putIfAbsent(this.candidates[c].getId(), c);
+            }
+            candidateNames.putIfAbsent(this.candidates[c].getName(), c);
+        }
+        boolean[] seated = new boolean[this.candidates.length];
+
+        this.slotStart = new int[this.productions.length + 1];
+        for (int p = 0; p < this.productions.length; p++) {
+            this.slotStart[p + 1] = this.slotStart[p] + this.productions[p].getRoles().size();
+        }
+        int numSlots = this.slotStart[this.productions.length];
+        this.slotProduction = new int[numSlots];
+        this.slotProgram = new int[numSlots];
+        this.occupant = new int[numSlots];
+        List<List<Integer>> slotsByProgram = new ArrayList<>();
+        for (int p = 0; p < this.productions.length; p++) {
+            Production production = this.productions[p];
+            for (int k = 0; k < production.getRoles().size(); k++) {
+                int slot = this.slotStart[p] + k;
+                Map<String, Integer> byProduction = this.programIds.computeIfAbsent(production.getRoles().get(k),
+                        role -> new HashMap<>());
+                Integer program = byProduction.get(production.getName());
+                if (program == null) {
+                    program = slotsByProgram.size();
+                    byProduction.put(production.getName(), program);
+                    slotsByProgram.add(new ArrayList<>());
+                }
+                slotsByProgram.get(program).add(slot);
+                this.slotProduction[slot] = p;
+                this.slotProgram[slot] = program;
+                Integer memberId = production.memberIdAt(k);
+                Integer candidate = memberId != null ? candidateIds.get(memberId)
+                        : candidateNames.get(production.getMembers().get(k));
+                // A candidate matched by name to a second slot is someone else, whose slot is left alone
+                if (candidate != null && !seated[candidate]) {
+                    seated[candidate] = true;
+                    this.occupant[slot] = candidate;
+                } else {
+                    this.occupant[slot] = -1;
+                }
+            }
+        }
+        for (List<Integer> slots : slotsByProgram) {
+            this.programSlots.add(slots.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        // Resolve the (production, role) pairs every candidate listed into programs
+        this.desiredPrograms = new int[this.candidates.length][];
+        this.desiredScores = new double[this.candidates.length][];
+        for (int c = 0; c < this.candidates.length; c++) {
+            Candidate candidate = this.candidates[c];
+            List<String> productionChoices = candidate.getProductions() != null ? candidate.getProductions() : List.of();
+            List<String> roleChoices = candidate.getRoles() != null ? candidate.getRoles() : List.of();
+            List<Integer> programs = new ArrayList<>();
+            List<Double> scores = new ArrayList<>();
+            for (int j = 0; j < roleChoices.size(); j++) {
+                Map<String, Integer> byProduction = this.programIds.get(roleChoices.get(j));
+                if (byProduction == null) {
+                    continue;
+                }
+                for (int i = 0; i < productionChoices.size(); i++) {
+                    Integer program = byProduction.get(productionChoices.get(i));
+                    if (program == null || programs.contains(program)) {
+                        continue;
+                    }
+                    programs.add(program);
+                    scores.add(score(candidate, i, j));
+                }
+            }
+            this.desiredPrograms[c] = programs.stream().mapToInt(Integer::intValue).toArray();
+            this.desiredScores[c] = scores.stream().mapToDouble(Double::doubleValue).toArray();
+        }
+    }
+
+    /**
+     * Makes improving exchanges until none is left, the round limit is reached or the progress asks to stop.
+     * @param progress - The progress of the run, checked after every round.
+     * @return - Returns the exchanges made, as pairs of global slot ids swapped in order. A rotation between three
+     * candidates is recorded as two swaps.
+     */
+    public List<int[]> improve(MatchProgress progress) {
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            int made = 0;
+            for (int slot = 0; slot < this.occupant.length; slot++) {
+                if (this.occupant[slot] != -1 && (improvePair(slot) || (this.threeWay && improveRotation(slot)))) {
+                    made++;
+                }
+            }
+            if (made == 0 || !progress.shouldContinue()) {
+                break;
+            }
+        }
+        return this.swaps;
+    }
+
+    // The candidate holding each slot, by global slot id, or null where the slot is vacant or held by anyone else
+    public Candidate[] occupants() {
+        Candidate[] occupants = new Candidate[this.occupant.length];
+        for (int slot = 0; slot < this.occupant.length; slot++) {
+            occupants[slot] = this.occupant[slot] != -1 ? this.candidates[this.occupant[slot]] : null;
+        }
+        return occupants;
+    }
+
+    public Production productionOf(int slot) {
+        return this.productions[this.slotProduction[slot]];
+    }
+
+    // The index of a slot in its production's roles list
+    public int indexOf(int slot) {
+        return slot - this.slotStart[this.slotProduction[slot]];
+    }
+
+    // The total score of every candidate in their current slots
+    public double totalScore() {
+        double total = 0;
+        for (int slot = 0; slot < this.occupant.length; slot++) {
+            if (this.occupant[slot] != -1) {
+                total += scoreAt(this.occupant[slot], slot);
+            }
+        }
+        return total;
+    }
+
+    // Makes the best improving swap between the candidate in a slot and a candidate in one of their listed programs
+    private boolean improvePair(int slotA) {
+        int a = this.occupant[slotA];
+        double currentA = scoreAt(a, slotA);
+        double bestGain = EPSILON;
+        int bestSlot = -1;
+        for (int d = 0; d < this.desiredPrograms[a].length; d++) {
+            double gainA = this.desiredScores[a][d] - currentA;
+            if (gainA <= EPSILON) {
+                continue;
+            }
+            for (int slotB : this.programSlots.get(this.desiredPrograms[a][d])) {
+                int b = this.occupant[slotB];
+                if (b == -1 || b == a) {
+                    continue;
+                }
+                if (!listed(b, slotA)) {
+                    continue;
+                }
+                double gainB = scoreAt(b, slotA) - scoreAt(b, slotB);
+                if (accepts(gainA, gainB, 0) && gainA + gainB > bestGain
+                        && canMove(a, slotA, slotB) && canMove(b, slotB, slotA)) {
+                    bestGain = gainA + gainB;
+                    bestSlot = slotB;
+                }
+            }
+        }
+        if (bestSlot == -1) {
+            return false;
+        }
+        swap(slotA, bestSlot);
+        return true;
+    }
+
+    // Makes the first improving rotation where the candidate in slot A moves to slot B, B's candidate moves to slot C
+    // and C's candidate moves to slot A
+    private boolean improveRotation(int slotA) {
+        int a = this.occupant[slotA];
+        double currentA = scoreAt(a, slotA);
+        for (int d = 0; d < this.desiredPrograms[a].length; d++) {
+            double gainA = this.desiredScores[a][d] - currentA;
+            if (gainA <= EPSILON) {
+                continue;
+            }
+            for (int slotB : this.programSlots.get(this.desiredPrograms[a][d])) {
+                int b = this.occupant[slotB];
+                if (b == -1 || b == a || !canMove(a, slotA, slotB)) {
+                    continue;
+                }
+                double currentB = scoreAt(b, slotB);
+                for (int e = 0; e < this.desiredPrograms[b].length; e++) {
+                    double gainB = this.desiredScores[b][e] - currentB;
+                    if (this.objective == Objective.PARETO && gainB < -EPSILON) {
+                        continue;
+                    }
+                    for (int slotC : this.programSlots.get(this.desiredPrograms[b][e])) {
+                        int c = this.occupant[slotC];
+                        if (c == -1 || c == a || c == b || !listed(c, slotA)) {
+                            continue;
+                        }
+                        double gainC = scoreAt(c, slotA) - scoreAt(c, slotC);
+                        if (accepts(gainA, gainB, gainC) && canMove(b, slotB, slotC) && canMove(c, slotC, slotA)) {
+                            // A and B trade first, then B (now in slot A) trades with C
+                            swap(slotA, slotB);
+                            swap(slotA, slotC);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean accepts(double gainA, double gainB, double gainC) {
+        if (this.objective == Objective.PARETO) {
+            return gainA > -EPSILON && gainB > -EPSILON && gainC > -EPSILON && gainA + gainB + gainC > EPSILON;
+        }
+        return gainA + gainB + gainC > EPSILON;
+    }
+
+    // A candidate may move unless they already hold another slot on the destination production
+    private boolean canMove(int candidate, int from, int to) {
+        int p = this.slotProduction[to];
+        if (p == this.slotProduction[from]) {
+            return true;
+        }
+        for (int slot = this.slotStart[p]; slot < this.slotStart[p + 1]; slot++) {
+            if (this.occupant[slot] == candidate) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void swap(int slotA, int slotB) {
+        int a = this.occupant[slotA];
+        this.occupant[slotA] = this.occupant[slotB];
+        this.occupant[slotB] = a;
+        this.swaps.add(new int[]{slotA, slotB});
+    }
+
+    // The score of a candidate if they held a slot
+    private double scoreAt(int c, int slot) {
+        int d = desiredIndex(c, slot);
+        return d != -1 ? this.desiredScores[c][d] : 0.0;
+    }
+
+    // Whether a candidate listed both the production and the role of a slot
+    private boolean listed(int c, int slot) {
+        return desiredIndex(c, slot) != -1;
+    }
+
+    private int desiredIndex(int c, int slot) {
+        int program = this.slotProgram[slot];
+        int[] programs = this.desiredPrograms[c];
+        for (int d = 0; d < programs.length; d++) {
+            if (programs[d] == program) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    // The rank of the preferred choice dominates, and the rank of the other choice breaks ties
+    private static double score(Candidate candidate, int productionRank, int roleRank) {
+        boolean prodPriority = Boolean.TRUE.equals(candidate.getProdPriority());
+        int preferredRank = prodPriority ? productionRank : roleRank;
+        int otherRank = prodPriority ? roleRank : productionRank;
+        return weight(preferredRank) * CHOICE_WEIGHTS[0] + weight(otherRank);
+    }
+
+    private static double weight(int rank) {
+        return rank < CHOICE_WEIGHTS.length ? CHOICE_WEIGHTS[rank] : 0.0;
+    }
+}
@@ -0,0 +1,115 @@
+package com.lux.crewmatch.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of a weighted match run with every combination of a set of candidate weight vectors and production
+ * weight scalings, for comparing them before one is chosen.
+ */
+public class WeightSweep {
+
+    // Fields
+    private final Integer chosen;
+    private final List<Result> results = new ArrayList<>();
+
+    public WeightSweep(Integer chosen) {
+        this.chosen = chosen;
+    }
+
+    // The index of the combination that was saved, or null if none was
+    public Integer getChosen() {
+        return chosen;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * The grid to sweep. Every candidate weight vector is combined with every production scaling.
+     */
+    public static class Request {
+
+        // The weights of a candidate's first, second and third choice, e.g. [4.0, 2.0, 1.0]
+        private List<List<Double>> candidateWeights;
+        // Factors of the role weights of productions by name. Productions left out keep a factor of 1.
+        private List<Map<String, Double>> productionScalings;
+        // The index of a combination to save, in the order of the results
+        private Integer chosen;
+
+        public List<List<Double>> getCandidateWeights() {
+            return candidateWeights;
+        }
+
+        public void setCandidateWeights(List<List<Double>> candidateWeights) {
+            this.candidateWeights = candidateWeights;
+        }
+
+        public List<Map<String, Double>> getProductionScalings() {
+            return productionScalings;
+        }
+
+        public void setProductionScalings(List<Map<String, Double>> productionScalings) {
+            this.productionScalings = productionScalings;
+        }
+
+        public Integer getChosen() {
+            return chosen;
+        }
+
+        public void setChosen(Integer chosen) {
+            this.chosen = chosen;
+        }
+    }
+
+    /**
+     * The outcome of one combination.
+     */
+    public static class Result {
+
+        private final int index;
+        private final List<Double> candidateWeights;
+        private final Map<String, Double> productionScaling;
+        private final int placed;
+        private final double firstChoiceRate;
+        private final Map<String, Integer> emptySlots;
+
+        public Result(int index, List<Double> candidateWeights, Map<String, Double> productionScaling, int placed,
+                      double firstChoiceRate, Map<String, Integer> emptySlots) {
+            this.index = index;
+            this.candidateWeights = candidateWeights;
+            this.productionScaling = productionScaling;
+            this.placed = placed;
+            this.firstChoiceRate = firstChoiceRate;
+            this.emptySlots = emptySlots;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<Double> getCandidateWeights() {
+            return candidateWeights;
+        }
+
+        public Map<String, Double> getProductionScaling() {
+            return productionScaling;
+        }
+
+        public int getPlaced() {
+            return placed;
+        }
+
+        // The share of placed candidates who got their first choice of the production or role they put first
+        public double getFirstChoiceRate() {
+            return firstChoiceRate;
+        }
+
+        // The number of vacant slots left on each production
+        public Map<String, Integer> getEmptySlots() {
+            return emptySlots;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.lux.crewmatch.services;
 
-import com.lux.crewmatch.entities.Assignment;
 import com.lux.crewmatch.entities.Candidate;
 import com.lux.crewmatch.entities.Production;
 import com.lux.crewmatch.repositories.CandidateRepository;
@@ -9,11 +8,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.PriorityQueue;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 @Service
 public class WeightedMatchService {
@@ -25,14 +30,32 @@ public class WeightedMatchService {
     @Autowired
     ProductionRepository productionRepository;
 
+    @Autowired
+    MatchRunService matchRunService;
+
     // Candidate weight constant
-    private static final Double[] CANDIDATE_WEIGHTS = { 4.0, 2.0, 1.0 };
+    private static final double[] CANDIDATE_WEIGHTS = { 4.0, 2.0, 1.0 };
+
+    // The most combinations a single weight sweep may run
+    public static final int MAX_SWEEP_COMBINATIONS = 256;
 
     // Method to match candidates to productions with production role weights considered
     // Returns an HTTP response stating how many candidates were matched
+    @Transactional
     public ResponseEntity<String> weightedMatch() {
+        MatchRun run = matchRunService.load();
+        ResponseEntity<String> response = weightedMatch(run);
+
+        // Write every placement back in one batch
+        matchRunService.flush(run);
+
+        return response;
+    }
+
+    // Runs the match on the entities of a match run in memory, without writing anything back
+    public ResponseEntity<String> weightedMatch(MatchRun run) {
         // Get all unassigned candidates
-        List<Candidate> candidateList = candidateRepository.findByAssignedFalseAndActingInterestFalse();
+        List<Candidate> candidateList = run.getCandidates();
         int totalCandidates = candidateList.size();
         int numCandidatesAssigned = 0;
         int numProductions;
@@ -41,31 +64,20 @@ public class WeightedMatchService {
         // - If there are no candidates or no productions, the matching algorithm should not commence.
         ResponseEntity<String> EXPECTATION_FAILED = getStringResponseEntity(candidateList);
         if (EXPECTATION_FAILED != null) return EXPECTATION_FAILED;
-        List<Production> productionList = this.productionRepository.findByArchived(false);
-        numProductions = productionList.size();
+        numProductions = run.getProductions().size();
 
-        PriorityQueue<Candidate> orderedCandidates = new PriorityQueue<>(new CandidateComparator());
+        List<Candidate> orderedCandidates = new ArrayList<>();
         for (Candidate candidate : candidateList) {
             if (candidate.isComplete()) {
                 orderedCandidates.add(candidate);
             }
         }
+        SeniorityOrder.sort(orderedCandidates, run.getRankingPolicy());
 
-        // Iterate candidates in sorted order
-        while (!orderedCandidates.isEmpty()) {
-            Candidate candidate = orderedCandidates.poll();
-
-            // Skip the candidate if it does not contain all required fields to match
-            if (!candidate.isComplete()) {
-                continue;
-            }
-
-            if (candidate.getProdPriority()) {
-                numCandidatesAssigned += assignToProductionWithWeightedProductionBias(candidate, new ArrayList<>(candidate.getRoles()));
-            } else {
-                numCandidatesAssigned += assignToProductionWithWeightedRoleBias(candidate, new ArrayList<>(candidate.getProductions()));
-            }
-        }
+        // Place candidates in sorted order, then write the placements back to the entities
+        MatchCore core = new MatchCore(run, orderedCandidates);
+        numCandidatesAssigned = core.placeWeighted(CANDIDATE_WEIGHTS);
+        core.apply(run);
 
         return ResponseEntity.status(HttpStatus.OK).body(
                 numCandidatesAssigned + " have been placed on " + numProductions + " productions. " + (totalCandidates - numCandidatesAssigned) +
@@ -73,135 +85,255 @@ public class WeightedMatchService {
         );
     }
 
-    private Integer assignToProductionWithWeightedProductionBias(Candidate candidate, List<String> roles) {
+    // Method to match candidates to productions so that the total weight of all placements is as high as possible
+    // Returns an HTTP response stating how many candidates were matched
+    @Transactional
+    public ResponseEntity<String> optimalWeightedMatch() {
+        MatchRun run = matchRunService.load();
+        ResponseEntity<String> response = optimalWeightedMatch(run);
+
+        // Write every placement back in one batch
+        matchRunService.flush(run);
+
+        return response;
+    }
+
+    // Runs the match on the entities of a match run in memory, without writing anything back
+    public ResponseEntity<String> optimalWeightedMatch(MatchRun run) {
+        List<Candidate> candidateList = run.getCandidates();
+        int totalCandidates = candidateList.size();
         int numCandidatesAssigned = 0;
+        int numProductions;
 
-        for (int i = 0; i < candidate.getProductions().size(); i++) {
-            // Exit the loop if candidate becomes assigned
-            if (candidate.getAssigned()) {
-                break;
+        // Input processing:
+        // - If there are no candidates or no productions, the matching algorithm should not commence.
+        ResponseEntity<String> EXPECTATION_FAILED = getStringResponseEntity(candidateList);
+        if (EXPECTATION_FAILED != null) return EXPECTATION_FAILED;
+        numProductions = run.getProductions().size();
+
+        // Number every vacant slot and index the slots of each production by role
+        List<Production> slotProductions = new ArrayList<>();
+        List<Integer> slotIndices = new ArrayList<>();
+        Map<Production, Map<String, List<Integer>>> vacantSlots = new HashMap<>();
+        Map<Production, Double> vacantWeights = new HashMap<>();
+        for (Production production : run.getProductions()) {
+            vacantWeights.put(production, production.vacantWeight());
+            Map<String, List<Integer>> slotsByRole = new HashMap<>();
+            for (int k = 0; k < production.getRoles().size(); k++) {
+                if (!production.getMembers().get(k).equals("")) {
+                    continue;
+                }
+                slotsByRole.computeIfAbsent(production.getRoles().get(k), r -> new ArrayList<>()).add(slotProductions.size());
+                slotProductions.add(production);
+                slotIndices.add(k);
             }
+            vacantSlots.put(production, slotsByRole);
+        }
 
-            String production = candidate.getProductions().get(i);
-
-            Optional<Production> productionOptional = Optional.ofNullable(productionRepository.findByName(production));
-            if (productionOptional.isEmpty()) {
+        // Build the sparse candidate x slot score matrix
+        List<Candidate> rows = new ArrayList<>();
+        int[] rowStart = new int[candidateList.size() + 1];
+        List<Integer> edgeSlots = new ArrayList<>();
+        List<Double> edgeScores = new ArrayList<>();
+        for (Candidate candidate : candidateList) {
+            if (!candidate.isComplete()) {
                 continue;
             }
-
-            // Priority Queue to store potential assignments on a given production
-            PriorityQueue<Assignment> potentialAssignments = new PriorityQueue<>(new AssignmentComparator());
-
-            // Try to place a candidate on the production
-            Production productionToTry = productionOptional.get();
-            List<String> prodRoles = productionToTry.getRoles();
-            List<Double> roleWeights = new ArrayList<>(productionToTry.getRoleWeights());
-
-            for (int j = 0; j < roles.size(); j++) {
-                // Compute the weight of the potential assignment
-                for (int k = 0; k < prodRoles.size(); k++) {
-                    // Skip if not currently selecting the same role from the production and candidate
-                    if (!prodRoles.get(k).equals(roles.get(j))) {
+            rowStart[rows.size()] = edgeSlots.size();
+            rows.add(candidate);
+
+            List<String> productions = candidate.getProductions();
+            List<String> roles = candidate.getRoles();
+            for (int i = 0; i < productions.size() && i < CANDIDATE_WEIGHTS.length; i++) {
+                Production production = run.getProduction(productions.get(i));
+                // Skip missing productions and repeats of a higher ranked choice
+                if (production == null || productions.subList(0, i).contains(productions.get(i))) {
+                    continue;
+                }
+                for (int j = 0; j < roles.size() && j < CANDIDATE_WEIGHTS.length; j++) {
+                    List<Integer> slots = vacantSlots.get(production).get(roles.get(j));
+                    if (slots == null || roles.subList(0, j).contains(roles.get(j))) {
                         continue;
                     }
-
-                    double weight = roleWeights.get(k) * CANDIDATE_WEIGHTS[j];
-                    // Save the potential assignment in the queue
-                    Assignment assignment = new Assignment(candidate, productionToTry, k, prodRoles.get(k), weight);
-                    potentialAssignments.add(assignment);
+                    double preference = candidate.getProdPriority() ? preferenceWeight(i, j) : preferenceWeight(j, i);
+                    for (int slot : slots) {
+                        double weight = Production.effectiveWeight(
+                                production.getRoleWeights().get(slotIndices.get(slot)), vacantWeights.get(production));
+                        edgeSlots.add(slot);
+                        edgeScores.add(weight * preference);
+                    }
                 }
             }
+        }
+        rowStart[rows.size()] = edgeSlots.size();
 
-            // Attempt placement based on ranking in the priority queue
-            while (!potentialAssignments.isEmpty()) {
-                Assignment assignment = potentialAssignments.poll();
-                String role = assignment.getRole();
-                if (productionToTry.place(candidate, role)) {
-                    numCandidatesAssigned++;
-                    // Update candidate
-                    candidate.assign(productionToTry, role);
-                    candidateRepository.save(candidate);
-
-                    // Update production
-                    roleWeights.set(assignment.getAssignmentIndex(), 0.0);
-                    productionToTry.setRoleWeights(roleWeights);
-                    productionRepository.save(productionToTry);
-
-                    break;
+        int[] edgeSlot = new int[edgeSlots.size()];
+        double[] edgeScore = new double[edgeScores.size()];
+        for (int e = 0; e < edgeSlot.length; e++) {
+            edgeSlot[e] = edgeSlots.get(e);
+            edgeScore[e] = edgeScores.get(e);
+        }
 
+        // Solve and place every candidate in the slot chosen for them. The solver runs as a whole, so a cancelled
+        // run or an exhausted budget is only noticed before it. Once solved, the assignment is applied in full, since
+        // any part of an optimal assignment is not itself optimal.
+        MatchProgress progress = run.getProgress();
+        int[] solution = progress.shouldContinue()
+                ? new AuctionSolver(rows.size(), slotProductions.size(), rowStart, edgeSlot, edgeScore).solve()
+                : new int[0];
+        for (int c = 0; c < solution.length; c++) {
+            if (solution[c] != -1) {
+                Production production = slotProductions.get(solution[c]);
+                if (run.placeAt(rows.get(c), production, slotIndices.get(solution[c]))) {
+                    numCandidatesAssigned++;
                 }
             }
-
         }
+        progress.advance(solution.length, numCandidatesAssigned);
 
-        return numCandidatesAssigned;
+        return ResponseEntity.status(HttpStatus.OK).body(
+                numCandidatesAssigned + " have been placed on " + numProductions + " productions. " + (totalCandidates - numCandidatesAssigned) +
+                        " remain to be matched."
+        );
     }
 
-    private Integer assignToProductionWithWeightedRoleBias(Candidate candidate, List<String> productions) {
-        int numCandidatesAssigned = 0;
-
-        for (int i = 0; i < candidate.getRoles().size(); i++) {
-            // Exit loop if candidate becomes assigned
-            if (candidate.getAssigned()) {
-                break;
-            }
-
-            String role = candidate.getRoles().get(i);
-
-            // Priority Queue to store potential assignments on a given production
-            PriorityQueue<Assignment> potentialAssignments = new PriorityQueue<>(new AssignmentComparator());
+    // Method to run the weighted match with every combination of candidate weights and production scalings
+    // Returns the outcome of each combination, saving the chosen one if there is one
+    @Transactional
+    public WeightSweep weightSweep(WeightSweep.Request request) {
+        MatchRun run = matchRunService.load();
+        WeightSweep sweep = weightSweep(run, request);
 
-            // Iterate through candidate's production rankings
-            for (int j = 0; j < productions.size(); j++) {
-                // Check that production exists
-                Optional<Production> productionOptional = Optional.ofNullable(productionRepository.findByName(productions.get(j)));
-                if (productionOptional.isEmpty()) {
-                    continue;
-                }
+        // Only the chosen combination is written back
+        if (sweep.getChosen() != null) {
+            matchRunService.flush(run);
+        }
 
-                Production production = productionOptional.get();
-                // Compute the weights of the role in each production
-                List<String> prodRoles = production.getRoles();
-                List<Double> roleWeights = new ArrayList<>(production.getRoleWeights());
-                for (int k = 0; k < prodRoles.size(); k++) {
-                    if (!prodRoles.get(k).equals(role)) {
-                        continue;
-                    }
+        return sweep;
+    }
 
-                    double weight = roleWeights.get(k) * CANDIDATE_WEIGHTS[j];
-                    // Save the weight as a potential assignment
-                    Assignment potentialAssignment = new Assignment(candidate, production, k, role, weight);
-                    potentialAssignments.add(potentialAssignment);
+    // Runs every combination on its own copy of the match core in parallel. Only the chosen combination, if any, is
+    // applied to the entities of the match run.
+    public WeightSweep weightSweep(MatchRun run, WeightSweep.Request request) {
+        // Input processing:
+        // - If there are no candidates or no productions, the sweep should not commence.
+        // - Missing lists default to the current candidate weights and no scaling.
+        // - Weights and factors may not be negative, and scalings may only name active productions.
+        ResponseEntity<String> EXPECTATION_FAILED = getStringResponseEntity(run.getCandidates());
+        if (EXPECTATION_FAILED != null) {
+            throw new ResponseStatusException(EXPECTATION_FAILED.getStatusCode(), EXPECTATION_FAILED.getBody());
+        }
+        List<List<Double>> vectors = request.getCandidateWeights();
+        if (vectors == null || vectors.isEmpty()) {
+            vectors = List.of(Arrays.stream(CANDIDATE_WEIGHTS).boxed().toList());
+        }
+        List<Map<String, Double>> scalings = request.getProductionScalings();
+        if (scalings == null || scalings.isEmpty()) {
+            scalings = List.of(Map.of());
+        }
+        if ((long) vectors.size() * scalings.size() > MAX_SWEEP_COMBINATIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A sweep may run at most " + MAX_SWEEP_COMBINATIONS + " combinations.");
+        }
+        for (List<Double> vector : vectors) {
+            if (vector == null || vector.isEmpty() || vector.stream().anyMatch(w -> w == null || w < 0)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Every candidate weight vector needs at least one weight, and weights may not be negative.");
+            }
+        }
+        List<Production> productions = new ArrayList<>(run.getProductions());
+        List<double[]> scales = new ArrayList<>();
+        for (Map<String, Double> scaling : scalings) {
+            double[] scale = new double[productions.size()];
+            Arrays.fill(scale, 1.0);
+            for (Map.Entry<String, Double> entry : scaling.entrySet()) {
+                int p = productions.indexOf(run.getProduction(entry.getKey()));
+                if (p == -1 || entry.getValue() == null || entry.getValue() < 0) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Production scalings must name active productions and may not be negative.");
                 }
+                scale[p] = entry.getValue();
             }
+            scales.add(scale);
+        }
+        int combinations = vectors.size() * scalings.size();
+        Integer chosen = request.getChosen();
+        if (chosen != null && (chosen < 0 || chosen >= combinations)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "There is no combination with that index.");
+        }
 
-            // Find the optimal assignment
-            while (!potentialAssignments.isEmpty() && !candidate.getAssigned()) {
-                Assignment assignment = potentialAssignments.poll();
-                String roleToTry = assignment.getRole();
-                Production productionToTry = assignment.getProduction();
-                List<Double> roleWeights = new ArrayList<>(productionToTry.getRoleWeights());
-                if (productionToTry.place(candidate, roleToTry)) {
-                    numCandidatesAssigned++;
-                    // Update candidate
-                    candidate.setAssigned(true);
-                    candidate.assign(productionToTry, roleToTry);
-                    candidateRepository.save(candidate);
-
-                    // Update production
-                    roleWeights.set(assignment.getAssignmentIndex(), 0.0);
-                    productionToTry.setRoleWeights(roleWeights);
-                    productionRepository.save(productionToTry);
+        List<Candidate> orderedCandidates = new ArrayList<>();
+        for (Candidate candidate : run.getCandidates()) {
+            if (candidate.isComplete()) {
+                orderedCandidates.add(candidate);
+            }
+        }
+        SeniorityOrder.sort(orderedCandidates, run.getRankingPolicy());
+        MatchCore core = new MatchCore(run, orderedCandidates);
+
+        // Try every combination in parallel, each on its own copy of the core. Only the copy of the chosen combination
+        // is kept once it has been measured.
+        MatchCore[] chosenTrial = new MatchCore[1];
+        List<ForkJoinTask<WeightSweep.Result>> tasks = new ArrayList<>();
+        for (int index = 0; index < combinations; index++) {
+            List<Double> vector = vectors.get(index / scalings.size());
+            Map<String, Double> scaling = scalings.get(index % scalings.size());
+            double[] scale = scales.get(index % scalings.size());
+            int number = index;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                MatchCore trial = core.copy(new MatchProgress());
+                int placed = trial.placeWeighted(toArray(vector), scale);
+                if (chosen != null && number == chosen) {
+                    chosenTrial[0] = trial;
+                }
+                return sweepResult(trial, productions, number, vector, scaling, placed);
+            }));
+        }
+        WeightSweep sweep = new WeightSweep(chosen);
+        for (ForkJoinTask<WeightSweep.Result> task : tasks) {
+            sweep.getResults().add(task.join());
+        }
 
-                    break;
+        // Apply the chosen combination exactly as it was measured. Trials report to their own progress, so a stop
+        // during the sweep cannot cut the chosen placements short.
+        if (chosen != null) {
+            chosenTrial[0].apply(run);
+            run.getProgress().advance(chosenTrial[0].size(), sweep.getResults().get(chosen).getPlaced());
+        }
+        return sweep;
+    }
 
-                }
+    // Helper method that collects the outcome of one combination of a sweep.
+    private static WeightSweep.Result sweepResult(MatchCore core, List<Production> productions, int index,
+                                                  List<Double> vector, Map<String, Double> scaling, int placed) {
+        int firstChoices = 0;
+        for (int c = 0; c < core.size(); c++) {
+            int choice = core.placedChoice(c);
+            if (choice == -1) {
+                continue;
+            }
+            int preferredRank = core.prodPriority(c) ? choice / core.numRoles(c) : choice % core.numRoles(c);
+            if (preferredRank == 0) {
+                firstChoices++;
             }
         }
+        Map<String, Integer> emptySlots = new LinkedHashMap<>();
+        for (int p = 0; p < productions.size(); p++) {
+            emptySlots.put(productions.get(p).getName(), core.vacancies(p));
+        }
+        double firstChoiceRate = placed == 0 ? 0.0 : (double) firstChoices / placed;
+        return new WeightSweep.Result(index, vector, scaling, placed, firstChoiceRate, emptySlots);
+    }
 
-        return numCandidatesAssigned;
+    private static double[] toArray(List<Double> weights) {
+        return weights.stream().mapToDouble(Double::doubleValue).toArray();
     }
 
+    // Combines the ranks of a candidate's choices into one weight. The rank of the preferred choice (production or
+    // role) dominates, and the rank of the other choice breaks ties between equal preferred ranks.
+    private static double preferenceWeight(int preferredRank, int otherRank) {
+        return CANDIDATE_WEIGHTS[preferredRank] * CANDIDATE_WEIGHTS[0] + CANDIDATE_WEIGHTS[otherRank];
+    }
 
     // Helper method that determines if there are candidate and productions to be matched.
     private ResponseEntity<String> getStringResponseEntity(List<Candidate> candidateList) {
@@ -0,0 +1,133 @@
+package com.lux.crewmatch.controllers;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the list endpoints, including serializing their results, run a number of queries that does not depend
+ * on the number of candidates or productions listed.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:listquerycount",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class ListQueryCountTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void listingCandidatesCostsConstantQueries() throws Exception {
+        long small = queries(10, 2, "/api/candidate/get", 10);
+        long large = queries(60, 6, "/api/candidate/get", 60);
+
+        assertThat(large, is(small));
+        assertThat(large, lessThanOrEqualTo(5L));
+    }
+
+    @Test
+    void searchingCandidatesCostsConstantQueries() throws Exception {
+        // Half of the crew candidates are placed, and the generator makes a fifth of candidates actors
+        long small = queries(10, 2, "/api/candidate/search?assigned=true&actingInterest=false", -1);
+        long large = queries(60, 6, "/api/candidate/search?assigned=true&actingInterest=false", -1);
+        assertThat(large, is(small));
+
+        small = queries(10, 2, "/api/candidate/search?assigned=false&actingInterest=false&production=Production 1", -1);
+        large = queries(60, 6, "/api/candidate/search?assigned=false&actingInterest=false&production=Production 1", -1);
+        assertThat(large, is(small));
+        assertThat(large, lessThanOrEqualTo(5L));
+    }
+
+    @Test
+    void listingProductionsCostsConstantQueries() throws Exception {
+        long small = queries(10, 2, "/api/production/get", 2);
+        long large = queries(60, 6, "/api/production/get", 6);
+
+        assertThat(large, is(small));
+        assertThat(large, lessThanOrEqualTo(3L));
+    }
+
+    // Helper method that stores a workload, then counts the statements run to answer a GET request. A non-negative
+    // expected size is checked against the length of the returned list.
+    private long queries(int candidateCount, int productionCount, String url, int expectedSize) throws Exception {
+        populate(candidateCount, productionCount);
+
+        Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        this.mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(expectedSize < 0 ? result -> { } : jsonPath("$.length()").value(expectedSize));
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Helper method that replaces the stored candidates and productions with a workload in which half of the crew
+    // candidates are placed on a production with rankings.
+    private void populate(int candidateCount, int productionCount) {
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            this.candidateRepository.deleteAll();
+            this.productionRepository.deleteAll();
+
+            WorkloadGenerator generator = new WorkloadGenerator().seed(5).candidates(candidateCount)
+                    .productions(productionCount).slotsPerProduction(candidateCount);
+            List<Production> productions = generator.generateProductions();
+            List<Candidate> candidates = generator.generateCandidates();
+            for (Production production : productions) {
+                List<String> rankings = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    rankings.add(candidates.get(i).getName());
+                }
+                production.setRankings(rankings);
+            }
+            this.productionRepository.saveAll(productions);
+
+            for (int i = 0; i < candidates.size(); i += 2) {
+                Candidate candidate = candidates.get(i);
+                if (candidate.getActingInterest()) {
+                    continue;
+                }
+                Production production = productions.get(i % productions.size());
+                String role = candidate.getRoles().get(0);
+                if (production.place(candidate, role)) {
+                    candidate.assign(production, role);
+                }
+            }
+            this.candidateRepository.saveAll(candidates);
+        });
+    }
+}
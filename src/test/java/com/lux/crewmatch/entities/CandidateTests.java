@@ -0,0 +1,42 @@
+package com.lux.crewmatch.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+class CandidateTests {
+
+    @Test
+    void parseTimestampReadsTheFormFormatInUtc() {
+        assertThat(Candidate.parseTimestamp("1/31/2023 14:05:09"), is(millis(2023, 1, 31, 14, 5, 9)));
+        assertThat(Candidate.parseTimestamp(" 01/31/2023 14:05:09 "), is(millis(2023, 1, 31, 14, 5, 9)));
+    }
+
+    @Test
+    void parseTimestampIsAsLenientAsSimpleDateFormat() {
+        // Single digit minutes and seconds
+        assertThat(Candidate.parseTimestamp("1/31/2023 9:5:3"), is(millis(2023, 1, 31, 9, 5, 3)));
+        // Out of range days roll over into the next month
+        assertThat(Candidate.parseTimestamp("2/30/2023 12:00:00"), is(millis(2023, 3, 2, 12, 0, 0)));
+        // Text after the seconds is ignored
+        assertThat(Candidate.parseTimestamp("1/31/2023 14:05:09 PST"), is(millis(2023, 1, 31, 14, 5, 9)));
+    }
+
+    @Test
+    void parseTimestampRejectsOtherFormats() {
+        assertThat(Candidate.parseTimestamp(null), is(nullValue()));
+        assertThat(Candidate.parseTimestamp("1/31/2023"), is(nullValue()));
+        assertThat(Candidate.parseTimestamp("2023-01-31T14:05:09"), is(nullValue()));
+        assertThat(Candidate.parseTimestamp("garbage"), is(nullValue()));
+    }
+
+    // Helper method that returns the epoch milliseconds of a UTC date and time.
+    private static Long millis(int year, int month, int day, int hour, int minute, int second) {
+        return LocalDateTime.of(year, month, day, hour, minute, second).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,85 @@
+package com.lux.crewmatch.entities;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+class ProductionTests {
+
+    @Test
+    void vacatesTheSlotOfTheCandidateRatherThanOfTheirNamesake() {
+        Production production = production("Editor", "Editor");
+        Candidate first = candidate(1, "Ada");
+        Candidate second = candidate(2, "Ada");
+        production.placeAt(first, 0);
+        production.placeAt(second, 1);
+
+        assertThat(production.vacate(second, "Editor"), is(true));
+        assertThat(production.getMembers(), is(List.of("Ada", "")));
+        assertThat(production.memberIdAt(0), is(1));
+        assertThat(production.memberIdAt(1), is(nullValue()));
+
+        // A candidate who holds no slot of the role is not found, even if a namesake does
+        assertThat(production.vacate(second, "Editor"), is(false));
+        assertThat(production.memberIdAt(0), is(1));
+    }
+
+    @Test
+    void comparesSlotsWithoutAMemberIdByName() {
+        Production production = production("Editor");
+        production.setMembers(new ArrayList<>(List.of("Ada")));
+
+        assertThat(production.isMemberAt(0, candidate(2, "Bo")), is(false));
+        assertThat(production.vacate(candidate(2, "Ada"), "Editor"), is(true));
+        assertThat(production.getMembers(), is(List.of("")));
+    }
+
+    @Test
+    void tellsRequestsWithListsOfDifferentLengthsInEitherOrder() throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        Production membersFirst = mapper.readValue(
+                "{\"members\": [\"\", \"\", \"\"], \"roles\": [\"Editor\", \"Gaffer\"]}", Production.class);
+        Production rolesFirst = mapper.readValue(
+                "{\"roles\": [\"Editor\", \"Gaffer\", \"Grip\"], \"members\": [\"\", \"\"]}", Production.class);
+        Production matching = mapper.readValue(
+                "{\"members\": [\"\", \"\"], \"roles\": [\"Editor\", \"Gaffer\"]}", Production.class);
+        Production withoutMembers = mapper.readValue("{\"roles\": [\"Editor\"]}", Production.class);
+
+        assertThat(membersFirst.rolesMatchMembers(), is(false));
+        assertThat(rolesFirst.rolesMatchMembers(), is(false));
+        assertThat(matching.rolesMatchMembers(), is(true));
+        assertThat(withoutMembers.rolesMatchMembers(), is(false));
+    }
+
+    // Helper method that creates a production with a vacant slot for each role.
+    private static Production production(String... roles) {
+        Production production = new Production();
+        production.setName("Production 1");
+        production.setRoles(new ArrayList<>(List.of(roles)));
+        List<String> members = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (String ignored : roles) {
+            members.add("");
+            weights.add(1.0);
+        }
+        production.setMembers(members);
+        production.setRoleWeights(weights);
+        return production;
+    }
+
+    // Helper method that creates a candidate with an id, as if they had been saved.
+    private static Candidate candidate(int id, String name) {
+        Candidate candidate = new Candidate();
+        candidate.setId(id);
+        candidate.setName(name);
+        return candidate;
+    }
+}
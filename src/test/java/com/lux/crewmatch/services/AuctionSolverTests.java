@@ -0,0 +1,97 @@
+package com.lux.crewmatch.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class AuctionSolverTests {
+
+    @Test
+    void matchesBruteForceOnSmallInstances() {
+        Random random = new Random(11);
+        for (int instance = 0; instance < 500; instance++) {
+            int numCandidates = 1 + random.nextInt(6);
+            int numSlots = 1 + random.nextInt(5);
+            int[] rowStart = new int[numCandidates + 1];
+            List<Integer> slots = new ArrayList<>();
+            List<Double> scores = new ArrayList<>();
+            for (int c = 0; c < numCandidates; c++) {
+                rowStart[c] = slots.size();
+                for (int s = 0; s < numSlots; s++) {
+                    if (random.nextInt(3) != 0) {
+                        slots.add(s);
+                        // Few distinct scores, so ties and zero scores are common
+                        scores.add((double) random.nextInt(4));
+                    }
+                }
+            }
+            rowStart[numCandidates] = slots.size();
+            int[] edgeSlot = slots.stream().mapToInt(Integer::intValue).toArray();
+            double[] edgeScore = scores.stream().mapToDouble(Double::doubleValue).toArray();
+
+            int[] solution = new AuctionSolver(numCandidates, numSlots, rowStart, edgeSlot, edgeScore).solve();
+            long[] best = bruteForce(0, new boolean[numSlots], rowStart, edgeSlot, edgeScore);
+
+            assertThat(value(solution, numSlots, rowStart, edgeSlot, edgeScore), is(best));
+            assertThat(new AuctionSolver(numCandidates, numSlots, rowStart, edgeSlot, edgeScore).solve(), is(solution));
+        }
+    }
+
+    @Test
+    void placesCandidatesWhoseOnlyOptionScoresZero() {
+        int[] solution = new AuctionSolver(2, 2, new int[]{0, 1, 2}, new int[]{0, 1}, new double[]{0.0, 1.5}).solve();
+        assertThat(solution, is(new int[]{0, 1}));
+    }
+
+    // Helper method that checks a solution is a matching and returns its total score and number of placements.
+    private static long[] value(int[] solution, int numSlots, int[] rowStart, int[] edgeSlot, double[] edgeScore) {
+        boolean[] used = new boolean[numSlots];
+        long total = 0;
+        long placed = 0;
+        for (int c = 0; c < solution.length; c++) {
+            if (solution[c] == -1) {
+                continue;
+            }
+            assertThat(used[solution[c]], is(false));
+            used[solution[c]] = true;
+            boolean found = false;
+            for (int e = rowStart[c]; e < rowStart[c + 1] && !found; e++) {
+                if (edgeSlot[e] == solution[c]) {
+                    total += (long) edgeScore[e];
+                    found = true;
+                }
+            }
+            assertThat(found, is(true));
+            placed++;
+        }
+        return new long[]{total, placed};
+    }
+
+    // Helper method that finds the best total score, then the most placements, over every matching of the candidates
+    // from c onwards.
+    private static long[] bruteForce(int c, boolean[] used, int[] rowStart, int[] edgeSlot, double[] edgeScore) {
+        if (c == rowStart.length - 1) {
+            return new long[]{0, 0};
+        }
+        long[] best = bruteForce(c + 1, used, rowStart, edgeSlot, edgeScore);
+        for (int e = rowStart[c]; e < rowStart[c + 1]; e++) {
+            int slot = edgeSlot[e];
+            if (used[slot]) {
+                continue;
+            }
+            used[slot] = true;
+            long[] rest = bruteForce(c + 1, used, rowStart, edgeSlot, edgeScore);
+            used[slot] = false;
+            long[] option = {rest[0] + (long) edgeScore[e], rest[1] + 1};
+            if (option[0] > best[0] || (option[0] == best[0] && option[1] > best[1])) {
+                best = option;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,150 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Header;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.HeaderRepository;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Checks the COPY import against an embedded PostgreSQL server, by comparing it with the batched import. PostgreSQL
+ * refuses to start as root, so these tests are skipped there.
+ */
+@DisabledIfSystemProperty(named = "user.name", matches = "root")
+@SpringBootTest
+class CandidateCopyLoaderTests {
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    HeaderRepository headerRepository;
+
+    @Autowired
+    CandidateImportService candidateImportService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) throws IOException {
+        if (postgres == null) {
+            postgres = EmbeddedPostgres.start();
+        }
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+            postgres = null;
+        }
+    }
+
+    @BeforeEach
+    void clearCandidates() {
+        this.candidateRepository.deleteAll();
+        if (this.headerRepository.findByName("header") == null) {
+            Header header = new Header();
+            header.setName("header");
+            header.setCsvHeaders(new ArrayList<>(Arrays.asList(WorkloadGenerator.HEADERS)));
+            this.headerRepository.save(header);
+        }
+    }
+
+    @Test
+    void loadsIntoPostgres() {
+        List<Candidate> candidates = parse(new WorkloadGenerator().seed(1).candidates(10).generateCsv());
+        Boolean loaded = new TransactionTemplate(this.transactionManager).execute(status ->
+                this.jdbcTemplate.execute((Connection connection) ->
+                        CandidateCopyLoader.load(connection, candidates, OffsetDateTime.now())));
+
+        assertThat(loaded, is(true));
+        assertThat(this.candidateRepository.count(), is(10L));
+        assertThat(CandidateCopyLoader.canLoad(candidates), is(true));
+        candidates.get(3).setName(null);
+        assertThat(CandidateCopyLoader.canLoad(candidates), is(false));
+    }
+
+    @Test
+    void copyMatchesBatchedImport() {
+        // Two overlapping uploads, the second repeating some names within itself
+        String first = new WorkloadGenerator().seed(2).candidates(1500).generateCsv();
+        String second = new WorkloadGenerator().seed(3).candidates(1800).generateCsv() +
+                body(new WorkloadGenerator().seed(2).candidates(300).actingRatio(0.5).generateCsv()) +
+                body(new WorkloadGenerator().seed(3).candidates(100).seniority(6, 12).generateCsv());
+
+        // Uploads of at least a thousand rows are copied
+        this.candidateImportService.importCandidates(parse(first));
+        this.candidateImportService.importCandidates(parse(second));
+        List<String> copied = dump();
+
+        // Smaller uploads are batched, and splitting an upload does not change the result
+        this.candidateRepository.deleteAll();
+        for (String csv : List.of(first, second)) {
+            List<Candidate> rows = parse(csv);
+            for (int i = 0; i < rows.size(); i += 500) {
+                this.candidateImportService.importCandidates(rows.subList(i, Math.min(rows.size(), i + 500)));
+            }
+        }
+        List<String> batched = dump();
+
+        assertThat(copied.size(), is(1800));
+        assertThat(copied, is(batched));
+    }
+
+    // Helper method that parses an upload as CSVService does.
+    private static List<Candidate> parse(String csv) {
+        return CSVHelper.csvToCandidates(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                WorkloadGenerator.HEADERS);
+    }
+
+    // Helper method that drops the header row of an upload.
+    private static String body(String csv) {
+        return csv.substring(csv.indexOf('\n') + 1);
+    }
+
+    // Helper method that describes every stored candidate, sorted by name, leaving out ids, modification times and
+    // versions, which depend on how the rows were split.
+    private List<String> dump() {
+        return this.jdbcTemplate.queryForList("select concat_ws('|', c.NAME, c.PRONOUNS, c.EMAIL, c.TIME, " +
+                "c.TIME_MILLIS, c.YEARS_IN_UW, c.QUARTERS_IN_LUX, c.ACTING_INTEREST, c.SENIORITY_RANK, " +
+                "c.PROD_PRIORITY, c.ASSIGNED, " +
+                "(select string_agg(p.PRODUCTIONS, ',' order by p.PRODUCTIONS) from CANDIDATE_PRODUCTIONS p " +
+                "where p.ID = c.ID), " +
+                "(select string_agg(r.ROLES, ',' order by r.ROLES) from CANDIDATE_ROLES r where r.ID = c.ID)) " +
+                "from CANDIDATES c order by c.NAME", String.class);
+    }
+}
@@ -0,0 +1,174 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the batched import against H2, reading back what it wrote with plain SQL.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:candidateimport")
+class CandidateImportServiceTests {
+
+    @Autowired
+    CandidateImportService candidateImportService;
+
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void clearCandidates() {
+        this.candidateRepository.deleteAll();
+    }
+
+    @Test
+    void insertsNewCandidates() {
+        this.candidateImportService.importCandidates(List.of(
+                row("Ada", "ada@uw.edu", List.of("Production 2", "Production 1"), List.of("Editor", "Gaffer")),
+                row("Bo", "bo@uw.edu", List.of("Production 1"), List.of("Director"))));
+
+        assertThat(this.candidateRepository.count(), is(2L));
+        Map<String, Object> ada = stored("Ada");
+        assertThat(ada.get("EMAIL"), is("ada@uw.edu"));
+        assertThat(ada.get("VERSION"), is(0));
+        assertThat(ada.get("SENIORITY_RANK"), is(Candidate.seniorityRank(3, 2, row("Ada", null, null, null)
+                .getTimestampMillis())));
+        assertThat(values("CANDIDATE_PRODUCTIONS", "PRODUCTIONS", "Ada"), is(List.of("Production 2", "Production 1")));
+        assertThat(values("CANDIDATE_ROLES", "ROLES", "Bo"), is(List.of("Director")));
+    }
+
+    @Test
+    void updatesStoredCandidatesAndTheirVersion() {
+        this.candidateImportService.importCandidates(List.of(
+                row("Ada", "ada@uw.edu", List.of("Production 1"), List.of("Editor"))));
+        Object id = stored("Ada").get("ID");
+
+        // Fields left empty keep their stored values
+        Candidate update = row("Ada", null, null, null);
+        update.setQuartersInLux(5);
+        this.candidateImportService.importCandidates(List.of(update));
+
+        Map<String, Object> ada = stored("Ada");
+        assertThat(this.candidateRepository.count(), is(1L));
+        assertThat(ada.get("ID"), is(id));
+        assertThat(ada.get("VERSION"), is(1));
+        assertThat(ada.get("EMAIL"), is("ada@uw.edu"));
+        assertThat(ada.get("QUARTERS_IN_LUX"), is(5));
+        assertThat(values("CANDIDATE_PRODUCTIONS", "PRODUCTIONS", "Ada"), is(List.of("Production 1")));
+        assertThat(values("CANDIDATE_ROLES", "ROLES", "Ada"), is(List.of("Editor")));
+
+        // The entity the repository reads back agrees, so JPA will check the next change against the new version
+        Candidate candidate = this.candidateRepository.findByName("Ada");
+        assertThat(candidate.getVersion(), is(1));
+        assertThat(candidate.getSeniorityRank(), is(Candidate.seniorityRank(5, 2, candidate.getTimestampMillis())));
+    }
+
+    @Test
+    void mergesRowsWithTheSameName() {
+        this.candidateImportService.importCandidates(List.of(
+                row("Ada", "ada@uw.edu", List.of("Production 1"), List.of("Editor")),
+                row("Bo", "bo@uw.edu", List.of("Production 1"), List.of("Director")),
+                row("Ada", "ada@lux.org", List.of("Production 3"), null)));
+
+        assertThat(this.candidateRepository.count(), is(2L));
+        assertThat(stored("Ada").get("EMAIL"), is("ada@lux.org"));
+        assertThat(stored("Ada").get("VERSION"), is(0));
+        assertThat(values("CANDIDATE_PRODUCTIONS", "PRODUCTIONS", "Ada"), is(List.of("Production 3")));
+        assertThat(values("CANDIDATE_ROLES", "ROLES", "Ada"), is(List.of("Editor")));
+    }
+
+    @Test
+    void replacesProvidedCollections() {
+        this.candidateImportService.importCandidates(List.of(
+                row("Ada", "ada@uw.edu", List.of("Production 1", "Production 2"), List.of("Editor", "Gaffer")),
+                row("Bo", "bo@uw.edu", List.of("Production 1"), List.of("Director"))));
+
+        // Ada lists new productions and no roles, which keeps her roles; Bo is untouched
+        this.candidateImportService.importCandidates(List.of(
+                row("Ada", null, List.of("Production 3"), null)));
+
+        assertThat(values("CANDIDATE_PRODUCTIONS", "PRODUCTIONS", "Ada"), is(List.of("Production 3")));
+        assertThat(values("CANDIDATE_ROLES", "ROLES", "Ada"), is(List.of("Editor", "Gaffer")));
+        assertThat(values("CANDIDATE_PRODUCTIONS", "PRODUCTIONS", "Bo"), is(List.of("Production 1")));
+        assertThat(values("CANDIDATE_ROLES", "ROLES", "Bo"), is(List.of("Director")));
+    }
+
+    @Test
+    void rejectsCandidatesChangedSinceTheyWereRead() {
+        this.candidateImportService.importCandidates(List.of(
+                row("Ada", "ada@uw.edu", List.of("Production 1"), List.of("Editor"))));
+
+        // Another writer saves Ada right after the import has read her
+        JdbcTemplate racing = Mockito.spy(this.jdbcTemplate);
+        Mockito.doAnswer(invocation -> {
+            Object found = invocation.callRealMethod();
+            this.jdbcTemplate.update("update CANDIDATES set VERSION = VERSION + 1 where NAME = 'Ada'");
+            return found;
+        }).when(racing).query(Mockito.anyString(), Mockito.<RowMapper<Candidate>>any(), Mockito.<Object[]>any());
+        CandidateImportService service = new CandidateImportService();
+        service.jdbcTemplate = racing;
+        service.entityManager = this.entityManager;
+
+        TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> transaction.executeWithoutResult(status ->
+                service.importCandidates(List.of(row("Ada", "ada@lux.org", List.of("Production 2"), null)))));
+
+        // The whole import was rolled back
+        assertThat(stored("Ada").get("EMAIL"), is("ada@uw.edu"));
+        assertThat(values("CANDIDATE_PRODUCTIONS", "PRODUCTIONS", "Ada"), is(List.of("Production 1")));
+    }
+
+    // Helper method that creates a crew candidate as CSVHelper reads them, with 2 years at UW and 3 quarters in LUX.
+    private static Candidate row(String name, String email, List<String> productions, List<String> roles) {
+        Candidate candidate = new Candidate();
+        candidate.setName(name);
+        candidate.setEmail(email);
+        candidate.setTimestamp("1/1/2023 12:00:00");
+        candidate.setYearsInUW(2);
+        candidate.setQuartersInLux(3);
+        candidate.setActingInterest(false);
+        candidate.setProductions(productions == null ? null : new ArrayList<>(productions));
+        candidate.setRoles(roles == null ? null : new ArrayList<>(roles));
+        candidate.setProdPriority(true);
+        candidate.setAssigned(false);
+        return candidate;
+    }
+
+    // Helper method that reads the stored columns of a candidate.
+    private Map<String, Object> stored(String name) {
+        return this.jdbcTemplate.queryForMap("select * from CANDIDATES where NAME = ?", name);
+    }
+
+    // Helper method that reads one element collection of a candidate in the order it was written.
+    private List<String> values(String table, String column, String name) {
+        return this.jdbcTemplate.queryForList("select t." + column + " from " + table + " t join CANDIDATES c " +
+                "on c.ID = t.ID where c.NAME = ? order by t._ROWID_", String.class, name);
+    }
+}
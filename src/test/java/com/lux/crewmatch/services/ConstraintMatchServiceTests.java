@@ -0,0 +1,80 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Configs;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.ConfigRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+class ConstraintMatchServiceTests {
+
+    @Test
+    void stoppedSeedIsNotPlaced() {
+        WorkloadGenerator generator = new WorkloadGenerator().seed(8).candidates(200).productions(10)
+                .slotsPerProduction(10).actingRatio(0.0);
+        MatchRun run = new MatchRun(generator.generateProductions(), generator.generateCandidates());
+        MatchProgress progress = new MatchProgress();
+        progress.cancel();
+        run.setProgress(progress);
+
+        String body = service(run, List.of()).constraintMatch(run, 0, 0).getBody();
+
+        assertThat(body, containsString("no candidates have been placed"));
+        for (Production production : run.getProductions()) {
+            assertThat(production.getMembers().stream().allMatch(member -> member.equals("")), is(true));
+        }
+    }
+
+    @Test
+    void capsProductionsPerCandidateAtTheirOptions() {
+        WorkloadGenerator generator = new WorkloadGenerator().seed(8).candidates(50).productions(4)
+                .slotsPerProduction(10).actingRatio(0.0);
+        MatchRun run = new MatchRun(generator.generateProductions(), generator.generateCandidates());
+
+        // Sized by the configured value, the size of the solver's arrays would overflow
+        ResponseEntity<String> response = service(run, List.of(config(Integer.MAX_VALUE))).constraintMatch(run, 0, 0);
+
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(response.getBody(), containsString("have been placed on 4 productions"));
+    }
+
+    @Test
+    void rejectsNegativeProductionsPerCandidate() {
+        WorkloadGenerator generator = new WorkloadGenerator().seed(8).candidates(10).productions(2)
+                .slotsPerProduction(4).actingRatio(0.0);
+        MatchRun run = new MatchRun(generator.generateProductions(), generator.generateCandidates());
+
+        ResponseEntity<String> response = service(run, List.of(config(-1))).constraintMatch(run, 0, 0);
+
+        assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThat(response.getBody(), is("The number of productions per candidate may not be negative."));
+    }
+
+    // Helper method that creates the service without a database, reading the given config variables.
+    private static ConstraintMatchService service(MatchRun run, List<Configs> configs) {
+        ConstraintMatchService service = new ConstraintMatchService();
+        service.productionRepository = Mockito.mock(ProductionRepository.class);
+        service.configRepository = Mockito.mock(ConfigRepository.class);
+        Mockito.when(service.productionRepository.count()).thenReturn((long) run.getProductions().size());
+        Mockito.when(service.configRepository.findAll()).thenReturn(configs);
+        return service;
+    }
+
+    // Helper method that creates the maxProductionsPerCandidate config variable.
+    private static Configs config(int value) {
+        Configs config = new Configs();
+        config.setName(MatchConstraints.MAX_PRODUCTIONS_PER_CANDIDATE);
+        config.setValue(value);
+        return config;
+    }
+}
@@ -0,0 +1,191 @@
+package com.lux.crewmatch.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+class ConstraintSolverTests {
+
+    private static final int PRODUCTIONS = 6;
+    private static final int PROGRAMS_PER_PRODUCTION = 4;
+    private static final int MAX_CREW_SIZE = 7;
+
+    @Test
+    void capsAreNeverExceeded() {
+        for (int seed = 0; seed < 20; seed++) {
+            Instance instance = new Instance(seed, 1 + seed % 3);
+            ConstraintSolver solver = instance.solver();
+            solver.seed(instance.order(), new MatchProgress());
+            check(instance, solver);
+            solver.improve(TimeUnit.MILLISECONDS.toNanos(20), new MatchProgress(), seed);
+            check(instance, solver);
+        }
+    }
+
+    @Test
+    void undoneRoundsRestoreEveryCounter() {
+        // Most rounds of a long search are undone, so counters that drift on undo would no longer match the
+        // placements they count
+        for (int seed = 0; seed < 5; seed++) {
+            Instance instance = new Instance(seed, 2);
+            ConstraintSolver solver = instance.solver();
+            solver.seed(instance.order(), new MatchProgress());
+            int kept = solver.improve(TimeUnit.MILLISECONDS.toNanos(100), new MatchProgress(), seed);
+            check(instance, solver);
+            assertThat(kept, greaterThan(0));
+        }
+    }
+
+    @Test
+    void shortfallCountsMissingMembers() {
+        // One production with two programs: the first needs three members and has one already, and only one
+        // candidate listed it; the second needs one member and nobody listed it
+        int[] optionStart = {0, 1, 2};
+        int[] optionProgram = {0, 0};
+        double[] optionScore = {1.0, 1.0};
+        ConstraintSolver solver = new ConstraintSolver(new int[]{1}, 10, new int[]{0, 0}, new int[]{1, 0},
+                new int[]{4, 4}, new int[]{3, 1}, optionStart, optionProgram, optionScore, 1);
+        assertThat(solver.getShortfall(), is(3));
+
+        solver.seed(new int[]{0, 1}, new MatchProgress());
+        assertThat(solver.getShortfall(), is(1));
+        assertThat(solver.getCandidatesPlaced(), is(2));
+
+        // Members beyond the minimum do not make up for another program
+        solver = new ConstraintSolver(new int[]{0}, 10, new int[]{0, 0}, new int[]{0, 0}, new int[]{4, 4},
+                new int[]{1, 1}, optionStart, optionProgram, optionScore, 1);
+        solver.seed(new int[]{0, 1}, new MatchProgress());
+        assertThat(solver.getShortfall(), is(1));
+    }
+
+    @Test
+    void stoppedSeedIsReported() {
+        Instance instance = new Instance(1, 1);
+        MatchProgress progress = new MatchProgress();
+        progress.cancel();
+        assertThat(instance.solver().seed(instance.order(), progress), is(false));
+        assertThat(instance.solver().seed(instance.order(), new MatchProgress()), is(true));
+    }
+
+    // Helper method that recounts the placements of a solver and checks them against every cap and counter.
+    private static void check(Instance instance, ConstraintSolver solver) {
+        int[] crew = instance.crew.clone();
+        int[] count = instance.programCount.clone();
+        int placements = 0;
+        int candidates = 0;
+        double satisfaction = 0;
+        for (int c = 0; c < instance.optionStart.length - 1; c++) {
+            int[] programs = solver.programsOf(c);
+            assertThat(programs.length, lessThanOrEqualTo(instance.perCandidate));
+            boolean[] onProduction = new boolean[PRODUCTIONS];
+            for (int program : programs) {
+                int p = instance.programProduction[program];
+                assertThat(onProduction[p], is(false));
+                onProduction[p] = true;
+                crew[p]++;
+                count[program]++;
+                satisfaction += instance.score(c, program);
+            }
+            placements += programs.length;
+            candidates += programs.length > 0 ? 1 : 0;
+        }
+        int shortfall = 0;
+        for (int g = 0; g < count.length; g++) {
+            assertThat(count[g], lessThanOrEqualTo(Math.max(instance.programLimit[g], instance.programCount[g])));
+            shortfall += Math.max(0, instance.programMin[g] - count[g]);
+        }
+        for (int p = 0; p < PRODUCTIONS; p++) {
+            assertThat(crew[p], lessThanOrEqualTo(Math.max(MAX_CREW_SIZE, instance.crew[p])));
+        }
+        assertThat(solver.getPlaced(), is(placements));
+        assertThat(solver.getCandidatesPlaced(), is(candidates));
+        assertThat(solver.getShortfall(), is(shortfall));
+        assertThat(solver.getSatisfaction(), closeTo(satisfaction, 1e-6));
+    }
+
+    // A random instance with existing members, tight limits and minimums that cannot all be met
+    private static class Instance {
+
+        final int perCandidate;
+        final int[] crew = new int[PRODUCTIONS];
+        final int[] programProduction = new int[PRODUCTIONS * PROGRAMS_PER_PRODUCTION];
+        final int[] programCount = new int[programProduction.length];
+        final int[] programLimit = new int[programProduction.length];
+        final int[] programMin = new int[programProduction.length];
+        final int[] optionStart;
+        final int[] optionProgram;
+        final double[] optionScore;
+
+        Instance(long seed, int perCandidate) {
+            Random random = new Random(seed);
+            this.perCandidate = perCandidate;
+            for (int g = 0; g < this.programProduction.length; g++) {
+                this.programProduction[g] = g / PROGRAMS_PER_PRODUCTION;
+                this.programCount[g] = random.nextInt(4) == 0 ? 1 : 0;
+                this.crew[this.programProduction[g]] += this.programCount[g];
+                this.programLimit[g] = 1 + random.nextInt(3);
+                this.programMin[g] = random.nextInt(3);
+            }
+
+            int numCandidates = 40;
+            this.optionStart = new int[numCandidates + 1];
+            int[] programs = new int[numCandidates * 5];
+            double[] scores = new double[programs.length];
+            int n = 0;
+            for (int c = 0; c < numCandidates; c++) {
+                this.optionStart[c] = n;
+                int options = random.nextInt(6);
+                for (int o = 0; o < options; o++) {
+                    int program = random.nextInt(this.programProduction.length);
+                    if (!contains(programs, this.optionStart[c], n, program)) {
+                        programs[n] = program;
+                        scores[n++] = 1 + random.nextInt(20);
+                    }
+                }
+            }
+            this.optionStart[numCandidates] = n;
+            this.optionProgram = Arrays.copyOf(programs, n);
+            this.optionScore = Arrays.copyOf(scores, n);
+        }
+
+        ConstraintSolver solver() {
+            return new ConstraintSolver(this.crew, MAX_CREW_SIZE, this.programProduction, this.programCount,
+                    this.programLimit, this.programMin, this.optionStart, this.optionProgram, this.optionScore,
+                    this.perCandidate);
+        }
+
+        int[] order() {
+            int[] order = new int[this.optionStart.length - 1];
+            for (int c = 0; c < order.length; c++) {
+                order[c] = c;
+            }
+            return order;
+        }
+
+        double score(int c, int program) {
+            for (int o = this.optionStart[c]; o < this.optionStart[c + 1]; o++) {
+                if (this.optionProgram[o] == program) {
+                    return this.optionScore[o];
+                }
+            }
+            throw new AssertionError("Candidate " + c + " did not list program " + program);
+        }
+
+        private static boolean contains(int[] values, int from, int to, int value) {
+            for (int i = from; i < to; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Configs;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.ConfigRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:incrementalmatch")
+class IncrementalMatchServiceTests {
+
+    @Autowired
+    IncrementalMatchService incrementalMatchService;
+
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Autowired
+    ConfigRepository configRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void clearRoster() {
+        this.candidateRepository.deleteAll();
+        this.productionRepository.deleteAll();
+        this.configRepository.deleteAll();
+        this.incrementalMatchService.reset();
+    }
+
+    @Test
+    void displacedCandidatesAreMatchedAgainstEveryProductionTheyListed() {
+        saveProduction("Production 1");
+        saveProduction("Production 2");
+        this.candidateRepository.save(candidate("Bo", 1, 1, List.of("Production 1", "Production 2")));
+        this.incrementalMatchService.incrementalMatch();
+        assertThat(membersOf("Production 1"), is(List.of("Bo")));
+
+        // Ada only lists Production 1, which is the only production of the second run until Bo is displaced
+        this.candidateRepository.save(candidate("Ada", 5, 1, List.of("Production 1")));
+        ResponseEntity<String> response = this.incrementalMatchService.incrementalMatch();
+
+        assertThat(response.getBody(), is("1 new candidates have been placed on 2 productions. 0 remain to be matched."));
+        assertThat(membersOf("Production 1"), is(List.of("Ada")));
+        assertThat(membersOf("Production 2"), is(List.of("Bo")));
+        assertThat(this.candidateRepository.findByName("Bo").getAssigned(), is(true));
+    }
+
+    @Test
+    void reportsDisplacedCandidatesLeftWithoutASlot() {
+        saveProduction("Production 1");
+        this.candidateRepository.save(candidate("Bo", 1, 1, List.of("Production 1")));
+        this.incrementalMatchService.incrementalMatch();
+
+        this.candidateRepository.save(candidate("Ada", 5, 1, List.of("Production 1")));
+        ResponseEntity<String> response = this.incrementalMatchService.incrementalMatch();
+
+        assertThat(response.getBody(), containsString("1 displaced candidates could not be placed again"));
+        assertThat(membersOf("Production 1"), is(List.of("Ada")));
+        assertThat(this.candidateRepository.findByName("Bo").getAssigned(), is(false));
+    }
+
+    @Test
+    void displacesByTheConfiguredRankingPolicy() {
+        Configs years = new Configs();
+        years.setName("rank:1:yearsInUW");
+        years.setValue(1);
+        this.configRepository.save(years);
+        saveProduction("Production 1");
+        this.candidateRepository.save(candidate("Bo", 1, 4, List.of("Production 1")));
+        this.incrementalMatchService.incrementalMatch();
+
+        // Ada has more quarters in LUX, but fewer years at UW, which is all the policy ranks by
+        this.candidateRepository.save(candidate("Ada", 5, 1, List.of("Production 1")));
+        this.incrementalMatchService.incrementalMatch();
+
+        assertThat(membersOf("Production 1"), is(List.of("Bo")));
+        assertThat(this.candidateRepository.findByName("Ada").getAssigned(), is(false));
+    }
+
+    // Helper method that saves an active production with a single editor slot.
+    private void saveProduction(String name) {
+        Production production = new Production();
+        production.setName(name);
+        production.setArchived(false);
+        production.setRoles(new ArrayList<>(List.of("Editor")));
+        production.setMembers(new ArrayList<>(List.of("")));
+        production.setRoleWeights(new ArrayList<>(List.of(1.0)));
+        this.productionRepository.save(production);
+    }
+
+    // Helper method that reads the members of a production from the database.
+    private List<String> membersOf(String name) {
+        return new TransactionTemplate(this.transactionManager).execute(
+                status -> new ArrayList<>(this.productionRepository.findByName(name).getMembers()));
+    }
+
+    // Helper method that creates a crew candidate who wants to edit the given productions, in order.
+    private static Candidate candidate(String name, int quartersInLux, int yearsInUW, List<String> productions) {
+        Candidate candidate = new Candidate();
+        candidate.setName(name);
+        candidate.setEmail(name.toLowerCase() + "@uw.edu");
+        candidate.setTimestamp("1/1/2023 12:00:00");
+        candidate.setYearsInUW(yearsInUW);
+        candidate.setQuartersInLux(quartersInLux);
+        candidate.setActingInterest(false);
+        candidate.setProductions(new ArrayList<>(productions));
+        candidate.setRoles(new ArrayList<>(List.of("Editor")));
+        candidate.setProdPriority(true);
+        candidate.setAssigned(false);
+        return candidate;
+    }
+}
@@ -0,0 +1,195 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:matchjob")
+class MatchJobServiceTests {
+
+    @Autowired
+    MatchJobService matchJobService;
+
+    @Autowired
+    MatchService matchService;
+
+    @SpyBean
+    MatchStrategies matchStrategies;
+
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @BeforeEach
+    void createRoster() {
+        this.candidateRepository.deleteAll();
+        this.productionRepository.deleteAll();
+
+        Production production = new Production();
+        production.setName("Production 1");
+        production.setArchived(false);
+        production.setRoles(new ArrayList<>(List.of("Editor", "Editor")));
+        production.setMembers(new ArrayList<>(List.of("", "")));
+        production.setRoleWeights(new ArrayList<>(List.of(1.0, 1.0)));
+        this.productionRepository.save(production);
+        this.candidateRepository.save(candidate("Ada"));
+        this.candidateRepository.save(candidate("Bo"));
+    }
+
+    @Test
+    void runsAJobToCompletion() {
+        MatchJob job = this.matchJobService.start("match", null, Map.of());
+
+        assertThat(this.matchJobService.get(job.getId()), is(job));
+        await(job);
+        assertThat(job.getState(), is(MatchJob.State.COMPLETED));
+        assertThat(job.getTotalCandidates(), is(2));
+        assertThat(job.getPlaced(), is(2));
+        assertThat(assignedCount(), is(2));
+    }
+
+    @Test
+    void forwardsParametersToTheMatcher() {
+        MatchJob job = this.matchJobService.start("monteCarloMatch", null, Map.of("runs", 0, "seed", 7));
+
+        await(job);
+        assertThat(job.getState(), is(MatchJob.State.FAILED));
+        assertThat(job.getMessage(), is("The number of runs must be at least 1."));
+        assertThat(assignedCount(), is(0));
+
+        // Parameters of the wrong type are rejected before the job starts
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> this.matchJobService.start("monteCarloMatch", null, Map.of("runs", "many")));
+        assertThat(e.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        e = assertThrows(ResponseStatusException.class,
+                () -> this.matchJobService.start("improve", null, Map.of("mode", "maybe")));
+        assertThat(e.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void runsAWeightSweepAsAJob() {
+        MatchJob job = this.matchJobService.start("weightSweep", null,
+                Map.of("candidateWeights", List.of(List.of(4.0, 2.0, 1.0), List.of(1.0, 1.0, 1.0)), "chosen", 1));
+
+        await(job);
+        assertThat(job.getState(), is(MatchJob.State.COMPLETED));
+        WeightSweep sweep = (WeightSweep) job.getResult();
+        assertThat(sweep.getResults().size(), is(2));
+        assertThat(sweep.getChosen(), is(1));
+        assertThat(assignedCount(), is(sweep.getResults().get(1).getPlaced()));
+    }
+
+    @Test
+    void runsOneMatchAtATimeAndWritesNothingWhenCancelled() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<MatchRun, ResponseEntity<String>> blocked = run -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return this.matchService.match(run);
+        };
+        doReturn(blocked).when(this.matchStrategies).get(eq("match"), anyMap());
+
+        MatchJob job = this.matchJobService.start("match", null, Map.of());
+        assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+
+        // Neither another job nor a match on the request thread may start while the job runs
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> this.matchJobService.start("weightedMatch", null, Map.of()));
+        assertThat(e.getStatusCode(), is(HttpStatus.CONFLICT));
+        e = assertThrows(ResponseStatusException.class,
+                () -> this.matchJobService.runExclusively("match", this.matchService::match));
+        assertThat(e.getStatusCode(), is(HttpStatus.CONFLICT));
+
+        assertThat(this.matchJobService.cancel(job.getId()), is(job));
+        release.countDown();
+        await(job);
+        assertThat(job.getState(), is(MatchJob.State.CANCELLED));
+        assertThat(assignedCount(), is(0));
+
+        // Once the job has ended, the next match may run
+        ResponseEntity<String> response = this.matchJobService.runExclusively("match", this.matchService::match);
+        assertThat(response.getStatusCode().is2xxSuccessful(), is(true));
+        assertThat(assignedCount(), is(2));
+    }
+
+    @Test
+    void rejectsAJobWhileAMatchRunsOnTheRequestThread() {
+        this.matchJobService.runExclusively("match", () -> {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> this.matchJobService.start("match", null, Map.of()));
+            assertThat(e.getStatusCode(), is(HttpStatus.CONFLICT));
+            return null;
+        });
+
+        // The lock is released once the match returns
+        MatchJob job = this.matchJobService.start("match", null, Map.of());
+        await(job);
+        assertThat(job.getState(), is(MatchJob.State.COMPLETED));
+    }
+
+    // Helper method that waits for a job to finish.
+    private static void await(MatchJob job) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (job.getState() == MatchJob.State.RUNNING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(job.getState() == MatchJob.State.RUNNING, is(false));
+    }
+
+    // Helper method that counts the candidates marked as assigned in the database.
+    private int assignedCount() {
+        int count = 0;
+        for (Candidate candidate : this.candidateRepository.findAll()) {
+            if (Boolean.TRUE.equals(candidate.getAssigned())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Helper method that creates a crew candidate who wants to edit Production 1.
+    private static Candidate candidate(String name) {
+        Candidate candidate = new Candidate();
+        candidate.setName(name);
+        candidate.setEmail(name.toLowerCase() + "@uw.edu");
+        candidate.setTimestamp("1/1/2023 12:00:00");
+        candidate.setYearsInUW(2);
+        candidate.setQuartersInLux(3);
+        candidate.setActingInterest(false);
+        candidate.setProductions(new ArrayList<>(List.of("Production 1")));
+        candidate.setRoles(new ArrayList<>(List.of("Editor")));
+        candidate.setProdPriority(true);
+        candidate.setAssigned(false);
+        return candidate;
+    }
+}
@@ -0,0 +1,78 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:matchpreview")
+class MatchPreviewServiceTests {
+
+    @Autowired
+    MatchPreviewService matchPreviewService;
+
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Test
+    void previewsCandidatesSharingAName() {
+        this.candidateRepository.deleteAll();
+        this.productionRepository.deleteAll();
+
+        Production production = new Production();
+        production.setName("Production 1");
+        production.setArchived(false);
+        production.setRoles(new ArrayList<>(List.of("Editor", "Editor")));
+        production.setMembers(new ArrayList<>(List.of("", "")));
+        production.setRoleWeights(new ArrayList<>(List.of(1.0, 1.0)));
+        this.productionRepository.save(production);
+        Set<Integer> ids = new HashSet<>();
+        for (String email : List.of("ada@uw.edu", "ada@lux.org")) {
+            ids.add(this.candidateRepository.save(candidate(email)).getId());
+        }
+
+        MatchPreview preview = this.matchPreviewService.preview("match");
+
+        Set<Integer> previewed = new HashSet<>();
+        for (MatchPreview.ProductionChanges changes : preview.getProductions()) {
+            for (MatchPreview.SlotChange slot : changes.getSlots()) {
+                previewed.add(slot.getCandidateId());
+            }
+        }
+        assertThat(previewed, is(ids));
+        assertThat(this.matchPreviewService.commit(preview.getToken()).getStatusCode().is2xxSuccessful(), is(true));
+        for (Candidate candidate : this.candidateRepository.findAll()) {
+            assertThat(candidate.getAssigned(), is(true));
+        }
+    }
+
+    // Helper method that creates a crew candidate named Ada who wants to edit Production 1.
+    private static Candidate candidate(String email) {
+        Candidate candidate = new Candidate();
+        candidate.setName("Ada");
+        candidate.setEmail(email);
+        candidate.setTimestamp("1/1/2023 12:00:00");
+        candidate.setYearsInUW(2);
+        candidate.setQuartersInLux(3);
+        candidate.setActingInterest(false);
+        candidate.setProductions(new ArrayList<>(List.of("Production 1")));
+        candidate.setRoles(new ArrayList<>(List.of("Editor")));
+        candidate.setProdPriority(true);
+        candidate.setAssigned(false);
+        return candidate;
+    }
+}
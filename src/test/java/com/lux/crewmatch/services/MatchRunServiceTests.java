@@ -0,0 +1,51 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:matchrunservice")
+class MatchRunServiceTests {
+
+    @Autowired
+    MatchRunService matchRunService;
+
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void backfillRanksEveryPage() {
+        // Several pages of candidates saved without a rank, some of which cannot be ranked
+        List<Candidate> candidates = new WorkloadGenerator().seed(10).candidates(700).generateCandidates();
+        this.candidateRepository.deleteAll();
+        this.candidateRepository.saveAll(candidates);
+        this.jdbcTemplate.update("update CANDIDATES set SENIORITY_RANK = null");
+        this.jdbcTemplate.update("update CANDIDATES set QUARTERS_IN_LUX = null where mod(ID, 50) = 0");
+        int unrankable = this.jdbcTemplate.queryForObject(
+                "select count(*) from CANDIDATES where QUARTERS_IN_LUX is null", Integer.class);
+
+        this.matchRunService.backfillSeniorityRanks();
+
+        int unranked = this.jdbcTemplate.queryForObject(
+                "select count(*) from CANDIDATES where SENIORITY_RANK is null", Integer.class);
+        assertThat(unranked, is(unrankable));
+        for (Candidate candidate : this.candidateRepository.findAll()) {
+            if (candidate.getQuartersInLux() != null) {
+                assertThat(candidate.getSeniorityRank(), is(Candidate.seniorityRank(candidate.getQuartersInLux(),
+                        candidate.getYearsInUW(), candidate.getTimestampMillis())));
+            }
+        }
+    }
+}
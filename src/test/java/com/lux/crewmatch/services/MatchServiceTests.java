@@ -0,0 +1,187 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.CandidateRepository;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:matchservice")
+class MatchServiceTests {
+
+    @Autowired
+    MatchService matchService;
+
+    @Autowired
+    CandidateRepository candidateRepository;
+
+    @Autowired
+    ProductionRepository productionRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void streamedMatchPlacesLikeLoadedMatch() {
+        populate();
+        this.matchService.streamMatch();
+        List<String> streamed = members();
+
+        populate();
+        this.matchService.match();
+        List<String> loaded = members();
+
+        assertThat(streamed, is(loaded));
+        assertThat(streamed.stream().filter(member -> !member.equals("")).count(), greaterThan(10L));
+    }
+
+    @Test
+    void parallelMatchPlacesLikeSerialMatch() {
+        MatchService parallel = service();
+        MatchRun parallelRun = workload();
+        assertThat(parallelRun.getCandidates().size(), greaterThan(parallel.parallelThreshold));
+        String parallelBody = parallel.match(parallelRun).getBody();
+
+        MatchService serial = service();
+        serial.parallelThreshold = Integer.MAX_VALUE;
+        MatchRun serialRun = workload();
+        String serialBody = serial.match(serialRun).getBody();
+
+        assertThat(parallelBody, is(serialBody));
+        assertThat(members(parallelRun), is(members(serialRun)));
+        for (int c = 0; c < parallelRun.getCandidates().size(); c++) {
+            assertThat(parallelRun.getCandidates().get(c).getAssigned(), is(serialRun.getCandidates().get(c).getAssigned()));
+        }
+    }
+
+    @Test
+    void leftoverCandidatesFillTheHeaviestVacantSlotsFirst() {
+        // Production A weighs its slots 1 and 3, and B has a single slot, so normalized B's slot is the heaviest,
+        // then A's second slot, then A's first
+        Production a = production("Production A", List.of("Editor", "Gaffer"), List.of(1.0, 3.0));
+        Production b = production("Production B", List.of("Writer"), List.of(2.0));
+        List<Candidate> candidates = new ArrayList<>(List.of(
+                unplaceable("Cy", 1), unplaceable("Ada", 5), unplaceable("Bo", 3)));
+        MatchRun run = new MatchRun(new ArrayList<>(List.of(a, b)), candidates);
+
+        String body = service().matchWithoutPreference(run).getBody();
+
+        assertThat(body, is("3 have been placed on 2 productions. 0 remain to be matched."));
+        assertThat(b.getMembers(), is(List.of("Ada")));
+        assertThat(a.getMembers(), is(List.of("Cy", "Bo")));
+    }
+
+    // Helper method that creates a vacant production with the given roles and weights.
+    private static Production production(String name, List<String> roles, List<Double> weights) {
+        Production production = new Production();
+        production.setName(name);
+        production.setArchived(false);
+        production.setRoles(new ArrayList<>(roles));
+        production.setMembers(new ArrayList<>(Collections.nCopies(roles.size(), "")));
+        production.setRoleWeights(new ArrayList<>(weights));
+        return production;
+    }
+
+    // Helper method that creates a candidate whose preferences match no production, so only the leftover stage can
+    // place them.
+    private static Candidate unplaceable(String name, int quartersInLux) {
+        Candidate candidate = new Candidate();
+        candidate.setName(name);
+        candidate.setEmail(name.toLowerCase() + "@uw.edu");
+        candidate.setTimestamp("1/1/2023 12:00:00");
+        candidate.setYearsInUW(1);
+        candidate.setQuartersInLux(quartersInLux);
+        candidate.setActingInterest(false);
+        candidate.setProductions(new ArrayList<>(List.of("Production Z")));
+        candidate.setRoles(new ArrayList<>(List.of("Juggler")));
+        candidate.setProdPriority(false);
+        candidate.setAssigned(false);
+        return candidate;
+    }
+
+    // Helper method that creates a match run large enough to be matched in parallel, out of several workloads over
+    // separate productions, so the pool splits into components in which candidates compete for the popular slots.
+    private static MatchRun workload() {
+        List<Production> productions = new ArrayList<>();
+        List<Candidate> candidates = new ArrayList<>();
+        for (int group = 0; group < 4; group++) {
+            String prefix = "Group " + group + " ";
+            WorkloadGenerator generator = new WorkloadGenerator().seed(12 + group).candidates(800).productions(5)
+                    .slotsPerProduction(40).preferenceSkew(1.5).actingRatio(0.0);
+            for (Production production : generator.generateProductions()) {
+                production.setName(prefix + production.getName());
+                productions.add(production);
+            }
+            for (Candidate candidate : generator.generateCandidates()) {
+                candidate.setName(prefix + candidate.getName());
+                candidate.getProductions().replaceAll(name -> prefix + name);
+                candidates.add(candidate);
+            }
+        }
+        return new MatchRun(productions, candidates);
+    }
+
+    // Helper method that creates the service without a database.
+    private static MatchService service() {
+        MatchService service = new MatchService();
+        service.productionRepository = Mockito.mock(ProductionRepository.class);
+        Mockito.when(service.productionRepository.count()).thenReturn(20L);
+        return service;
+    }
+
+    private static List<String> members(MatchRun run) {
+        List<String> members = new ArrayList<>();
+        for (Production production : run.getProductions()) {
+            members.addAll(production.getMembers());
+        }
+        return members;
+    }
+
+    // Helper method that replaces the stored candidates and productions with a workload in which most candidates tie
+    // on seniority, saved in shuffled order so their ids do not follow their names.
+    private void populate() {
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            this.candidateRepository.deleteAll();
+            this.productionRepository.deleteAll();
+
+            WorkloadGenerator generator = new WorkloadGenerator().seed(9).candidates(400).productions(8)
+                    .slotsPerProduction(12).actingRatio(0.0).seniority(2, 2);
+            List<Candidate> candidates = generator.generateCandidates();
+            for (Candidate candidate : candidates) {
+                candidate.setTimestamp("1/1/2023 12:00:00");
+            }
+            Collections.shuffle(candidates, new Random(9));
+            this.productionRepository.saveAll(generator.generateProductions());
+            this.candidateRepository.saveAll(candidates);
+        });
+    }
+
+    // Helper method that lists the members of every stored production, in production name order.
+    private List<String> members() {
+        return new TransactionTemplate(this.transactionManager).execute(status -> {
+            List<Production> productions = new ArrayList<>();
+            this.productionRepository.findAll().forEach(productions::add);
+            productions.sort((a, b) -> a.getName().compareTo(b.getName()));
+            List<String> members = new ArrayList<>();
+            for (Production production : productions) {
+                members.addAll(production.getMembers());
+            }
+            return members;
+        });
+    }
+}
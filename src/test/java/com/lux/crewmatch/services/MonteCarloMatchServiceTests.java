@@ -0,0 +1,125 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Configs;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+class MonteCarloMatchServiceTests {
+
+    @Test
+    void stoppedRunAppliesTheWholeBestTrial() {
+        List<String> complete = members(new MatchProgress());
+
+        // The run stops right after its only trial has started
+        AtomicInteger checks = new AtomicInteger();
+        List<String> stopped = members(new MatchProgress() {
+            @Override
+            public boolean shouldContinue() {
+                return checks.incrementAndGet() <= 1;
+            }
+        });
+
+        assertThat(stopped, is(complete));
+        assertThat(filled(complete), greaterThan(1));
+    }
+
+    @Test
+    void trialsOnlyShuffleTiesOfThePolicy() {
+        // Rank by timestamp alone, with a different second for every candidate, so no two candidates tie even though
+        // they all have the same quarters and years
+        MatchRun run = workload(new MatchProgress());
+        List<Candidate> candidates = run.getCandidates();
+        for (int i = 0; i < candidates.size(); i++) {
+            candidates.get(i).setTimestamp(String.format("1/1/2023 %d:%02d:%02d", i / 3600, i / 60 % 60, i % 60));
+            candidates.get(i).setQuartersInLux(1);
+            candidates.get(i).setYearsInUW(1);
+        }
+        Configs timestamp = new Configs();
+        timestamp.setName("rank:1:timestamp");
+        timestamp.setValue(-1);
+        run.setRankingPolicy(RankingPolicy.from(List.of(timestamp)));
+
+        // Every trial keeps the policy order, so all score the same and the first is chosen
+        String body = service(run).monteCarloMatch(run, 64, 3).getBody();
+        assertThat(body, containsString("Run 1 of 64"));
+    }
+
+    @Test
+    void appliesTheBestTrialAsScored() {
+        MatchRun run = workload(new MatchProgress());
+        ResponseEntity<String> response = service(run).monteCarloMatch(run, 16, 5);
+
+        int filled = filled(members(run));
+        assertThat(response.getBody(), startsWith(filled + " have been placed"));
+        assertThat(run.getProgress().getPlaced(), is(filled));
+    }
+
+    @Test
+    void rejectsMoreRunsThanTheCap() {
+        MatchRun run = workload(new MatchProgress());
+        ResponseEntity<String> response = service(run).monteCarloMatch(run, MonteCarloMatchService.MAX_RUNS + 1, 0);
+
+        assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThat(filled(members(run)), is(0));
+    }
+
+    // Helper method that runs a single trial of the Monte Carlo match on a fresh workload, reporting to the given
+    // progress, and returns the members of every slot.
+    private static List<String> members(MatchProgress progress) {
+        MatchRun run = workload(progress);
+        service(run).monteCarloMatch(run, 1, 0);
+        return members(run);
+    }
+
+    // Helper method that creates a match run over a fresh workload, reporting to the given progress.
+    private static MatchRun workload(MatchProgress progress) {
+        WorkloadGenerator generator = new WorkloadGenerator().seed(4).candidates(200).productions(10)
+                .slotsPerProduction(10).actingRatio(0.0);
+        MatchRun run = new MatchRun(generator.generateProductions(), generator.generateCandidates());
+        run.setProgress(progress);
+        return run;
+    }
+
+    // Helper method that creates the service for a run, without a database.
+    private static MonteCarloMatchService service(MatchRun run) {
+        MonteCarloMatchService service = new MonteCarloMatchService();
+        service.productionRepository = Mockito.mock(ProductionRepository.class);
+        Mockito.when(service.productionRepository.count()).thenReturn((long) run.getProductions().size());
+        return service;
+    }
+
+    // Helper method that returns the members of every slot of a run.
+    private static List<String> members(MatchRun run) {
+        List<String> members = new ArrayList<>();
+        for (Production production : run.getProductions()) {
+            members.addAll(production.getMembers());
+        }
+        return members;
+    }
+
+    private static int filled(List<String> members) {
+        int filled = 0;
+        for (String member : members) {
+            if (!member.equals("")) {
+                filled++;
+            }
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,47 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Configs;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+class SeniorityOrderTests {
+
+    @Test
+    void tieGroupsFollowThePolicy() {
+        // Rank by years at UW, then timestamp, ignoring quarters in LUX
+        Configs years = new Configs();
+        years.setName("rank:1:yearsInUW");
+        years.setValue(1);
+        Configs timestamp = new Configs();
+        timestamp.setName("rank:2:timestamp");
+        timestamp.setValue(-1);
+        RankingPolicy policy = RankingPolicy.from(List.of(years, timestamp));
+
+        List<Candidate> candidates = new WorkloadGenerator().seed(9).candidates(500).actingRatio(0.0)
+                .generateCandidates();
+        SeniorityOrder.sort(candidates, policy);
+        int[] groupEnd = SeniorityOrder.tieGroupEnds(candidates, policy, 1);
+
+        int groups = 0;
+        for (int start = 0; start < candidates.size(); start = groupEnd[start]) {
+            groups++;
+            Integer groupYears = candidates.get(start).getYearsInUW();
+            for (int c = start; c < groupEnd[start]; c++) {
+                assertThat(groupEnd[c], is(groupEnd[start]));
+                assertThat(candidates.get(c).getYearsInUW(), is(groupYears));
+            }
+            if (groupEnd[start] < candidates.size()) {
+                assertThat(candidates.get(groupEnd[start]).getYearsInUW(), not(groupYears));
+            }
+        }
+        assertThat(groups, greaterThan(1));
+    }
+}
@@ -0,0 +1,36 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+class StableMatchServiceTests {
+
+    @Test
+    void stoppedRunDiscardsTentativeHolds() {
+        // Enough candidates that the run is checked while they are still proposing
+        WorkloadGenerator generator = new WorkloadGenerator().seed(7).candidates(3000).productions(10)
+                .slotsPerProduction(20).actingRatio(0.0);
+        MatchRun run = new MatchRun(generator.generateProductions(), generator.generateCandidates());
+        MatchProgress progress = new MatchProgress();
+        progress.cancel();
+        run.setProgress(progress);
+
+        StableMatchService service = new StableMatchService();
+        service.productionRepository = Mockito.mock(ProductionRepository.class);
+        Mockito.when(service.productionRepository.count()).thenReturn((long) run.getProductions().size());
+        String body = service.stableMatch(run).getBody();
+
+        assertThat(body, containsString("stopped before it was stable"));
+        for (Production production : run.getProductions()) {
+            assertThat(production.getMembers().stream().allMatch(member -> member.equals("")), is(true));
+        }
+        assertThat(progress.getPlaced(), is(0));
+    }
+}
@@ -0,0 +1,138 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.entities.SwapRequest;
+import com.lux.crewmatch.repositories.SwapRequestRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+class SwapImprovementServiceTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void acceptedSuggestionsMatchAppliedSwaps() {
+        for (SwapImprover.Objective objective : SwapImprover.Objective.values()) {
+            for (boolean threeWay : new boolean[]{false, true}) {
+                MatchRun applied = run();
+                service(applied, Mockito.mock(SwapRequestRepository.class)).improve(true, objective, threeWay);
+
+                // Accept every suggestion in the order it was created, as the swap request controller does
+                MatchRun suggested = run();
+                SwapRequestRepository repository = Mockito.mock(SwapRequestRepository.class);
+                service(suggested, repository).improve(false, objective, threeWay);
+                ArgumentCaptor<Iterable<SwapRequest>> saved = ArgumentCaptor.forClass(Iterable.class);
+                Mockito.verify(repository).saveAll(saved.capture());
+                Map<String, Production> productions = new HashMap<>();
+                for (Production production : suggested.getProductions()) {
+                    productions.put(production.getName(), production);
+                }
+                int accepted = 0;
+                for (SwapRequest request : saved.getValue()) {
+                    Production first = productions.get(request.getProduction1());
+                    Production second = productions.get(request.getProduction2());
+                    swapMembers(first, request.getMember1(), request.getRole1(), request.getMember2());
+                    swapMembers(second, request.getMember2(), request.getRole2(), request.getMember1());
+                    accepted++;
+                }
+
+                assertThat(accepted, greaterThan(0));
+                assertThat(members(suggested), is(members(applied)));
+            }
+        }
+    }
+
+    @Test
+    void swapsTellCandidatesSharingANameApart() {
+        // A and the second Sam each hold the other's first choice, while the first Sam only wants P3
+        Candidate a = placed(1, "A", List.of("P2", "Q", "P1"));
+        Candidate second = placed(2, "Sam", List.of("P1", "Q", "P2"));
+        Candidate first = placed(3, "Sam", List.of("P3"));
+        Production p1 = production("P1", a);
+        Production p2 = production("P2", second);
+        Production p3 = production("P3", first);
+        MatchRun run = new MatchRun(new ArrayList<>(List.of(p1, p2, p3)), new ArrayList<>(List.of(first, second, a)));
+
+        String body = service(run, Mockito.mock(SwapRequestRepository.class))
+                .improve(true, SwapImprover.Objective.PARETO, false).getBody();
+
+        assertThat(body, startsWith("1 swaps have been made"));
+        assertThat(p1.memberIdAt(0), is(2));
+        assertThat(p2.memberIdAt(0), is(1));
+        assertThat(p3.memberIdAt(0), is(3));
+        assertThat(second.getAssignedProduction(), is(List.of("P1")));
+        assertThat(first.getAssignedProduction(), is(List.of("P3")));
+    }
+
+    // Helper method that creates a match run over candidates placed at random.
+    private static MatchRun run() {
+        List<Production> productions = new ArrayList<>();
+        List<Candidate> candidates = new ArrayList<>();
+        SwapImproverTests.placeRandomly(3, productions, candidates);
+        return new MatchRun(productions, candidates);
+    }
+
+    // Helper method that creates the service for a run, without a database.
+    private static SwapImprovementService service(MatchRun run, SwapRequestRepository repository) {
+        SwapImprovementService service = new SwapImprovementService();
+        service.matchRunService = Mockito.mock(MatchRunService.class);
+        service.swapRequestRepository = repository;
+        Mockito.when(service.matchRunService.loadPlaced()).thenReturn(run);
+        return service;
+    }
+
+    // Helper method that replaces a member in a role with another, as SwapRequestController does on acceptance.
+    private static void swapMembers(Production production, String member1, String role, String member2) {
+        List<String> members = new ArrayList<>(production.getMembers());
+        for (int i = 0; i < members.size(); i++) {
+            if (members.get(i).startsWith(member1) && production.getRoles().get(i).equals(role)) {
+                members.set(i, member2);
+                production.setMembers(members);
+                break;
+            }
+        }
+    }
+
+    // Helper method that creates a stored candidate who wants to edit the given productions, in order.
+    private static Candidate placed(int id, String name, List<String> productions) {
+        Candidate candidate = new Candidate();
+        candidate.setId(id);
+        candidate.setName(name);
+        candidate.setProductions(new ArrayList<>(productions));
+        candidate.setRoles(new ArrayList<>(List.of("Editor")));
+        candidate.setProdPriority(true);
+        candidate.setAssigned(false);
+        return candidate;
+    }
+
+    // Helper method that creates a production with one editor slot, in which the candidate is placed.
+    private static Production production(String name, Candidate candidate) {
+        Production production = new Production();
+        production.setName(name);
+        production.setRoles(new ArrayList<>(List.of("Editor")));
+        production.setMembers(new ArrayList<>(List.of("")));
+        production.setRoleWeights(new ArrayList<>(List.of(1.0)));
+        production.place(candidate, "Editor");
+        candidate.assign(production, "Editor");
+        return production;
+    }
+
+    private static List<String> members(MatchRun run) {
+        List<String> members = new ArrayList<>();
+        for (Production production : run.getProductions()) {
+            members.addAll(production.getMembers());
+        }
+        return members;
+    }
+}
@@ -0,0 +1,179 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+class SwapImproverTests {
+
+    @Test
+    void paretoSwapsLeaveNobodyWorseOff() {
+        // A's third choice is B's second, and B's third choice is A's first
+        Candidate a = candidate("A", List.of("P2", "Q", "P1"));
+        Candidate b = candidate("B", List.of("R", "P2", "P1"));
+        List<Production> productions = List.of(production("P1", "A"), production("P2", "B"));
+
+        // Swapping would raise A from 8 to 20 and lower B from 12 to 8
+        SwapImprover pareto = new SwapImprover(productions, List.of(a, b), SwapImprover.Objective.PARETO, false);
+        assertThat(pareto.improve(new MatchProgress()).size(), is(0));
+
+        SwapImprover total = new SwapImprover(productions, List.of(a, b), SwapImprover.Objective.TOTAL, false);
+        assertThat(total.totalScore(), is(20.0));
+        assertThat(total.improve(new MatchProgress()).size(), is(1));
+        assertThat(total.totalScore(), is(28.0));
+    }
+
+    @Test
+    void nobodyIsMovedIntoAnUnlistedSlot() {
+        // A would gain more than B loses, but B never listed P1
+        Candidate a = candidate("A", List.of("P2", "Q", "P1"));
+        Candidate b = candidate("B", List.of("R", "S", "P2"));
+        List<Production> productions = List.of(production("P1", "A"), production("P2", "B"));
+
+        for (SwapImprover.Objective objective : SwapImprover.Objective.values()) {
+            SwapImprover improver = new SwapImprover(productions, List.of(a, b), objective, true);
+            assertThat(improver.improve(new MatchProgress()).size(), is(0));
+        }
+    }
+
+    @Test
+    void rotationsImproveWhenNoPairDoes() {
+        // Each candidate wants the slot of the next, and none listed the slot of the previous
+        Candidate a = candidate("A", List.of("P2", "P1"));
+        Candidate b = candidate("B", List.of("P3", "P2"));
+        Candidate c = candidate("C", List.of("P1", "P3"));
+        List<Production> productions = List.of(production("P1", "A"), production("P2", "B"), production("P3", "C"));
+
+        SwapImprover pairs = new SwapImprover(productions, List.of(a, b, c), SwapImprover.Objective.PARETO, false);
+        assertThat(pairs.improve(new MatchProgress()).size(), is(0));
+
+        SwapImprover rotations = new SwapImprover(productions, List.of(a, b, c), SwapImprover.Objective.PARETO, true);
+        double before = rotations.totalScore();
+        List<int[]> swaps = rotations.improve(new MatchProgress());
+        assertThat(swaps.size(), is(2));
+        assertThat(rotations.totalScore(), greaterThan(before));
+        assertThat(replay(productions, swaps, rotations), is(List.of("C", "A", "B")));
+    }
+
+    @Test
+    void objectivesHoldOnRandomPlacements() {
+        for (long seed = 0; seed < 5; seed++) {
+            for (SwapImprover.Objective objective : SwapImprover.Objective.values()) {
+                List<Production> productions = new ArrayList<>();
+                List<Candidate> candidates = new ArrayList<>();
+                placeRandomly(seed, productions, candidates);
+                Map<String, Double> before = scores(productions, candidates);
+
+                SwapImprover improver = new SwapImprover(productions, candidates, objective, true);
+                double totalBefore = improver.totalScore();
+                List<int[]> swaps = improver.improve(new MatchProgress());
+                replay(productions, swaps, improver);
+                Map<String, Double> after = scores(productions, candidates);
+
+                assertThat(swaps.size(), greaterThan(0));
+                assertThat(improver.totalScore(), greaterThan(totalBefore));
+                assertThat(sum(after), is(improver.totalScore()));
+                for (Candidate candidate : candidates) {
+                    String name = candidate.getName();
+                    // Nobody is moved into a slot they did not list
+                    if (after.get(name) == 0.0) {
+                        assertThat(name, before.get(name), is(0.0));
+                    }
+                    if (objective == SwapImprover.Objective.PARETO) {
+                        assertThat(name, after.get(name), greaterThanOrEqualTo(before.get(name)));
+                    }
+                }
+            }
+        }
+    }
+
+    // Helper method that places every crew candidate of a workload in a random slot, listed or not.
+    static void placeRandomly(long seed, List<Production> productions, List<Candidate> candidates) {
+        WorkloadGenerator generator = new WorkloadGenerator().seed(seed).candidates(120).productions(6)
+                .slotsPerProduction(15).actingRatio(0.0);
+        productions.addAll(generator.generateProductions());
+        candidates.addAll(generator.generateCandidates());
+        Random random = new Random(seed);
+        for (Candidate candidate : candidates) {
+            Production production = productions.get(random.nextInt(productions.size()));
+            String role = production.getRoles().get(random.nextInt(production.getRoles().size()));
+            if (production.place(candidate, role)) {
+                candidate.assign(production, role);
+            }
+        }
+        candidates.removeIf(candidate -> !candidate.getAssigned());
+    }
+
+    // Helper method that makes the swaps of an improver on the members of the productions, returning every member.
+    private static List<String> replay(List<Production> productions, List<int[]> swaps, SwapImprover improver) {
+        Map<Production, List<String>> members = new HashMap<>();
+        for (Production production : productions) {
+            members.put(production, new ArrayList<>(production.getMembers()));
+        }
+        for (int[] swap : swaps) {
+            List<String> first = members.get(improver.productionOf(swap[0]));
+            List<String> second = members.get(improver.productionOf(swap[1]));
+            String member = first.get(improver.indexOf(swap[0]));
+            first.set(improver.indexOf(swap[0]), second.get(improver.indexOf(swap[1])));
+            second.set(improver.indexOf(swap[1]), member);
+        }
+        List<String> all = new ArrayList<>();
+        for (Production production : productions) {
+            production.setMembers(members.get(production));
+            all.addAll(members.get(production));
+        }
+        return all;
+    }
+
+    // Helper method that scores every candidate in the slot they hold, as the improver does.
+    private static Map<String, Double> scores(List<Production> productions, List<Candidate> candidates) {
+        Map<String, Double> scores = new HashMap<>();
+        SwapImprover improver = new SwapImprover(productions, candidates, SwapImprover.Objective.TOTAL, false);
+        for (Candidate candidate : candidates) {
+            SwapImprover alone = new SwapImprover(productions, List.of(candidate), SwapImprover.Objective.TOTAL, false);
+            scores.put(candidate.getName(), alone.totalScore());
+        }
+        assertThat(sum(scores), is(improver.totalScore()));
+        return scores;
+    }
+
+    private static double sum(Map<String, Double> scores) {
+        double total = 0;
+        for (double score : scores.values()) {
+            total += score;
+        }
+        return Math.round(total * 1e6) / 1e6;
+    }
+
+    // Helper method that creates a candidate who wants to edit, ranking productions first.
+    private static Candidate candidate(String name, List<String> productions) {
+        Candidate candidate = new Candidate();
+        candidate.setName(name);
+        candidate.setProductions(new ArrayList<>(productions));
+        candidate.setRoles(new ArrayList<>(List.of("Editor")));
+        candidate.setProdPriority(true);
+        return candidate;
+    }
+
+    // Helper method that creates a production with one editor slot held by a member.
+    private static Production production(String name, String member) {
+        Production production = new Production();
+        production.setName(name);
+        production.setRoles(new ArrayList<>(List.of("Editor")));
+        production.setMembers(new ArrayList<>(List.of(member)));
+        production.setRoleWeights(new ArrayList<>(List.of(1.0)));
+        return production;
+    }
+}
@@ -0,0 +1,142 @@
+package com.lux.crewmatch.services;
+
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.repositories.ProductionRepository;
+import com.lux.crewmatch.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WeightedMatchServiceTests {
+
+    @Test
+    void stoppedRunAppliesTheWholeSolution() {
+        List<String> complete = members(new MatchProgress());
+
+        // The budget runs out once the solver has finished, while its solution is being applied
+        List<String> stopped = members(new MatchProgress() {
+            @Override
+            public boolean advance(int processedCount, int placedCount) {
+                super.advance(processedCount, placedCount);
+                return false;
+            }
+        });
+
+        assertThat(stopped, is(complete));
+        assertThat(complete.stream().filter(member -> !member.equals("")).count(), greaterThan(1L));
+    }
+
+    @Test
+    void sweepRejectsInvalidGrids() {
+        MatchRun run = workload(new MatchProgress());
+        String production = run.getProductionNames().get(0);
+
+        assertRejected(run, request(List.of(List.of(4.0, -1.0)), null, null));
+        assertRejected(run, request(List.of(List.of()), null, null));
+        assertRejected(run, request(null, List.of(Map.of("No Such Production", 2.0)), null));
+        assertRejected(run, request(null, List.of(Map.of(production, -2.0)), null));
+        List<List<Double>> tooMany = new ArrayList<>();
+        for (int i = 0; i <= WeightedMatchService.MAX_SWEEP_COMBINATIONS; i++) {
+            tooMany.add(List.of(4.0, 2.0, 1.0));
+        }
+        assertRejected(run, request(tooMany, null, null));
+
+        // Two vectors by two scalings make four combinations, numbered from 0
+        List<List<Double>> vectors = List.of(List.of(4.0, 2.0, 1.0), List.of(1.0, 1.0, 1.0));
+        List<Map<String, Double>> scalings = List.of(Map.of(), Map.of(production, 2.0));
+        assertRejected(run, request(vectors, scalings, -1));
+        assertRejected(run, request(vectors, scalings, 4));
+        assertThat(service(run).weightSweep(run, request(vectors, scalings, 3)).getResults().size(), is(4));
+    }
+
+    @Test
+    void sweepWritesNothingUnlessAResultIsChosen() {
+        MatchRun run = workload(new MatchProgress());
+        List<String> before = members(run);
+
+        WeightSweep sweep = service(run).weightSweep(run, request(
+                List.of(List.of(4.0, 2.0, 1.0), List.of(1.0, 1.0, 1.0)), null, null));
+
+        assertThat(sweep.getResults().size(), is(2));
+        assertThat(sweep.getResults().get(0).getPlaced(), greaterThan(1));
+        assertThat(members(run), is(before));
+        assertThat(run.getChangedCandidates().isEmpty(), is(true));
+    }
+
+    @Test
+    void sweepAppliesTheChosenResultAsMeasured() {
+        // The run is stopped from the start, which must not cut the chosen placements short
+        MatchRun run = workload(new MatchProgress() {
+            @Override
+            public boolean shouldContinue() {
+                return false;
+            }
+        });
+
+        WeightSweep sweep = service(run).weightSweep(run, request(
+                List.of(List.of(4.0, 2.0, 1.0), List.of(1.0, 1.0, 1.0)), null, 1));
+
+        int placed = sweep.getResults().get(1).getPlaced();
+        assertThat(placed, greaterThan(1));
+        assertThat(members(run).stream().filter(member -> !member.equals("")).count(), is((long) placed));
+    }
+
+    // Helper method that runs the optimal weighted match on a fresh workload, reporting to the given progress, and
+    // returns the members of every slot.
+    private static List<String> members(MatchProgress progress) {
+        MatchRun run = workload(progress);
+        service(run).optimalWeightedMatch(run);
+        return members(run);
+    }
+
+    // Helper method that creates a match run over a fresh workload, reporting to the given progress.
+    private static MatchRun workload(MatchProgress progress) {
+        WorkloadGenerator generator = new WorkloadGenerator().seed(6).candidates(200).productions(10)
+                .slotsPerProduction(10).actingRatio(0.0);
+        MatchRun run = new MatchRun(generator.generateProductions(), generator.generateCandidates());
+        run.setProgress(progress);
+        return run;
+    }
+
+    // Helper method that creates the service for a run, without a database.
+    private static WeightedMatchService service(MatchRun run) {
+        WeightedMatchService service = new WeightedMatchService();
+        service.productionRepository = Mockito.mock(ProductionRepository.class);
+        Mockito.when(service.productionRepository.count()).thenReturn((long) run.getProductions().size());
+        return service;
+    }
+
+    // Helper method that returns the members of every slot of a run.
+    private static List<String> members(MatchRun run) {
+        List<String> members = new ArrayList<>();
+        for (Production production : run.getProductions()) {
+            members.addAll(production.getMembers());
+        }
+        return members;
+    }
+
+    private static WeightSweep.Request request(List<List<Double>> candidateWeights,
+                                               List<Map<String, Double>> productionScalings, Integer chosen) {
+        WeightSweep.Request request = new WeightSweep.Request();
+        request.setCandidateWeights(candidateWeights);
+        request.setProductionScalings(productionScalings);
+        request.setChosen(chosen);
+        return request;
+    }
+
+    private static void assertRejected(MatchRun run, WeightSweep.Request request) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service(run).weightSweep(run, request));
+        assertThat(e.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+    }
+}
@@ -0,0 +1,331 @@
+package com.lux.crewmatch.workload;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates seeded candidates, productions and interest form CSVs for benchmarks, load tests and integration tests.
+ *
+ * The same settings always produce the same data. Productions and candidates are drawn from separate random streams,
+ * so changing the number of candidates does not change the productions and the other way around. Candidates are
+ * generated as they would be read from the form by CSVHelper.csvToCandidates, and the CSV contains exactly those
+ * candidates.
+ */
+public class WorkloadGenerator {
+
+    // The headers of the role interest form, in the order expected by CSVHelper.csvToCandidates
+    public static final String[] HEADERS = {
+            "What is your name? (first and last)",
+            "What are your pronouns?",
+            "Email Address",
+            "Timestamp",
+            "How many YEARS have you been a student at UW, including this year? (for example, a sophomore would enter \"2\")",
+            "How many QUARTERS have you been in LUX Film Production Club, including this one? (for example, a new LUX member would enter \"1\")",
+            "First choice in production:",
+            "Second choice in production:",
+            "Third choice in production:",
+            "First choice in role:",
+            "Second choice in role:",
+            "Third choice in role:",
+            "Would you rather have your preferred ROLE or your preferred PRODUCTION?",
+            "Are you interested in acting (and not being on a production crew)?",
+            "Which productions would you like to audition for?"
+    };
+
+    public static final String[] DEFAULT_ROLES = {"Director", "Producer", "Assistant Director", "Director of Photography",
+            "Camera Operator", "Gaffer", "Key Grip", "Production Designer", "Costume Designer", "Hair and Makeup",
+            "Sound Mixer", "Boom Operator", "Script Supervisor", "Editor", "Colorist", "Production Assistant"};
+
+    private static final String[] FIRST_NAMES = {"Avery", "Blake", "Camille", "Dev", "Elena", "Farah", "Gabriel",
+            "Hana", "Isaac", "Jordan", "Kai", "Lena", "Mateo", "Nadia", "Omar", "Priya", "Quinn", "Rosa", "Sam",
+            "Tariq", "Uma", "Victor", "Wren", "Xin", "Yara", "Zane"};
+    private static final String[] LAST_NAMES = {"Abbott", "Bui", "Castillo", "Dimitrov", "Eriksen", "Fujita",
+            "Gonzalez", "Haddad", "Ivanova", "Johnson", "Kim", "Lopez", "Mwangi", "Nguyen", "Okafor", "Patel",
+            "Quispe", "Rossi", "Schmidt", "Tanaka", "Usman", "Varga", "Wong", "Xu", "Yilmaz", "Zhou"};
+    private static final String[] PRONOUNS = {"she/her", "he/him", "they/them"};
+
+    // The form opens at this time and stays open for the submission window
+    private static final LocalDateTime FORM_OPENS = LocalDateTime.of(2023, 1, 9, 9, 0, 0);
+    private static final int SUBMISSION_WINDOW_SECONDS = 14 * 24 * 60 * 60;
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern(Candidate.TIMESTAMP_FORMAT);
+
+    // Settings
+    private long seed = 42;
+    private int candidateCount = 1000;
+    private int productionCount = 20;
+    private int slotsPerProduction = 20;
+    private String[] roles = DEFAULT_ROLES;
+    private double preferenceSkew = 1.0;
+    private double actingRatio = 0.1;
+    private double productionPriorityRatio = 0.5;
+    private int maxYearsInUW = 5;
+    private int maxQuartersInLux = 15;
+
+    /**
+     * Sets the seed all data is derived from.
+     * @param seed - The seed of the random streams.
+     * @return - Returns this generator.
+     */
+    public WorkloadGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public WorkloadGenerator candidates(int candidateCount) {
+        this.candidateCount = candidateCount;
+        return this;
+    }
+
+    public WorkloadGenerator productions(int productionCount) {
+        this.productionCount = productionCount;
+        return this;
+    }
+
+    // The number of crew slots on every production
+    public WorkloadGenerator slotsPerProduction(int slotsPerProduction) {
+        this.slotsPerProduction = slotsPerProduction;
+        return this;
+    }
+
+    // The role names used for crew slots and candidate preferences
+    public WorkloadGenerator roles(String... roles) {
+        this.roles = roles.clone();
+        return this;
+    }
+
+    /**
+     * Sets how strongly candidates prefer popular productions. The production ranked r (from 1) is chosen with
+     * probability proportional to 1 / r^skew, so 0 spreads preferences evenly and higher values concentrate them on
+     * the first few productions.
+     * @param preferenceSkew - The exponent of the popularity distribution, at least 0.
+     * @return - Returns this generator.
+     */
+    public WorkloadGenerator preferenceSkew(double preferenceSkew) {
+        this.preferenceSkew = preferenceSkew;
+        return this;
+    }
+
+    // The share of candidates who are interested in acting rather than crew roles
+    public WorkloadGenerator actingRatio(double actingRatio) {
+        this.actingRatio = actingRatio;
+        return this;
+    }
+
+    // The share of crew candidates who would rather have their preferred production than their preferred role
+    public WorkloadGenerator productionPriorityRatio(double productionPriorityRatio) {
+        this.productionPriorityRatio = productionPriorityRatio;
+        return this;
+    }
+
+    /**
+     * Sets the spread of seniority. Years at UW are drawn evenly from 1 to maxYearsInUW, and quarters in LUX from 1 to
+     * the quarters those years allow, capped at maxQuartersInLux.
+     * @param maxYearsInUW - The most years at UW a candidate can have.
+     * @param maxQuartersInLux - The most quarters in LUX a candidate can have.
+     * @return - Returns this generator.
+     */
+    public WorkloadGenerator seniority(int maxYearsInUW, int maxQuartersInLux) {
+        this.maxYearsInUW = maxYearsInUW;
+        this.maxQuartersInLux = maxQuartersInLux;
+        return this;
+    }
+
+    // Returns the name of the production at a popularity rank, starting from 0
+    public static String productionName(int rank) {
+        return "Production " + (rank + 1);
+    }
+
+    /**
+     * Generates the productions, named by popularity rank, with vacant crew slots and role weights between 1 and 5.
+     * @return - Returns new production entities that have not been saved.
+     */
+    public List<Production> generateProductions() {
+        Random random = new Random(this.seed);
+        List<Production> productions = new ArrayList<>();
+        for (int p = 0; p < this.productionCount; p++) {
+            List<String> roles = new ArrayList<>();
+            List<String> members = new ArrayList<>();
+            List<Double> roleWeights = new ArrayList<>();
+            for (int k = 0; k < this.slotsPerProduction; k++) {
+                // Every role appears once before crews start to double up
+                roles.add(k < this.roles.length ? this.roles[k] : this.roles[random.nextInt(this.roles.length)]);
+                members.add("");
+                roleWeights.add(1.0 + random.nextInt(5));
+            }
+
+            Production production = new Production();
+            production.setName(productionName(p));
+            production.setArchived(false);
+            production.setRoles(roles);
+            production.setMembers(members);
+            production.setRoleWeights(roleWeights);
+            productions.add(production);
+        }
+        return productions;
+    }
+
+    /**
+     * Generates the candidates exactly as CSVHelper.csvToCandidates reads them from the form CSV.
+     * @return - Returns new candidate entities that have not been saved.
+     */
+    public List<Candidate> generateCandidates() {
+        List<Candidate> candidates = new ArrayList<>();
+        for (String[] row : generateRows()) {
+            Candidate candidate = new Candidate();
+            candidate.setName(row[0]);
+            candidate.setPronouns(row[1]);
+            candidate.setEmail(row[2]);
+            candidate.setTimestamp(row[3]);
+            candidate.setYearsInUW(Integer.parseInt(row[4]));
+            candidate.setQuartersInLux(Integer.parseInt(row[5]));
+            if (row[13].equals("Yes")) {
+                candidate.setActingInterest(true);
+                candidate.setProductions(new ArrayList<>(Arrays.asList(row[14].split(","))));
+            } else {
+                candidate.setActingInterest(false);
+                candidate.setProductions(new ArrayList<>(Arrays.asList(row[6], row[7], row[8])));
+                candidate.setRoles(new ArrayList<>(Arrays.asList(row[9], row[10], row[11])));
+                candidate.setProdPriority(row[12].equals("Production"));
+            }
+            candidate.setAssigned(false);
+            candidates.add(candidate);
+        }
+        return candidates;
+    }
+
+    /**
+     * Writes the candidates as a form CSV with the 15 headers.
+     * @param writer - The writer to write the CSV to. It is flushed but not closed.
+     */
+    public void writeCsv(Writer writer) {
+        try {
+            CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT);
+            printer.printRecord((Object[]) HEADERS);
+            for (String[] row : generateRows()) {
+                printer.printRecord((Object[]) row);
+            }
+            printer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Returns the form CSV as a string
+    public String generateCsv() {
+        StringWriter writer = new StringWriter();
+        writeCsv(writer);
+        return writer.toString();
+    }
+
+    /**
+     * Writes a form CSV to a file for load tests.
+     * @param args - The file to write, followed optionally by the number of candidates, the number of productions and
+     *             the seed.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: WorkloadGenerator <file> [candidates] [productions] [seed]");
+            return;
+        }
+        WorkloadGenerator generator = new WorkloadGenerator();
+        if (args.length > 1) {
+            generator.candidates(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            generator.productions(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            generator.seed(Long.parseLong(args[3]));
+        }
+        try (Writer writer = Files.newBufferedWriter(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            generator.writeCsv(writer);
+        }
+    }
+
+    // Generates one row of form answers per candidate
+    private List<String[]> generateRows() {
+        Random random = new Random(this.seed * 31 + 17);
+        double[] popularity = cumulativePopularity();
+        List<String[]> rows = new ArrayList<>();
+        for (int c = 0; c < this.candidateCount; c++) {
+            String[] row = new String[HEADERS.length];
+
+            // Names stay unique by numbering each repeat of a first and last name pair
+            int pairs = FIRST_NAMES.length * LAST_NAMES.length;
+            String first = FIRST_NAMES[c % FIRST_NAMES.length];
+            String last = LAST_NAMES[(c / FIRST_NAMES.length) % LAST_NAMES.length];
+            row[0] = c < pairs ? first + " " + last : first + " " + last + " " + (c / pairs + 1);
+            row[1] = PRONOUNS[random.nextInt(PRONOUNS.length)];
+            row[2] = (first + "." + last + c).toLowerCase() + "@uw.edu";
+            row[3] = FORM_OPENS.plusSeconds(random.nextInt(SUBMISSION_WINDOW_SECONDS))
+                    .format(TIMESTAMP_FORMATTER);
+
+            int years = 1 + random.nextInt(this.maxYearsInUW);
+            int quarters = 1 + random.nextInt(Math.max(1, Math.min(3 * years, this.maxQuartersInLux)));
+            row[4] = String.valueOf(years);
+            row[5] = String.valueOf(quarters);
+
+            boolean acting = random.nextDouble() < this.actingRatio;
+            List<String> productions = choosePreferences(random, popularity);
+            if (acting) {
+                Arrays.fill(row, 6, 13, "");
+                row[13] = "Yes";
+                row[14] = String.join(",", productions);
+            } else {
+                row[6] = productions.get(0);
+                row[7] = productions.get(1);
+                row[8] = productions.get(2);
+                row[9] = this.roles[random.nextInt(this.roles.length)];
+                row[10] = this.roles[random.nextInt(this.roles.length)];
+                row[11] = this.roles[random.nextInt(this.roles.length)];
+                row[12] = random.nextDouble() < this.productionPriorityRatio ? "Production" : "Role";
+                row[13] = "No";
+                row[14] = "";
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // Chooses three productions by popularity, distinct where there are enough productions
+    private List<String> choosePreferences(Random random, double[] popularity) {
+        List<String> choices = new ArrayList<>();
+        while (choices.size() < 3) {
+            double u = random.nextDouble() * popularity[popularity.length - 1];
+            int rank = Arrays.binarySearch(popularity, u);
+            rank = rank >= 0 ? rank + 1 : -rank - 1;
+            String name = productionName(Math.min(rank, popularity.length - 1));
+            if (!choices.contains(name) || choices.size() >= this.productionCount) {
+                choices.add(name);
+            }
+        }
+        return choices;
+    }
+
+    // Running totals of the popularity of each production rank
+    private double[] cumulativePopularity() {
+        double[] cumulative = new double[Math.max(1, this.productionCount)];
+        double total = 0;
+        for (int r = 0; r < cumulative.length; r++) {
+            total += 1.0 / Math.pow(r + 1, this.preferenceSkew);
+            cumulative[r] = total;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,81 @@
+package com.lux.crewmatch.workload;
+
+import com.lux.crewmatch.entities.Candidate;
+import com.lux.crewmatch.entities.Production;
+import com.lux.crewmatch.services.CSVHelper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+class WorkloadGeneratorTests {
+
+    @Test
+    void csvMatchesGeneratedCandidates() {
+        WorkloadGenerator generator = new WorkloadGenerator().candidates(2000).productions(30).actingRatio(0.2);
+
+        List<Candidate> generated = generator.generateCandidates();
+        List<Candidate> parsed = CSVHelper.csvToCandidates(
+                new ByteArrayInputStream(generator.generateCsv().getBytes(StandardCharsets.UTF_8)),
+                WorkloadGenerator.HEADERS);
+
+        assertThat(parsed.size(), is(generated.size()));
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < parsed.size(); i++) {
+            Candidate expected = generated.get(i);
+            Candidate actual = parsed.get(i);
+            assertThat(actual.getName(), is(expected.getName()));
+            assertThat(actual.getTimestampMillis(), is(expected.getTimestampMillis()));
+            assertThat(actual.getQuartersInLux(), is(expected.getQuartersInLux()));
+            assertThat(actual.getActingInterest(), is(expected.getActingInterest()));
+            assertThat(actual.getProductions(), is(expected.getProductions()));
+            assertThat(actual.getRoles(), is(expected.getRoles()));
+            assertThat(actual.getProdPriority(), is(expected.getProdPriority()));
+            names.add(actual.getName());
+        }
+        assertThat(names.size(), is(parsed.size()));
+    }
+
+    @Test
+    void sameSeedGeneratesSameWorkload() {
+        String csv = new WorkloadGenerator().seed(7).generateCsv();
+        assertThat(new WorkloadGenerator().seed(7).generateCsv(), is(csv));
+
+        List<Production> productions = new WorkloadGenerator().seed(7).productions(5).slotsPerProduction(30)
+                .generateProductions();
+        assertThat(productions.size(), is(5));
+        assertThat(productions.get(0).getRoles().size(), is(30));
+        assertThat(productions.get(4).getRoleWeights(),
+                is(new WorkloadGenerator().seed(7).productions(5).slotsPerProduction(30)
+                        .generateProductions().get(4).getRoleWeights()));
+    }
+
+    @Test
+    void skewConcentratesPreferences() {
+        assertThat(firstChoiceShare(new WorkloadGenerator().preferenceSkew(0.0)), lessThan(0.15));
+        assertThat(firstChoiceShare(new WorkloadGenerator().preferenceSkew(2.0)), greaterThan(0.5));
+    }
+
+    // The share of crew candidates whose first choice is the most popular production
+    private static double firstChoiceShare(WorkloadGenerator generator) {
+        int crew = 0;
+        int popular = 0;
+        for (Candidate candidate : generator.candidates(2000).productions(20).generateCandidates()) {
+            if (!candidate.getActingInterest()) {
+                crew++;
+                if (candidate.getProductions().get(0).equals(WorkloadGenerator.productionName(0))) {
+                    popular++;
+                }
+            }
+        }
+        return (double) popular / crew;
+    }
+}